@@ -0,0 +1,26 @@
+package org.example.onlinemart.aop;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Re-runs a transactional service method that lost an optimistic-lock race.
+ * The retry wraps the whole transaction, so every attempt reads fresh rows.
+ * Calls made inside an existing transaction are not retried here; the
+ * outermost annotated call retries instead.
+ *
+ * @see OptimisticRetryAspect
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OptimisticRetry {
+
+    /**
+     * Attempts including the first; 0 uses {@code retry.optimistic.maxAttempts}.
+     */
+    int maxAttempts() default 0;
+}
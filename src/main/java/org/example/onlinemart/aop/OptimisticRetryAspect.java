@@ -0,0 +1,97 @@
+package org.example.onlinemart.aop;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.hibernate.StaleStateException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.OptimisticLockException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Retries {@link OptimisticRetry} methods that fail on a stale version.
+ * Ordered ahead of the transaction interceptor so that each attempt runs in a
+ * new transaction; inside a caller's transaction the failure is passed on,
+ * since that transaction is already marked for rollback.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class OptimisticRetryAspect {
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticRetryAspect.class);
+
+    private final OptimisticRetryPolicy defaultPolicy;
+
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public OptimisticRetryAspect(@Value("${retry.optimistic.maxAttempts:5}") int maxAttempts,
+                                 @Value("${retry.optimistic.baseDelayMillis:10}") long baseDelayMillis,
+                                 @Value("${retry.optimistic.maxDelayMillis:200}") long maxDelayMillis) {
+        this.defaultPolicy = new OptimisticRetryPolicy(maxAttempts, baseDelayMillis, maxDelayMillis);
+    }
+
+    @Around("@annotation(optimisticRetry)")
+    public Object retryOnConflict(ProceedingJoinPoint joinPoint, OptimisticRetry optimisticRetry) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        OptimisticRetryPolicy policy = (optimisticRetry.maxAttempts() > 0)
+                ? new OptimisticRetryPolicy(optimisticRetry.maxAttempts(),
+                        defaultPolicy.getBaseDelayMillis(), defaultPolicy.getMaxDelayMillis())
+                : defaultPolicy;
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (RuntimeException e) {
+                if (!isOptimisticLockFailure(e)) {
+                    throw e;
+                }
+                conflicts.increment();
+                if (!policy.canRetry(attempt)) {
+                    exhausted.increment();
+                    logger.warn("{} still conflicting after {} attempts",
+                            joinPoint.getSignature().toShortString(), attempt);
+                    throw e;
+                }
+                logger.debug("Optimistic lock conflict in {}, attempt {}",
+                        joinPoint.getSignature().toShortString(), attempt);
+                try {
+                    policy.pause(attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    static boolean isOptimisticLockFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException
+                    || cause instanceof StaleStateException
+                    || cause instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.onlinemart.aop;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bounded exponential backoff with jitter for optimistic-lock retries.
+ * The n-th retry waits a random time between half and all of
+ * {@code min(maxDelay, baseDelay * 2^(n-1))}, so writers that collided
+ * spread out instead of colliding again on the same schedule.
+ */
+public class OptimisticRetryPolicy {
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    public OptimisticRetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = Math.max(0, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * @param attempt The attempt that just failed, starting at 1
+     * @return true if another attempt is allowed
+     */
+    public boolean canRetry(int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /**
+     * @param attempt The attempt that just failed, starting at 1
+     * @return How long to wait before the next attempt
+     */
+    public long backoffMillis(int attempt) {
+        if (baseDelayMillis == 0) {
+            return 0L;
+        }
+        int shift = Math.min(attempt - 1, 30);
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << shift);
+        long floor = ceiling / 2;
+        return floor + ThreadLocalRandom.current().nextLong(ceiling - floor + 1);
+    }
+
+    /**
+     * Sleeps for the backoff of the given attempt.
+     *
+     * @param attempt The attempt that just failed, starting at 1
+     */
+    public void pause(int attempt) throws InterruptedException {
+        long delay = backoffMillis(attempt);
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+    }
+}
@@ -25,6 +25,14 @@ public final class CacheKeys {
         public static String processingLock(int orderId) {
             return PREFIX + "processing:lock:" + orderId;
         }
+
+        public static String idempotency(int userId, String idempotencyKey) {
+            return PREFIX + "idempotency:" + userId + ":" + idempotencyKey;
+        }
+
+        public static String ticket(String ticketId) {
+            return PREFIX + "ticket:" + ticketId;
+        }
     }
 
     public static final class Products {
@@ -38,6 +46,12 @@ public final class CacheKeys {
 
         public static final String IN_STOCK = PREFIX + "instock";
 
+        public static final String IN_STOCK_IDS = PREFIX + "instock:ids";
+
+        public static String watchers(int productId) {
+            return PREFIX + "watchers:" + productId;
+        }
+
         public static String category(String categoryName) {
             return PREFIX + "category:" + categoryName;
         }
@@ -58,8 +72,8 @@ public final class CacheKeys {
             return PREFIX + "email:" + email;
         }
 
-        public static String watchlist(int userId) {
-            return PREFIX + "watchlist:" + userId;
+        public static String watchlistIds(int userId) {
+            return PREFIX + "watchlist:ids:" + userId;
         }
 
         public static final String ALL = PREFIX + "all";
@@ -72,26 +86,30 @@ public final class CacheKeys {
 
         public static final String TOTAL_SOLD = PREFIX + "totalSold";
 
-        public static String topPopular(int count) {
-            return PREFIX + "topPopular:" + count;
-        }
-
         public static String salesByDateRange(String startDate, String endDate) {
             return PREFIX + "sales:" + startDate + ":" + endDate;
         }
 
         public static final String REVENUE_METRICS = PREFIX + "revenueMetrics";
+
+        public static final String POPULARITY_LEADERBOARD = PREFIX + "popularity";
+
+        public static final String SALES_REPORT = PREFIX + "salesReport";
+
+        public static String trendingSlice(String window, long sliceStart) {
+            return PREFIX + "trending:" + window + ":" + sliceStart;
+        }
     }
 
     public static final class UserActivity {
         private static final String PREFIX = "activity:";
 
-        public static String frequentPurchases(int userId, int limit) {
-            return PREFIX + "user:" + userId + ":frequent:" + limit;
+        public static String frequentPurchases(int userId) {
+            return PREFIX + "user:" + userId + ":frequent";
         }
 
-        public static String recentPurchases(int userId, int limit) {
-            return PREFIX + "user:" + userId + ":recent:" + limit;
+        public static String recentPurchases(int userId) {
+            return PREFIX + "user:" + userId + ":recentByTime";
         }
 
         public static String rateLimit(String username, String endpoint) {
@@ -11,10 +11,19 @@ public interface CacheService {
 
     <T> boolean set(String key, T value, long expiration, TimeUnit timeUnit);
 
+    <T> boolean setIfAbsent(String key, T value, long expiration, TimeUnit timeUnit);
+
     <T> Optional<T> get(String key, Class<T> clazz);
 
     <T> Optional<List<T>> getList(String key, Class<T> clazz);
 
+    /**
+     * Read several keys in one round trip.
+     *
+     * @return The values in the order of the keys, with null for missing keys
+     */
+    <T> List<T> multiGet(List<String> keys, Class<T> clazz);
+
     boolean exists(String key);
 
     boolean delete(String key);
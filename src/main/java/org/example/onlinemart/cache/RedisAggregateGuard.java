@@ -0,0 +1,194 @@
+package org.example.onlinemart.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps Redis aggregates that committed transactions update incrementally
+ * consistent with the rebuilds that reload them from the database.
+ * <p>
+ * Each aggregate key has a sync hash next to it ({@code <key>:sync}) with a
+ * version, bumped by every update just before its transaction commits, and the
+ * number of those updates not yet applied. A rebuild snapshots the hash before it
+ * reads the database and, in one script, renames its temporary keys over the live
+ * ones only if nothing was pending then and the version has not moved since.
+ * Otherwise the rebuild is discarded and the key left to a later read, so an
+ * update that commits while a rebuild reads the database is neither lost nor
+ * counted twice.
+ */
+@Component
+public class RedisAggregateGuard {
+    private static final Logger logger = LoggerFactory.getLogger(RedisAggregateGuard.class);
+
+    private static final String SYNC_SUFFIX = ":sync";
+    private static final String REBUILD_SUFFIX = ":rebuild";
+
+    // KEYS: sync hashes; ARGV[1]: seconds a stuck pending count may last
+    private static final String BEGIN_UPDATE_SCRIPT =
+            "for i = 1, #KEYS do "
+                    + "redis.call('hincrby', KEYS[i], 'version', 1) "
+                    + "redis.call('hincrby', KEYS[i], 'pending', 1) "
+                    + "redis.call('expire', KEYS[i], ARGV[1]) "
+                    + "end "
+                    + "return #KEYS";
+
+    // KEYS: sync hashes
+    private static final String END_UPDATE_SCRIPT =
+            "for i = 1, #KEYS do "
+                    + "if tonumber(redis.call('hget', KEYS[i], 'pending') or '0') > 0 then "
+                    + "redis.call('hincrby', KEYS[i], 'pending', -1) "
+                    + "end "
+                    + "end "
+                    + "return #KEYS";
+
+    // KEYS[1]: sync hash, then pairs of temporary and live key; ARGV[1]: snapshot version, ARGV[2]: TTL or 0
+    private static final String PUBLISH_SCRIPT =
+            "local sync = redis.call('hmget', KEYS[1], 'version', 'pending') "
+                    + "if (sync[1] or '0') ~= ARGV[1] or tonumber(sync[2] or '0') > 0 then "
+                    + "for i = 2, #KEYS, 2 do redis.call('del', KEYS[i]) end "
+                    + "return 0 "
+                    + "end "
+                    + "for i = 2, #KEYS, 2 do "
+                    + "redis.call('rename', KEYS[i], KEYS[i + 1]) "
+                    + "if tonumber(ARGV[2]) > 0 then redis.call('expire', KEYS[i + 1], ARGV[2]) end "
+                    + "end "
+                    + "return 1";
+
+    private final JedisPool jedisPool;
+
+    @Value("${cache.aggregate.pendingTTL:60}")
+    private long pendingTTL = 60;
+
+    @Autowired
+    public RedisAggregateGuard(JedisPool jedisPool) {
+        this.jedisPool = jedisPool;
+    }
+
+    /**
+     * The temporary key a rebuild of the given key is written under.
+     */
+    public static String rebuildKey(String key) {
+        return key + REBUILD_SUFFIX;
+    }
+
+    /**
+     * Run an update of the given aggregate keys once the current transaction
+     * commits, or right away when there is none. The keys are marked pending from
+     * just before the commit until the update has run, whether or not it commits.
+     *
+     * @param keys The aggregate keys the update writes
+     * @param update Applies the update, dropping the keys itself if it fails
+     */
+    public void updateAfterCommit(Collection<String> keys, Runnable update) {
+        List<String> syncKeys = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            syncKeys.add(key + SYNC_SUFFIX);
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            boolean marked = beginUpdate(syncKeys);
+            try {
+                update.run();
+            } finally {
+                if (marked) {
+                    endUpdate(syncKeys);
+                }
+            }
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean marked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                marked = beginUpdate(syncKeys);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        update.run();
+                    }
+                } finally {
+                    if (marked) {
+                        endUpdate(syncKeys);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Snapshot an aggregate's version before reading the database to rebuild it.
+     *
+     * @return The version to pass to {@link #publish}, or null while an update is
+     *         pending, in which case the rebuild must not be published
+     */
+    public String snapshot(Jedis jedis, String key) {
+        List<String> sync = jedis.hmget(key + SYNC_SUFFIX, "version", "pending");
+        if (sync.get(1) != null && Long.parseLong(sync.get(1)) > 0) {
+            return null;
+        }
+        return (sync.get(0) != null) ? sync.get(0) : "0";
+    }
+
+    /**
+     * Rename rebuilt keys, written under {@link #rebuildKey}, over the live ones
+     * if no update of the guarding key committed since the snapshot. Otherwise the
+     * temporary keys are deleted.
+     *
+     * @param key The key whose sync hash guards the rebuild
+     * @param snapshot The version from {@link #snapshot}
+     * @param ttlSeconds Expiry for the published keys, or 0 for none
+     * @param liveKeys The keys to publish, each with its temporary key written
+     * @return Whether the rebuild was published
+     */
+    public boolean publish(Jedis jedis, String key, String snapshot, long ttlSeconds, String... liveKeys) {
+        List<String> scriptKeys = new ArrayList<>(1 + liveKeys.length * 2);
+        scriptKeys.add(key + SYNC_SUFFIX);
+        for (String liveKey : liveKeys) {
+            scriptKeys.add(rebuildKey(liveKey));
+            scriptKeys.add(liveKey);
+        }
+        Object published = jedis.eval(PUBLISH_SCRIPT, scriptKeys,
+                Arrays.asList(snapshot, String.valueOf(ttlSeconds)));
+        if (!Long.valueOf(1L).equals(published)) {
+            logger.debug("Discarded rebuild of {}: updated while it was read", key);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean beginUpdate(List<String> syncKeys) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.eval(BEGIN_UPDATE_SCRIPT, syncKeys, Collections.singletonList(String.valueOf(pendingTTL)));
+            return true;
+        } catch (Exception e) {
+            logger.warn("Failed to mark update of {} pending", syncKeys, e);
+            return false;
+        }
+    }
+
+    private void endUpdate(List<String> syncKeys) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.eval(END_UPDATE_SCRIPT, syncKeys, Collections.emptyList());
+        } catch (Exception e) {
+            logger.warn("Failed to clear pending update of {}", syncKeys, e);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.params.SetParams;
 
 import java.lang.reflect.Type;
 import java.util.*;
@@ -61,6 +62,25 @@ public class RedisCacheService implements CacheService {
         }
     }
 
+    @Override
+    public <T> boolean setIfAbsent(String key, T value, long expiration, TimeUnit timeUnit) {
+        if (key == null || value == null) {
+            return false;
+        }
+
+        String json = gson.toJson(value);
+        long seconds = timeUnit.toSeconds(expiration);
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            String result = jedis.set(key, json, SetParams.setParams().nx().ex(seconds));
+            return "OK".equals(result);
+        } catch (JedisException e) {
+            logger.error("Error setting key {} if absent in cache", key, e);
+            handleJedisException(e);
+            return false;
+        }
+    }
+
     @Override
     public <T> Optional<T> get(String key, Class<T> clazz) {
         if (key == null || clazz == null) {
@@ -104,6 +124,27 @@ public class RedisCacheService implements CacheService {
         }
     }
 
+    @Override
+    public <T> List<T> multiGet(List<String> keys, Class<T> clazz) {
+        if (keys == null || keys.isEmpty() || clazz == null) {
+            return new ArrayList<>();
+        }
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            List<String> jsons = jedis.mget(keys.toArray(new String[0]));
+
+            List<T> values = new ArrayList<>(jsons.size());
+            for (String json : jsons) {
+                values.add((json != null) ? gson.fromJson(json, clazz) : null);
+            }
+            return values;
+        } catch (JedisException e) {
+            logger.error("Error getting {} keys from cache", keys.size(), e);
+            handleJedisException(e);
+            return new ArrayList<>();
+        }
+    }
+
     @Override
     public boolean exists(String key) {
         if (key == null) {
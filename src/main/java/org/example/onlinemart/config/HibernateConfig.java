@@ -48,6 +48,8 @@ public class HibernateConfig {
     public HibernateTransactionManager transactionManager(SessionFactory sessionFactory) {
         HibernateTransactionManager txManager = new HibernateTransactionManager();
         txManager.setSessionFactory(sessionFactory);
+        // Batched order placement gives each order a JDBC savepoint
+        txManager.setNestedTransactionAllowed(true);
         return txManager;
     }
 }
@@ -1,17 +1,39 @@
 package org.example.onlinemart.controller;
 
-import org.example.onlinemart.dao.OrderItemDAO;
+import org.example.onlinemart.dto.BulkOrderResult;
 import org.example.onlinemart.dto.OrderDTO;
+import org.example.onlinemart.dto.OrderLineSummary;
+import org.example.onlinemart.dto.PopularProductPage;
 import org.example.onlinemart.dto.PopularProductResult;
+import org.example.onlinemart.dto.RevenueCube;
+import org.example.onlinemart.dto.RevenueMetrics;
+import org.example.onlinemart.dto.TrendingProducts;
 import org.example.onlinemart.entity.Order;
 import org.example.onlinemart.entity.Product;
+import org.example.onlinemart.report.OrderLineStore;
+import org.example.onlinemart.report.SalesReport;
 import org.example.onlinemart.service.AdminSummaryService;
+import org.example.onlinemart.service.AsyncOrderService;
+import org.example.onlinemart.service.InventoryLockService;
+import org.example.onlinemart.service.OrderExportService;
 import org.example.onlinemart.service.OrderService;
+import org.example.onlinemart.service.ProductLeaderboardService;
 import org.example.onlinemart.service.ProductService;
+import org.example.onlinemart.service.RevenueCubeService;
+import org.example.onlinemart.service.SalesRollupService;
+import org.example.onlinemart.service.TrendingProductService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.ArrayList;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -20,17 +42,38 @@ public class AdminController {
 
     private final ProductService productService;
     private final OrderService orderService;
-    private final OrderItemDAO orderItemDAO;
     private final AdminSummaryService adminSummaryService;
+    private final InventoryLockService inventoryLockService;
+    private final AsyncOrderService asyncOrderService;
+    private final ProductLeaderboardService productLeaderboardService;
+    private final SalesRollupService salesRollupService;
+    private final TrendingProductService trendingProductService;
+    private final RevenueCubeService revenueCubeService;
+    private final OrderExportService orderExportService;
+    private final OrderLineStore orderLineStore;
 
     public AdminController(ProductService productService,
                            OrderService orderService,
-                           OrderItemDAO orderItemDAO,
-                           AdminSummaryService adminSummaryService) {
+                           AdminSummaryService adminSummaryService,
+                           InventoryLockService inventoryLockService,
+                           AsyncOrderService asyncOrderService,
+                           ProductLeaderboardService productLeaderboardService,
+                           SalesRollupService salesRollupService,
+                           TrendingProductService trendingProductService,
+                           RevenueCubeService revenueCubeService,
+                           OrderExportService orderExportService,
+                           OrderLineStore orderLineStore) {
         this.productService = productService;
         this.orderService = orderService;
-        this.orderItemDAO = orderItemDAO;
         this.adminSummaryService = adminSummaryService;
+        this.inventoryLockService = inventoryLockService;
+        this.asyncOrderService = asyncOrderService;
+        this.productLeaderboardService = productLeaderboardService;
+        this.salesRollupService = salesRollupService;
+        this.trendingProductService = trendingProductService;
+        this.revenueCubeService = revenueCubeService;
+        this.orderExportService = orderExportService;
+        this.orderLineStore = orderLineStore;
     }
 
     @PostMapping("/products")
@@ -49,6 +92,16 @@ public class AdminController {
         return productService.updateProductFields(productId, updated);
     }
 
+    @GetMapping("/inventory/locks/stats")
+    public Map<String, Long> inventoryLockStats() {
+        return inventoryLockService.getLockStats();
+    }
+
+    @GetMapping("/orders/async/stats")
+    public Map<String, Long> asyncOrderStats() {
+        return asyncOrderService.getStats();
+    }
+
     @PatchMapping("/orders/{orderId}/complete")
     public OrderDTO completeOrder(@PathVariable int orderId) {
         Order completed = orderService.completeOrder(orderId);
@@ -61,6 +114,16 @@ public class AdminController {
         return OrderDTO.fromEntity(canceled);
     }
 
+    @PatchMapping("/orders/bulk/complete")
+    public BulkOrderResult completeOrders(@RequestBody List<Integer> orderIds) {
+        return orderService.completeOrders(orderIds);
+    }
+
+    @PatchMapping("/orders/bulk/cancel")
+    public BulkOrderResult cancelOrders(@RequestBody List<Integer> orderIds) {
+        return orderService.cancelOrders(orderIds);
+    }
+
     @GetMapping("/orders")
     public List<OrderDTO> listOrders(@RequestParam(required = false) Integer page) {
         if (page == null) {
@@ -78,6 +141,20 @@ public class AdminController {
                 .collect(Collectors.toList());
     }
 
+    @GetMapping("/orders/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Order.OrderStatus status) {
+        String contentType = orderExportService.contentType(format);
+        StreamingResponseBody body = out -> orderExportService.export(format, from, to, status, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(contentType))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders." + format.toLowerCase() + "\"")
+                .body(body);
+    }
+
     @GetMapping("/orders/{orderId}")
     public OrderDTO viewSingleOrder(@PathVariable int orderId) {
         Order order = orderService.findById(orderId);
@@ -94,19 +171,30 @@ public class AdminController {
 
     @GetMapping("/summary/admin-top3-popular")
     public List<PopularProductResult> getTop3PopularProducts() {
-        List<Object[]> rows = orderItemDAO.findTop3Popular();
-        List<PopularProductResult> results = new ArrayList<>();
-
-        for (Object[] row : rows) {
-            Product product = (Product) row[0];
-            Long totalQty = (Long) row[1];
-            results.add(new PopularProductResult(
-                    (long) product.getProductId(),
-                    product.getProductName(),
-                    totalQty
-            ));
-        }
-        return results;
+        return productLeaderboardService.top(3);
+    }
+
+    @GetMapping("/summary/top")
+    public List<PopularProductResult> getTopPopularProducts(@RequestParam(defaultValue = "10") int n) {
+        return productLeaderboardService.top(Math.min(Math.max(n, 1), 100));
+    }
+
+    @GetMapping("/summary/popular")
+    public PopularProductPage getPopularProducts(@RequestParam(defaultValue = "10") int n,
+                                                 @RequestParam(required = false) Long afterQuantity,
+                                                 @RequestParam(required = false) Integer afterProductId) {
+        return adminSummaryService.findPopularProductsPage(Math.min(Math.max(n, 1), 100), afterQuantity, afterProductId);
+    }
+
+    @PostMapping("/summary/top/rebuild")
+    public int rebuildPopularityLeaderboard() {
+        return productLeaderboardService.rebuild();
+    }
+
+    @GetMapping("/summary/trending")
+    public TrendingProducts getTrendingProducts(@RequestParam(defaultValue = "hour") String window,
+                                                @RequestParam(defaultValue = "10") int k) {
+        return trendingProductService.top(window, Math.min(Math.max(k, 1), 100));
     }
 
     @GetMapping("/summary/total-sold")
@@ -114,6 +202,79 @@ public class AdminController {
         return adminSummaryService.countTotalSold();
     }
 
+    @GetMapping("/summary/revenue")
+    public RevenueMetrics revenueMetrics() {
+        return revenueCubeService.getTotals();
+    }
+
+    @GetMapping("/summary/revenue/products/{productId}")
+    public RevenueMetrics productRevenue(@PathVariable int productId) {
+        return revenueCubeService.getProductMetrics(productId);
+    }
+
+    @GetMapping("/summary/revenue/days/{day}")
+    public RevenueMetrics dayRevenue(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day) {
+        return revenueCubeService.getDayMetrics(day);
+    }
+
+    @GetMapping("/summary/revenue/cube")
+    public RevenueCube revenueCube() {
+        return revenueCubeService.getCube();
+    }
+
+    @PostMapping("/summary/revenue/rebuild")
+    public int rebuildRevenueCube() {
+        return revenueCubeService.rebuild();
+    }
+
+    @GetMapping("/summary/sales")
+    public RevenueMetrics salesInRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return salesRollupService.getSales(from, to);
+    }
+
+    @GetMapping("/summary/report")
+    public SalesReport salesReport() {
+        return adminSummaryService.getSalesReport();
+    }
+
+    @GetMapping("/summary/lines")
+    public OrderLineSummary orderLineSummary(
+            @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "10") int top) {
+        long fromMillis = (from != null) ? from.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : Long.MIN_VALUE;
+        long toMillis = (to != null) ? to.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : Long.MAX_VALUE;
+        return orderLineStore.summarize(status, fromMillis, toMillis, Math.min(Math.max(top, 0), 100));
+    }
+
+    @GetMapping("/summary/lines/stats")
+    public Map<String, Long> orderLineStoreStats() {
+        return orderLineStore.getStats();
+    }
+
+    @PostMapping("/summary/lines/reload")
+    public int reloadOrderLineStore() {
+        return orderLineStore.reload();
+    }
+
+    @PostMapping("/summary/sales/rebuild")
+    public int rebuildSalesRollups() {
+        return salesRollupService.rebuild();
+    }
+
+    @PostMapping("/summary/sales-stats/rebuild")
+    public int rebuildSalesStats() {
+        return adminSummaryService.rebuildSalesStats();
+    }
+
+    @PostMapping("/summary/order-totals/rebuild")
+    public int rebuildOrderTotals() {
+        return adminSummaryService.backfillOrderTotals();
+    }
+
     public static class ProductStats {
         private int productId;
         private String productName;
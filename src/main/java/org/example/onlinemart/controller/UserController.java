@@ -2,11 +2,20 @@ package org.example.onlinemart.controller;
 
 import org.example.onlinemart.dao.OrderItemDAO;
 import org.example.onlinemart.dao.WatchlistDAO;
-import org.example.onlinemart.dto.UserDTO;
+import org.example.onlinemart.dto.OrderDTO;
+import org.example.onlinemart.dto.OrderTicket;
+import org.example.onlinemart.dto.ProductSummary;
 import org.example.onlinemart.entity.*;
+import org.example.onlinemart.service.AsyncOrderService;
+import org.example.onlinemart.service.IdempotencyService;
+import org.example.onlinemart.service.OrderIntakeService;
 import org.example.onlinemart.service.OrderService;
 import org.example.onlinemart.service.ProductService;
+import org.example.onlinemart.service.PurchaseProfileService;
 import org.example.onlinemart.service.UserService;
+import org.example.onlinemart.service.WatchlistIndexService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.*;
@@ -21,17 +30,32 @@ public class UserController {
     private final OrderService orderService;
     private final WatchlistDAO watchlistDAO;
     private final OrderItemDAO orderItemDAO;
+    private final OrderIntakeService orderIntakeService;
+    private final IdempotencyService idempotencyService;
+    private final AsyncOrderService asyncOrderService;
+    private final PurchaseProfileService purchaseProfileService;
+    private final WatchlistIndexService watchlistIndexService;
 
     public UserController(UserService userService,
                           ProductService productService,
                           OrderService orderService,
                           WatchlistDAO watchlistDAO,
-                          OrderItemDAO orderItemDAO) {
+                          OrderItemDAO orderItemDAO,
+                          OrderIntakeService orderIntakeService,
+                          IdempotencyService idempotencyService,
+                          AsyncOrderService asyncOrderService,
+                          PurchaseProfileService purchaseProfileService,
+                          WatchlistIndexService watchlistIndexService) {
         this.userService = userService;
         this.productService = productService;
         this.orderService = orderService;
         this.watchlistDAO = watchlistDAO;
         this.orderItemDAO = orderItemDAO;
+        this.orderIntakeService = orderIntakeService;
+        this.idempotencyService = idempotencyService;
+        this.asyncOrderService = asyncOrderService;
+        this.purchaseProfileService = purchaseProfileService;
+        this.watchlistIndexService = watchlistIndexService;
     }
 
     @GetMapping("/products")
@@ -53,9 +77,30 @@ public class UserController {
 
     @PostMapping("/orders")
     public OrderDTO placeOrder(@RequestParam int userId,
-                               @RequestBody List<OrderItem> orderItems) {
-        Order order = orderService.createOrder(userId, orderItems);
-        return OrderDTO.fromEntity(order);
+                               @RequestBody List<OrderItem> orderItems,
+                               @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.trim().isEmpty()) {
+            return OrderDTO.fromEntity(orderIntakeService.placeOrder(userId, orderItems));
+        }
+        return idempotencyService.placeOnce(userId, idempotencyKey.trim(),
+                () -> orderIntakeService.placeOrder(userId, orderItems));
+    }
+
+    @PostMapping("/orders/async")
+    public ResponseEntity<OrderTicket> submitOrder(@RequestParam int userId,
+                                                   @RequestBody List<OrderItem> orderItems) {
+        OrderTicket ticket = asyncOrderService.submit(userId, orderItems);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ticket);
+    }
+
+    @GetMapping("/orders/tickets/{ticketId}")
+    public OrderTicket getOrderTicket(@RequestParam int userId,
+                                      @PathVariable String ticketId) {
+        OrderTicket ticket = asyncOrderService.getTicket(userId, ticketId);
+        if (ticket == null) {
+            throw new RuntimeException("Order ticket not found or expired");
+        }
+        return ticket;
     }
 
     @PatchMapping("/orders/{orderId}/cancel")
@@ -106,6 +151,7 @@ public class UserController {
         w.setProduct(product);
         w.setCreatedAt(new Date());
         watchlistDAO.save(w);
+        watchlistIndexService.watchedAfterCommit(userId, productId);
 
         return "Product " + productId + " added to watchlist.";
     }
@@ -118,90 +164,32 @@ public class UserController {
             throw new RuntimeException("Product not found in watchlist");
         }
         watchlistDAO.delete(existing);
+        watchlistIndexService.unwatchedAfterCommit(userId, productId);
         return "Removed product " + productId + " from watchlist.";
     }
 
     @GetMapping("/watchlist")
     public List<ProductDTO> viewWatchlist(@RequestParam int userId) {
-        List<Product> watchlistProducts = userService.getWatchlistProductsInStock(userId);
+        List<ProductSummary> watchlistProducts = userService.getWatchlistProductsInStock(userId);
         return watchlistProducts.stream()
-                .map(ProductDTO::fromEntity)
+                .map(ProductDTO::fromSummary)
                 .collect(Collectors.toList());
     }
 
     @GetMapping("/summary/top3-frequent")
     public List<ProductDTO> top3Frequent(@RequestParam int userId) {
-        List<Order> completedOrders = orderService.findByUserId(userId).stream()
-                .filter(o -> o.getOrderStatus() == Order.OrderStatus.Completed)
-                .collect(Collectors.toList());
-
-        Map<Integer, Integer> productCountMap = new HashMap<>();
-        for (Order order : completedOrders) {
-            List<OrderItem> items = orderItemDAO.findByOrderId(order.getOrderId());
-            for (OrderItem oi : items) {
-                int pid = oi.getProduct().getProductId();
-                productCountMap.put(pid,
-                        productCountMap.getOrDefault(pid, 0) + oi.getQuantity());
-            }
-        }
-
-        List<Map.Entry<Integer, Integer>> sorted = productCountMap.entrySet().stream()
-                .sorted((a, b) -> {
-                    int cmp = b.getValue().compareTo(a.getValue());
-                    return (cmp == 0) ? Integer.compare(a.getKey(), b.getKey()) : cmp;
-                })
-                .collect(Collectors.toList());
-
-        List<Integer> topIds = sorted.stream()
-                .limit(3)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-
-        return topIds.stream()
-                .map(id -> productService.findById(id))
-                .filter(Objects::nonNull)
-                .map(ProductDTO::fromEntity)
-                .collect(Collectors.toList());
+        return toProductDTOs(purchaseProfileService.topFrequentProducts(userId, 3));
     }
 
     @GetMapping("/summary/top3-recent")
     public List<ProductDTO> top3Recent(@RequestParam int userId) {
-        List<Order> completedOrders = orderService.findByUserId(userId).stream()
-                .filter(o -> o.getOrderStatus() == Order.OrderStatus.Completed)
-                .sorted((o1, o2) -> o2.getOrderTime().compareTo(o1.getOrderTime()))
-                .collect(Collectors.toList());
-
-        List<OrderItem> allItems = new ArrayList<>();
-        for (Order order : completedOrders) {
-            allItems.addAll(orderItemDAO.findByOrderId(order.getOrderId()));
-        }
+        return toProductDTOs(purchaseProfileService.recentProducts(userId, 3));
+    }
 
-        allItems.sort((i1, i2) -> {
-            Date t1 = i1.getOrder().getOrderTime();
-            Date t2 = i2.getOrder().getOrderTime();
-            int cmp = t2.compareTo(t1);
-            if (cmp == 0) {
-                return Integer.compare(
-                        i1.getProduct().getProductId(),
-                        i2.getProduct().getProductId()
-                );
-            }
-            return cmp;
-        });
-
-        List<ProductDTO> result = new ArrayList<>();
-        Set<Integer> seenProductIds = new HashSet<>();
-        for (OrderItem item : allItems) {
-            int pid = item.getProduct().getProductId();
-            if (!seenProductIds.contains(pid)) {
-                result.add(ProductDTO.fromEntity(item.getProduct()));
-                seenProductIds.add(pid);
-            }
-            if (result.size() == 3) {
-                break;
-            }
-        }
-        return result;
+    private List<ProductDTO> toProductDTOs(List<ProductSummary> products) {
+        return products.stream()
+                .map(ProductDTO::fromSummary)
+                .collect(Collectors.toList());
     }
 
     @GetMapping("/orders/{orderId}/products")
@@ -236,6 +224,15 @@ public class UserController {
             return dto;
         }
 
+        public static ProductDTO fromSummary(ProductSummary s) {
+            ProductDTO dto = new ProductDTO();
+            dto.setProductId(s.getProductId());
+            dto.setProductName(s.getProductName());
+            dto.setDescription(s.getDescription());
+            dto.setRetailPrice(s.getRetailPrice());
+            return dto;
+        }
+
         public int getProductId() {
             return productId;
         }
@@ -268,76 +265,4 @@ public class UserController {
             this.retailPrice = retailPrice;
         }
     }
-
-    public static class OrderDTO {
-        private int orderId;
-        private int userId;
-        private UserDTO user;
-        private String orderStatus;
-        private Date orderTime;
-        private Date updatedAt;
-
-        public OrderDTO() {
-        }
-
-        public static OrderDTO fromEntity(Order order) {
-            if (order == null) return null;
-            OrderDTO dto = new OrderDTO();
-            dto.setOrderId(order.getOrderId());
-            dto.setUserId(order.getUser().getUserId());
-            dto.setUser(UserDTO.fromEntity(order.getUser()));
-            dto.setOrderStatus(order.getOrderStatus().toString());
-            dto.setOrderTime(order.getOrderTime());
-            dto.setUpdatedAt(order.getUpdatedAt());
-            return dto;
-        }
-
-        public int getOrderId() {
-            return orderId;
-        }
-
-        public void setOrderId(int orderId) {
-            this.orderId = orderId;
-        }
-
-        public int getUserId() {
-            return userId;
-        }
-
-        public void setUserId(int userId) {
-            this.userId = userId;
-        }
-
-        public UserDTO getUser() {
-            return user;
-        }
-
-        public void setUser(UserDTO user) {
-            this.user = user;
-        }
-
-        public String getOrderStatus() {
-            return orderStatus;
-        }
-
-        public void setOrderStatus(String orderStatus) {
-            this.orderStatus = orderStatus;
-        }
-
-        public Date getOrderTime() {
-            return orderTime;
-        }
-
-        public void setOrderTime(Date orderTime) {
-            this.orderTime = orderTime;
-        }
-
-        public Date getUpdatedAt() {
-            return updatedAt;
-        }
-
-        public void setUpdatedAt(Date updatedAt) {
-            this.updatedAt = updatedAt;
-        }
-    }
-}
\ No newline at end of file
+}
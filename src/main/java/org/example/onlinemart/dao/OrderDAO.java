@@ -1,14 +1,73 @@
 package org.example.onlinemart.dao;
 
+import org.example.onlinemart.dto.OrderExportRow;
+import org.example.onlinemart.dto.RevenueMetrics;
 import org.example.onlinemart.entity.Order;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface OrderDAO {
     void save(Order order);
     void update(Order order);
+
+    /**
+     * Cancels a Processing order and puts the stock of all its lines back,
+     * in a single statement.
+     *
+     * @param order The order to cancel; refreshed afterwards
+     * @return false if the order was no longer Processing
+     */
+    boolean cancelAndRestoreStock(Order order);
     Order findById(int orderId);
+
+    /**
+     * Loads orders with their users and locks the rows until the transaction ends.
+     */
+    List<Order> findByIdsForUpdate(Collection<Integer> orderIds);
+
+    /**
+     * Sets the status of the given orders, where they are still in {@code from}.
+     * Moving them to Completed also sets their completion time.
+     *
+     * @param changedAt Time of the change
+     * @return The number of orders changed
+     */
+    int updateStatus(Collection<Integer> orderIds, Order.OrderStatus from, Order.OrderStatus to, Date changedAt);
+
+    /**
+     * Puts back the stock of every line of the given Processing orders in one
+     * statement; the orders' status is left to {@link #updateStatus}.
+     *
+     * @return The number of product rows changed
+     */
+    int restoreStock(Collection<Integer> orderIds);
     List<Order> findAll();
     List<Order> findByUserId(int userId);
     List<Order> findAllPaginated(int offset, int limit);
+
+    /**
+     * Sums the stored totals of all orders in a status.
+     */
+    RevenueMetrics sumTotals(Order.OrderStatus status);
+
+    /**
+     * Fills in the totals of orders placed before they were stored, from their lines.
+     *
+     * @return The number of orders updated
+     */
+    int backfillTotals();
+
+    /**
+     * Stream orders, oldest first, without loading them into a persistence context.
+     *
+     * @param from Earliest order time, inclusive; null for no lower bound
+     * @param to Latest order time, exclusive; null for no upper bound
+     * @param status Only orders in this status; null for all
+     * @param rowConsumer Receives each order on the calling thread
+     * @return The number of orders read
+     */
+    long scrollOrders(Date from, Date to, Order.OrderStatus status, Consumer<OrderExportRow> rowConsumer);
 }
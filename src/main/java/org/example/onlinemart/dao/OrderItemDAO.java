@@ -1,12 +1,81 @@
 package org.example.onlinemart.dao;
 
+import org.example.onlinemart.dto.OrderLine;
+import org.example.onlinemart.dto.ProductSummary;
 import org.example.onlinemart.entity.OrderItem;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface OrderItemDAO {
     void save(OrderItem orderItem);
     void update(OrderItem orderItem);
     List<OrderItem> findByOrderId(int orderId);
-    List<Object[]> findTop3Popular();
+
+    /**
+     * Units per product across the lines of the given orders.
+     *
+     * @return Product IDs mapped to their units
+     */
+    Map<Integer, Long> sumQuantityByProductForOrders(Collection<Integer> orderIds);
+
+    /**
+     * Orders, units, revenue and cost per product over all completed orders.
+     *
+     * @return Rows of [productId, orderCount, units, revenue, cost]
+     */
+    List<Object[]> sumSalesByProduct();
+
+    /**
+     * Orders, units, revenue and cost per product across the lines of the given orders.
+     *
+     * @return Rows of [productId, orderCount, units, revenue, cost]
+     */
+    List<Object[]> sumSalesByProductForOrders(Collection<Integer> orderIds);
+
+    /**
+     * Units and latest order time per user and product across the lines of the given orders.
+     *
+     * @return Rows of [userId, productId, units, latestOrderTime]
+     */
+    List<Object[]> sumPurchasesByUserForOrders(Collection<Integer> orderIds);
+
+    /**
+     * Units and latest order time per product over a user's completed orders.
+     *
+     * @return Rows of [productId, units, latestOrderTime]
+     */
+    List<Object[]> sumCompletedPurchasesForUser(int userId);
+
+    /**
+     * The products a user has bought the most units of, over completed orders.
+     *
+     * @return Up to limit products, most units first and lower IDs first on ties
+     */
+    List<ProductSummary> findTopPurchasedProducts(int userId, int limit);
+
+    /**
+     * The products a user bought most recently, over completed orders, each listed once.
+     *
+     * @return Up to limit products, latest order first and lower IDs first on ties
+     */
+    List<ProductSummary> findRecentPurchasedProducts(int userId, int limit);
+
+    /**
+     * Stream the lines of all completed orders in chunks, without loading them
+     * into a persistence context. Each chunk is a new list the consumer may keep.
+     *
+     * @param chunkSize Lines per chunk
+     * @param chunkConsumer Receives each chunk on the calling thread
+     * @return The number of lines read
+     */
+    long scrollCompletedLines(int chunkSize, Consumer<List<OrderLine>> chunkConsumer);
+
+    /**
+     * Like {@link #scrollCompletedLines}, over the lines of orders in any status,
+     * ordered by order so each order's lines arrive together.
+     */
+    long scrollAllLines(int chunkSize, Consumer<List<OrderLine>> chunkConsumer);
 }
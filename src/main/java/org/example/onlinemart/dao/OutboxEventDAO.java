@@ -0,0 +1,21 @@
+package org.example.onlinemart.dao;
+
+import org.example.onlinemart.entity.OutboxEvent;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public interface OutboxEventDAO {
+    void save(OutboxEvent event);
+
+    /**
+     * Oldest unpublished events, locked so that relays on other instances
+     * wait instead of publishing the same events.
+     */
+    List<OutboxEvent> findUnpublishedForUpdate(int limit);
+
+    int markPublished(Collection<Long> eventIds, Date publishedAt);
+
+    int deletePublishedBefore(Date cutoff);
+}
@@ -7,7 +7,29 @@ import java.util.List;
 public interface ProductDAO {
     void save(Product product);
     void update(Product product);
+
+    /**
+     * Take quantity off a product's stored stock, unless a newer fencing token has
+     * written it or too little is left. The product is refreshed either way.
+     *
+     * @return Whether the stock was taken
+     */
+    boolean updateStockFenced(Product product, int quantity, long fencingToken);
+
+    long findMaxStockFence();
     Product findById(int productId);
+
+    /**
+     * Load several products in one query.
+     *
+     * @return The products in the order of the IDs, with null for unknown IDs
+     */
+    List<Product> findByIds(List<Integer> productIds);
     List<Product> findAll();
     List<Product> findAllInStock();
+
+    /**
+     * IDs of the products with stock.
+     */
+    List<Integer> findInStockIds();
 }
@@ -0,0 +1,42 @@
+package org.example.onlinemart.dao;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductSalesStatsDAO {
+
+    /**
+     * Adds the lines of newly completed orders to their products' totals.
+     * Must run in the transaction that completes the orders.
+     *
+     * @return The number of stats rows inserted or changed
+     */
+    int applyCompletedOrders(Collection<Integer> orderIds);
+
+    /**
+     * Recomputes every product's totals from the completed orders.
+     *
+     * @return The number of products with sales
+     */
+    int rebuild();
+
+    /**
+     * @return Rows of [productId, productName, totalProfit, unitsSold], most profitable first
+     */
+    List<Object[]> findTopByProfit(int limit);
+
+    /**
+     * @return Rows of [productId, productName, unitsSold], best sellers first
+     */
+    List<Object[]> findTopByUnitsSold(int limit);
+
+    /**
+     * The next page of best sellers after a (unitsSold, productId) position, in
+     * the same order as {@link #findTopByUnitsSold}.
+     *
+     * @return Rows of [productId, productName, unitsSold]
+     */
+    List<Object[]> findTopByUnitsSoldAfter(int limit, long afterUnitsSold, int afterProductId);
+
+    long sumUnitsSold();
+}
@@ -0,0 +1,37 @@
+package org.example.onlinemart.dao;
+
+import org.example.onlinemart.dto.RevenueMetrics;
+import org.example.onlinemart.entity.SalesRollup;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public interface SalesRollupDAO {
+
+    /**
+     * Adds newly completed orders to the hour and day buckets of their completion
+     * time. Must run in the transaction that completes the orders.
+     *
+     * @param completedAt The orders' completion time, as stored in {@code completed_at}
+     */
+    void applyCompletedOrders(Collection<Integer> orderIds, Date completedAt);
+
+    /**
+     * Sums the buckets of one granularity that start in [from, to).
+     */
+    RevenueMetrics sumBuckets(String granularity, Date from, Date to);
+
+    /**
+     * All buckets of one granularity, oldest first.
+     */
+    List<SalesRollup> findByGranularity(String granularity);
+
+    /**
+     * Recomputes all buckets from the completed orders, by their
+     * {@code completed_at}.
+     *
+     * @return The number of buckets written
+     */
+    int rebuild();
+}
@@ -1,5 +1,6 @@
 package org.example.onlinemart.dao;
 
+import org.example.onlinemart.dto.ProductSummary;
 import org.example.onlinemart.entity.Watchlist;
 
 import java.util.List;
@@ -11,4 +12,21 @@ public interface WatchlistDAO {
     Watchlist findByUserAndProduct(int userId, int productId);
     List<Watchlist> findByUserId(int userId);
     List<Watchlist> findAll();
+
+    /**
+     * IDs of the products on a user's watchlist.
+     */
+    List<Integer> findProductIdsByUserId(int userId);
+
+    /**
+     * IDs of the users watching a product.
+     */
+    List<Integer> findUserIdsByProductId(int productId);
+
+    /**
+     * The in-stock products on a user's watchlist, in one joined query.
+     *
+     * @return The products, ordered by product ID
+     */
+    List<ProductSummary> findInStockProductsByUserId(int userId);
 }
@@ -3,16 +3,26 @@ package org.example.onlinemart.dao.impl;
 import org.example.onlinemart.cache.CacheKeys;
 import org.example.onlinemart.cache.CacheService;
 import org.example.onlinemart.dao.OrderDAO;
+import org.example.onlinemart.dto.OrderExportRow;
+import org.example.onlinemart.dto.RevenueMetrics;
 import org.example.onlinemart.entity.Order;
+import org.hibernate.LockMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.query.Query;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import redis.clients.jedis.Jedis;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 @Transactional
@@ -52,11 +62,92 @@ public class OrderDAOImpl implements OrderDAO {
 
     }
 
+    @Override
+    public boolean cancelAndRestoreStock(Order order) {
+        Session session = sessionFactory.getCurrentSession();
+
+        // Lines are summed per product first: a multi-table UPDATE changes each row at most once
+        int updated = session.createNativeQuery(
+                        "UPDATE orders o " +
+                                "JOIN (SELECT oi.product_id, SUM(oi.quantity) AS qty " +
+                                "      FROM order_items oi WHERE oi.order_id = :oid " +
+                                "      GROUP BY oi.product_id) r " +
+                                "JOIN products p ON p.product_id = r.product_id " +
+                                "SET p.stock = p.stock + r.qty, p.version = p.version + 1, p.updated_at = NOW(), " +
+                                "    o.order_status = 'Canceled', o.updated_at = NOW() " +
+                                "WHERE o.order_id = :oid AND o.order_status = 'Processing'")
+                .setParameter("oid", order.getOrderId())
+                .executeUpdate();
+
+        if (updated == 0) {
+            // An order without lines has nothing to join, so flip its status on its own
+            updated = session.createNativeQuery(
+                            "UPDATE orders o SET o.order_status = 'Canceled', o.updated_at = NOW() " +
+                                    "WHERE o.order_id = :oid AND o.order_status = 'Processing' " +
+                                    "AND NOT EXISTS (SELECT 1 FROM order_items oi WHERE oi.order_id = o.order_id)")
+                    .setParameter("oid", order.getOrderId())
+                    .executeUpdate();
+        }
+
+        if (updated == 0) {
+            return false;
+        }
+
+        // The native update bypasses the session, so reload the managed copy
+        session.refresh(order);
+
+        try {
+            invalidateOrderCaches(order);
+        } catch (Exception e) {
+            logger.warn("Failed to invalidate order caches for orderID {}", order.getOrderId(), e);
+        }
+        return true;
+    }
+
     @Override
     public Order findById(int orderId) {
         return sessionFactory.getCurrentSession().get(Order.class, orderId);
     }
 
+    @Override
+    public List<Order> findByIdsForUpdate(Collection<Integer> orderIds) {
+        Session session = sessionFactory.getCurrentSession();
+        Query<Order> query = session.createQuery(
+                "SELECT o FROM Order o JOIN FETCH o.user WHERE o.orderId IN (:ids) ORDER BY o.orderId",
+                Order.class);
+        query.setParameterList("ids", orderIds);
+        // Row locks in ascending ID order, so concurrent batches cannot deadlock
+        query.setLockMode("o", LockMode.PESSIMISTIC_WRITE);
+        return query.list();
+    }
+
+    @Override
+    public int updateStatus(Collection<Integer> orderIds, Order.OrderStatus from, Order.OrderStatus to,
+                            Date changedAt) {
+        String completedAt = to == Order.OrderStatus.Completed ? ", o.completedAt = :now" : "";
+        return sessionFactory.getCurrentSession()
+                .createQuery("UPDATE Order o SET o.orderStatus = :to, o.updatedAt = :now" + completedAt + " " +
+                        "WHERE o.orderId IN (:ids) AND o.orderStatus = :from")
+                .setParameter("to", to)
+                .setParameter("from", from)
+                .setParameter("now", changedAt)
+                .setParameterList("ids", orderIds)
+                .executeUpdate();
+    }
+
+    @Override
+    public int restoreStock(Collection<Integer> orderIds) {
+        return sessionFactory.getCurrentSession().createNativeQuery(
+                        "UPDATE products p " +
+                                "JOIN (SELECT oi.product_id, SUM(oi.quantity) AS qty " +
+                                "      FROM order_items oi JOIN orders o ON o.order_id = oi.order_id " +
+                                "      WHERE oi.order_id IN (:ids) AND o.order_status = 'Processing' " +
+                                "      GROUP BY oi.product_id) r ON p.product_id = r.product_id " +
+                                "SET p.stock = p.stock + r.qty, p.version = p.version + 1, p.updated_at = NOW()")
+                .setParameterList("ids", orderIds)
+                .executeUpdate();
+    }
+
     @Override
     public List<Order> findAll() {
         Session session = sessionFactory.getCurrentSession();
@@ -90,6 +181,74 @@ public class OrderDAOImpl implements OrderDAO {
         return query.list();
     }
 
+    @Override
+    public RevenueMetrics sumTotals(Order.OrderStatus status) {
+        return sessionFactory.getCurrentSession().createQuery(
+                        "SELECT new org.example.onlinemart.dto.RevenueMetrics(" +
+                                "COUNT(o), SUM(o.itemCount), SUM(o.totalRevenue), SUM(o.totalCost)) " +
+                                "FROM Order o WHERE o.orderStatus = :status",
+                        RevenueMetrics.class)
+                .setParameter("status", status)
+                .uniqueResult();
+    }
+
+    @Override
+    public int backfillTotals() {
+        return sessionFactory.getCurrentSession().createNativeQuery(
+                        "UPDATE orders o " +
+                                "JOIN (SELECT oi.order_id, SUM(oi.quantity) AS qty, " +
+                                "             SUM(oi.retailPriceSnapshot * oi.quantity) AS revenue, " +
+                                "             SUM(oi.wholesalePriceSnapshot * oi.quantity) AS cost " +
+                                "      FROM order_items oi GROUP BY oi.order_id) t ON t.order_id = o.order_id " +
+                                "SET o.item_count = t.qty, o.total_revenue = t.revenue, o.total_cost = t.cost " +
+                                "WHERE o.item_count = 0")
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long scrollOrders(Date from, Date to, Order.OrderStatus status, Consumer<OrderExportRow> rowConsumer) {
+        StringBuilder hql = new StringBuilder("SELECT new org.example.onlinemart.dto.OrderExportRow(" +
+                "o.orderId, u.userId, u.username, o.orderStatus, o.orderTime, o.updatedAt, " +
+                "o.itemCount, o.totalRevenue, o.totalCost) " +
+                "FROM Order o JOIN o.user u WHERE 1 = 1");
+        if (from != null) {
+            hql.append(" AND o.orderTime >= :from");
+        }
+        if (to != null) {
+            hql.append(" AND o.orderTime < :to");
+        }
+        if (status != null) {
+            hql.append(" AND o.orderStatus = :status");
+        }
+        hql.append(" ORDER BY o.orderId");
+
+        long rows = 0;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Query<OrderExportRow> query = session.createQuery(hql.toString(), OrderExportRow.class);
+            if (from != null) {
+                query.setParameter("from", from);
+            }
+            if (to != null) {
+                query.setParameter("to", to);
+            }
+            if (status != null) {
+                query.setParameter("status", status);
+            }
+            query.setReadOnly(true);
+            // MySQL Connector/J only streams rows instead of buffering the whole result with this fetch size
+            query.setFetchSize(Integer.MIN_VALUE);
+
+            try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                while (results.next()) {
+                    rowConsumer.accept((OrderExportRow) results.get(0));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
     /**
      * Helper method to invalidate all caches related to an order
      *
@@ -106,10 +265,6 @@ public class OrderDAOImpl implements OrderDAO {
         if (order.getUser() != null) {
             int userId = order.getUser().getUserId();
             cacheService.delete(CacheKeys.Orders.userOrders(userId));
-
-            // Also invalidate user activity caches that depend on orders
-            cacheService.delete(CacheKeys.UserActivity.frequentPurchases(userId, 3));
-            cacheService.delete(CacheKeys.UserActivity.recentPurchases(userId, 3));
         }
 
         // Invalidate the first few pages of paginated results
@@ -124,7 +279,6 @@ public class OrderDAOImpl implements OrderDAO {
         if (order.getOrderStatus() == Order.OrderStatus.Completed) {
             cacheService.delete(CacheKeys.AdminSummary.MOST_PROFITABLE);
             cacheService.delete(CacheKeys.AdminSummary.TOTAL_SOLD);
-            cacheService.delete(CacheKeys.AdminSummary.topPopular(3));
         }
 
         logger.debug("Invalidated caches for order ID: {}", order.getOrderId());
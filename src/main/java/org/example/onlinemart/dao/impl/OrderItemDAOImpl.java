@@ -1,22 +1,44 @@
 package org.example.onlinemart.dao.impl;
 
 import org.example.onlinemart.dao.OrderItemDAO;
+import org.example.onlinemart.dto.OrderLine;
+import org.example.onlinemart.dto.ProductSummary;
 import org.example.onlinemart.entity.OrderItem;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.query.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Repository
 @Transactional
 public class OrderItemDAOImpl implements OrderItemDAO {
 
+    private static final String SALES_BY_PRODUCT = "SELECT oi.product.productId, COUNT(DISTINCT o.orderId), " +
+            "SUM(oi.quantity), SUM(oi.retailPriceSnapshot * oi.quantity), " +
+            "SUM(oi.wholesalePriceSnapshot * oi.quantity) " +
+            "FROM OrderItem oi JOIN oi.order o ";
+
+    private static final String USER_PURCHASED_PRODUCTS = "SELECT new org.example.onlinemart.dto.ProductSummary(" +
+            "p.productId, p.productName, p.description, p.retailPrice) FROM OrderItem oi " +
+            "JOIN oi.product p JOIN oi.order o " +
+            "WHERE o.user.userId = :userId AND o.orderStatus = 'Completed' " +
+            "GROUP BY p.productId ";
+
     private final SessionFactory sessionFactory;
 
     @PersistenceContext
@@ -50,17 +72,129 @@ public class OrderItemDAOImpl implements OrderItemDAO {
     }
 
     @Override
-    public List<Object[]> findTop3Popular() {
-        String hql = "SELECT p AS product, SUM(oi.quantity) AS totalQty " +
+    public Map<Integer, Long> sumQuantityByProductForOrders(Collection<Integer> orderIds) {
+        Map<Integer, Long> units = new LinkedHashMap<>();
+        if (orderIds.isEmpty()) {
+            return units;
+        }
+
+        List<Object[]> rows = sessionFactory.getCurrentSession().createQuery(
+                        "SELECT oi.product.productId, SUM(oi.quantity) " +
+                                "FROM OrderItem oi WHERE oi.order.orderId IN (:ids) " +
+                                "GROUP BY oi.product.productId", Object[].class)
+                .setParameterList("ids", orderIds)
+                .list();
+        for (Object[] row : rows) {
+            units.put((Integer) row[0], (Long) row[1]);
+        }
+        return units;
+    }
+
+    @Override
+    public List<Object[]> sumSalesByProduct() {
+        return sessionFactory.getCurrentSession().createQuery(
+                        SALES_BY_PRODUCT + "WHERE o.orderStatus = 'Completed' GROUP BY oi.product.productId",
+                        Object[].class)
+                .list();
+    }
+
+    @Override
+    public List<Object[]> sumSalesByProductForOrders(Collection<Integer> orderIds) {
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return sessionFactory.getCurrentSession().createQuery(
+                        SALES_BY_PRODUCT + "WHERE o.orderId IN (:ids) GROUP BY oi.product.productId",
+                        Object[].class)
+                .setParameterList("ids", orderIds)
+                .list();
+    }
+
+    @Override
+    public List<Object[]> sumPurchasesByUserForOrders(Collection<Integer> orderIds) {
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return sessionFactory.getCurrentSession().createQuery(
+                        "SELECT o.user.userId, oi.product.productId, SUM(oi.quantity), MAX(o.orderTime) " +
+                                "FROM OrderItem oi JOIN oi.order o WHERE o.orderId IN (:ids) " +
+                                "GROUP BY o.user.userId, oi.product.productId", Object[].class)
+                .setParameterList("ids", orderIds)
+                .list();
+    }
+
+    @Override
+    public List<Object[]> sumCompletedPurchasesForUser(int userId) {
+        return sessionFactory.getCurrentSession().createQuery(
+                        "SELECT oi.product.productId, SUM(oi.quantity), MAX(o.orderTime) " +
+                                "FROM OrderItem oi JOIN oi.order o " +
+                                "WHERE o.user.userId = :userId AND o.orderStatus = 'Completed' " +
+                                "GROUP BY oi.product.productId", Object[].class)
+                .setParameter("userId", userId)
+                .list();
+    }
+
+    @Override
+    public List<ProductSummary> findTopPurchasedProducts(int userId, int limit) {
+        return sessionFactory.getCurrentSession().createQuery(
+                        USER_PURCHASED_PRODUCTS + "ORDER BY SUM(oi.quantity) DESC, p.productId", ProductSummary.class)
+                .setParameter("userId", userId)
+                .setMaxResults(limit)
+                .list();
+    }
+
+    @Override
+    public List<ProductSummary> findRecentPurchasedProducts(int userId, int limit) {
+        return sessionFactory.getCurrentSession().createQuery(
+                        USER_PURCHASED_PRODUCTS + "ORDER BY MAX(o.orderTime) DESC, p.productId", ProductSummary.class)
+                .setParameter("userId", userId)
+                .setMaxResults(limit)
+                .list();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long scrollCompletedLines(int chunkSize, Consumer<List<OrderLine>> chunkConsumer) {
+        return scrollLines("WHERE o.orderStatus = 'Completed'", chunkSize, chunkConsumer);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long scrollAllLines(int chunkSize, Consumer<List<OrderLine>> chunkConsumer) {
+        return scrollLines("ORDER BY o.orderId", chunkSize, chunkConsumer);
+    }
+
+    private long scrollLines(String condition, int chunkSize, Consumer<List<OrderLine>> chunkConsumer) {
+        String hql = "SELECT new org.example.onlinemart.dto.OrderLine(" +
+                "o.orderId, oi.product.productId, oi.quantity, " +
+                "oi.retailPriceSnapshot, oi.wholesalePriceSnapshot, o.orderTime, o.orderStatus) " +
                 "FROM OrderItem oi " +
-                "JOIN oi.product p " +
-                "JOIN oi.order o " +
-                "WHERE o.orderStatus = 'Completed' " +
-                "GROUP BY p.productId " +
-                "ORDER BY SUM(oi.quantity) DESC";
-
-        TypedQuery<Object[]> query = entityManager.createQuery(hql, Object[].class);
-        query.setMaxResults(3);
-        return query.getResultList();
+                "JOIN oi.order o " + condition;
+
+        long lines = 0;
+        // A stateless session keeps no first-level cache, so memory stays flat however many rows pass through
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Query<OrderLine> query = session.createQuery(hql, OrderLine.class);
+            query.setReadOnly(true);
+            // MySQL Connector/J only streams rows instead of buffering the whole result with this fetch size
+            query.setFetchSize(Integer.MIN_VALUE);
+
+            try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                List<OrderLine> chunk = new ArrayList<>(chunkSize);
+                while (results.next()) {
+                    chunk.add((OrderLine) results.get(0));
+                    if (chunk.size() == chunkSize) {
+                        chunkConsumer.accept(chunk);
+                        lines += chunk.size();
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    chunkConsumer.accept(chunk);
+                    lines += chunk.size();
+                }
+            }
+        }
+        return lines;
     }
-}
\ No newline at end of file
+}
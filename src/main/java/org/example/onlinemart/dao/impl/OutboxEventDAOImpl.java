@@ -0,0 +1,55 @@
+package org.example.onlinemart.dao.impl;
+
+import org.example.onlinemart.dao.OutboxEventDAO;
+import org.example.onlinemart.entity.OutboxEvent;
+import org.hibernate.LockMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+@Transactional
+public class OutboxEventDAOImpl implements OutboxEventDAO {
+    private final SessionFactory sessionFactory;
+
+    public OutboxEventDAOImpl(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public void save(OutboxEvent event) {
+        sessionFactory.getCurrentSession().save(event);
+    }
+
+    @Override
+    public List<OutboxEvent> findUnpublishedForUpdate(int limit) {
+        Query<OutboxEvent> query = sessionFactory.getCurrentSession().createQuery(
+                "FROM OutboxEvent e WHERE e.publishedAt IS NULL ORDER BY e.eventId",
+                OutboxEvent.class);
+        query.setMaxResults(limit);
+        query.setLockMode("e", LockMode.PESSIMISTIC_WRITE);
+        return query.list();
+    }
+
+    @Override
+    public int markPublished(Collection<Long> eventIds, Date publishedAt) {
+        return sessionFactory.getCurrentSession()
+                .createQuery("UPDATE OutboxEvent e SET e.publishedAt = :now WHERE e.eventId IN (:ids)")
+                .setParameter("now", publishedAt)
+                .setParameterList("ids", eventIds)
+                .executeUpdate();
+    }
+
+    @Override
+    public int deletePublishedBefore(Date cutoff) {
+        return sessionFactory.getCurrentSession()
+                .createQuery("DELETE FROM OutboxEvent e WHERE e.publishedAt IS NOT NULL AND e.publishedAt < :cutoff")
+                .setParameter("cutoff", cutoff)
+                .executeUpdate();
+    }
+}
@@ -7,6 +7,8 @@ import org.hibernate.SessionFactory;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 @Repository
@@ -28,11 +30,48 @@ public class ProductDAOImpl implements ProductDAO {
         sessionFactory.getCurrentSession().update(product);
     }
 
+    @Override
+    public boolean updateStockFenced(Product product, int quantity, long fencingToken) {
+        Session session = sessionFactory.getCurrentSession();
+        // Relative to the stored stock, so writers that do not take the inventory lock are never overwritten
+        int updated = session.createQuery(
+                        "UPDATE VERSIONED Product p " +
+                                "SET p.stock = p.stock - :qty, p.stockFence = :fence, p.updatedAt = :now " +
+                                "WHERE p.productId = :pid AND p.stockFence <= :fence AND p.stock >= :qty")
+                .setParameter("qty", quantity)
+                .setParameter("fence", fencingToken)
+                .setParameter("now", new Date())
+                .setParameter("pid", product.getProductId())
+                .executeUpdate();
+
+        // The bulk update bypasses the session, so reload the managed copy either way
+        session.refresh(product);
+        return updated > 0;
+    }
+
+    @Override
+    public long findMaxStockFence() {
+        Long max = sessionFactory.getCurrentSession()
+                .createQuery("SELECT MAX(p.stockFence) FROM Product p", Long.class)
+                .uniqueResult();
+        return (max != null) ? max : 0L;
+    }
+
     @Override
     public Product findById(int productId) {
         return sessionFactory.getCurrentSession().get(Product.class, productId);
     }
 
+    @Override
+    public List<Product> findByIds(List<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return sessionFactory.getCurrentSession()
+                .byMultipleIds(Product.class)
+                .multiLoad(productIds);
+    }
+
     @Override
     public List<Product> findAll() {
         Session session = sessionFactory.getCurrentSession();
@@ -45,4 +84,11 @@ public class ProductDAOImpl implements ProductDAO {
         String hql = "FROM Product p WHERE p.stock > 0";
         return session.createQuery(hql, Product.class).list();
     }
+
+    @Override
+    public List<Integer> findInStockIds() {
+        return sessionFactory.getCurrentSession()
+                .createQuery("SELECT p.productId FROM Product p WHERE p.stock > 0", Integer.class)
+                .list();
+    }
 }
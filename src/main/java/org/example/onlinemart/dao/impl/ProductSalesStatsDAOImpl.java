@@ -0,0 +1,102 @@
+package org.example.onlinemart.dao.impl;
+
+import org.example.onlinemart.dao.ProductSalesStatsDAO;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@Transactional
+public class ProductSalesStatsDAOImpl implements ProductSalesStatsDAO {
+    private final SessionFactory sessionFactory;
+
+    public ProductSalesStatsDAOImpl(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public int applyCompletedOrders(Collection<Integer> orderIds) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        return sessionFactory.getCurrentSession().createNativeQuery(
+                        "INSERT INTO product_sales_stats (product_id, units_sold, total_profit, updated_at) " +
+                                "SELECT oi.product_id, SUM(oi.quantity), " +
+                                "       SUM((oi.retailPriceSnapshot - oi.wholesalePriceSnapshot) * oi.quantity), NOW() " +
+                                "FROM order_items oi WHERE oi.order_id IN (:ids) " +
+                                "GROUP BY oi.product_id " +
+                                "ON DUPLICATE KEY UPDATE " +
+                                "units_sold = units_sold + VALUES(units_sold), " +
+                                "total_profit = total_profit + VALUES(total_profit), " +
+                                "updated_at = VALUES(updated_at)")
+                .setParameterList("ids", orderIds)
+                .executeUpdate();
+    }
+
+    @Override
+    public int rebuild() {
+        Session session = sessionFactory.getCurrentSession();
+        session.createNativeQuery("DELETE FROM product_sales_stats").executeUpdate();
+        return session.createNativeQuery(
+                        "INSERT INTO product_sales_stats (product_id, units_sold, total_profit, updated_at) " +
+                                "SELECT oi.product_id, SUM(oi.quantity), " +
+                                "       SUM((oi.retailPriceSnapshot - oi.wholesalePriceSnapshot) * oi.quantity), NOW() " +
+                                "FROM order_items oi JOIN orders o ON o.order_id = oi.order_id " +
+                                "WHERE o.order_status = 'Completed' " +
+                                "GROUP BY oi.product_id")
+                .executeUpdate();
+    }
+
+    @Override
+    public List<Object[]> findTopByProfit(int limit) {
+        Query<Object[]> query = sessionFactory.getCurrentSession().createQuery(
+                "SELECT s.productId, p.productName, s.totalProfit, s.unitsSold " +
+                        "FROM ProductSalesStats s, Product p " +
+                        "WHERE p.productId = s.productId " +
+                        "ORDER BY s.totalProfit DESC, s.productId",
+                Object[].class);
+        query.setMaxResults(limit);
+        return query.list();
+    }
+
+    @Override
+    public List<Object[]> findTopByUnitsSold(int limit) {
+        Query<Object[]> query = sessionFactory.getCurrentSession().createQuery(
+                "SELECT s.productId, p.productName, s.unitsSold " +
+                        "FROM ProductSalesStats s, Product p " +
+                        "WHERE p.productId = s.productId " +
+                        "ORDER BY s.unitsSold DESC, s.productId",
+                Object[].class);
+        query.setMaxResults(limit);
+        return query.list();
+    }
+
+    @Override
+    public List<Object[]> findTopByUnitsSoldAfter(int limit, long afterUnitsSold, int afterProductId) {
+        // Keyset condition on the sort key, so deep pages skip straight to their position
+        Query<Object[]> query = sessionFactory.getCurrentSession().createQuery(
+                "SELECT s.productId, p.productName, s.unitsSold " +
+                        "FROM ProductSalesStats s, Product p " +
+                        "WHERE p.productId = s.productId " +
+                        "AND (s.unitsSold < :units OR (s.unitsSold = :units AND s.productId > :productId)) " +
+                        "ORDER BY s.unitsSold DESC, s.productId",
+                Object[].class);
+        query.setParameter("units", afterUnitsSold);
+        query.setParameter("productId", afterProductId);
+        query.setMaxResults(limit);
+        return query.list();
+    }
+
+    @Override
+    public long sumUnitsSold() {
+        Long total = sessionFactory.getCurrentSession()
+                .createQuery("SELECT SUM(s.unitsSold) FROM ProductSalesStats s", Long.class)
+                .uniqueResult();
+        return (total != null) ? total : 0L;
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.onlinemart.dao.impl;
+
+import org.example.onlinemart.dao.SalesRollupDAO;
+import org.example.onlinemart.dto.RevenueMetrics;
+import org.example.onlinemart.entity.SalesRollup;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.TemporalType;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+@Transactional
+public class SalesRollupDAOImpl implements SalesRollupDAO {
+
+    private static final String HOUR_BUCKET = "DATE_FORMAT(%s, '%%Y-%%m-%%d %%H:00:00')";
+    private static final String DAY_BUCKET = "DATE(%s)";
+
+    private final SessionFactory sessionFactory;
+
+    public SalesRollupDAOImpl(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public void applyCompletedOrders(Collection<Integer> orderIds, Date completedAt) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        // Same bucket expressions as the rebuild, over the value written to completed_at
+        Session session = sessionFactory.getCurrentSession();
+        applyToBucket(session, SalesRollup.HOUR, String.format(HOUR_BUCKET, ":completedAt"), orderIds, completedAt);
+        applyToBucket(session, SalesRollup.DAY, String.format(DAY_BUCKET, ":completedAt"), orderIds, completedAt);
+    }
+
+    private void applyToBucket(Session session, String granularity, String bucketExpression,
+                               Collection<Integer> orderIds, Date completedAt) {
+        session.createNativeQuery(
+                        "INSERT INTO sales_rollups (granularity, bucket_start, order_count, units, revenue, cost) " +
+                                "SELECT :granularity, " + bucketExpression + ", COUNT(*), SUM(o.item_count), " +
+                                "       SUM(o.total_revenue), SUM(o.total_cost) " +
+                                "FROM orders o WHERE o.order_id IN (:ids) " +
+                                "ON DUPLICATE KEY UPDATE " +
+                                "order_count = order_count + VALUES(order_count), " +
+                                "units = units + VALUES(units), " +
+                                "revenue = revenue + VALUES(revenue), " +
+                                "cost = cost + VALUES(cost)")
+                .setParameter("granularity", granularity)
+                .setParameter("completedAt", completedAt, TemporalType.TIMESTAMP)
+                .setParameterList("ids", orderIds)
+                .executeUpdate();
+    }
+
+    @Override
+    public RevenueMetrics sumBuckets(String granularity, Date from, Date to) {
+        return sessionFactory.getCurrentSession().createQuery(
+                        "SELECT new org.example.onlinemart.dto.RevenueMetrics(" +
+                                "SUM(r.orderCount), SUM(r.units), SUM(r.revenue), SUM(r.cost)) " +
+                                "FROM SalesRollup r " +
+                                "WHERE r.key.granularity = :granularity " +
+                                "AND r.key.bucketStart >= :from AND r.key.bucketStart < :to",
+                        RevenueMetrics.class)
+                .setParameter("granularity", granularity)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .uniqueResult();
+    }
+
+    @Override
+    public List<SalesRollup> findByGranularity(String granularity) {
+        return sessionFactory.getCurrentSession().createQuery(
+                        "FROM SalesRollup r WHERE r.key.granularity = :granularity ORDER BY r.key.bucketStart",
+                        SalesRollup.class)
+                .setParameter("granularity", granularity)
+                .list();
+    }
+
+    @Override
+    public int rebuild() {
+        Session session = sessionFactory.getCurrentSession();
+        session.createNativeQuery("DELETE FROM sales_rollups").executeUpdate();
+        return rebuildBuckets(session, SalesRollup.HOUR, String.format(HOUR_BUCKET, "o.completed_at"))
+                + rebuildBuckets(session, SalesRollup.DAY, String.format(DAY_BUCKET, "o.completed_at"));
+    }
+
+    private int rebuildBuckets(Session session, String granularity, String bucketExpression) {
+        return session.createNativeQuery(
+                        "INSERT INTO sales_rollups (granularity, bucket_start, order_count, units, revenue, cost) " +
+                                "SELECT :granularity, " + bucketExpression + ", COUNT(*), SUM(o.item_count), " +
+                                "       SUM(o.total_revenue), SUM(o.total_cost) " +
+                                "FROM orders o WHERE o.order_status = 'Completed' " +
+                                "GROUP BY " + bucketExpression)
+                .setParameter("granularity", granularity)
+                .executeUpdate();
+    }
+}
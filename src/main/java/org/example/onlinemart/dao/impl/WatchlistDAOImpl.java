@@ -1,11 +1,9 @@
 package org.example.onlinemart.dao.impl;
 
 import org.example.onlinemart.dao.WatchlistDAO;
+import org.example.onlinemart.dto.ProductSummary;
 import org.example.onlinemart.entity.Watchlist;
-import org.hibernate.Criteria;
-import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.hibernate.criterion.Restrictions;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -37,22 +35,20 @@ public class WatchlistDAOImpl implements WatchlistDAO {
 
     @Override
     public Watchlist findByUserAndProduct(int userId, int productId) {
-        Session session = sessionFactory.getCurrentSession();
-        Criteria criteria = session.createCriteria(Watchlist.class, "w");
-        criteria.createAlias("w.user", "u");
-        criteria.createAlias("w.product", "p");
-        criteria.add(Restrictions.eq("u.userId", userId));
-        criteria.add(Restrictions.eq("p.productId", productId));
-        return (Watchlist) criteria.uniqueResult();
+        return sessionFactory.getCurrentSession()
+                .createQuery("FROM Watchlist w WHERE w.user.userId = :userId AND w.product.productId = :productId",
+                        Watchlist.class)
+                .setParameter("userId", userId)
+                .setParameter("productId", productId)
+                .uniqueResult();
     }
 
     @Override
     public List<Watchlist> findByUserId(int userId) {
-        Session session = sessionFactory.getCurrentSession();
-        Criteria criteria = session.createCriteria(Watchlist.class, "w");
-        criteria.createAlias("w.user", "u");
-        criteria.add(Restrictions.eq("u.userId", userId));
-        return criteria.list();
+        return sessionFactory.getCurrentSession()
+                .createQuery("FROM Watchlist w JOIN FETCH w.product WHERE w.user.userId = :userId", Watchlist.class)
+                .setParameter("userId", userId)
+                .list();
     }
 
     @Override
@@ -61,4 +57,34 @@ public class WatchlistDAOImpl implements WatchlistDAO {
                 .createQuery("FROM Watchlist", Watchlist.class)
                 .list();
     }
+
+    @Override
+    public List<Integer> findProductIdsByUserId(int userId) {
+        return sessionFactory.getCurrentSession()
+                .createQuery("SELECT w.product.productId FROM Watchlist w WHERE w.user.userId = :userId",
+                        Integer.class)
+                .setParameter("userId", userId)
+                .list();
+    }
+
+    @Override
+    public List<Integer> findUserIdsByProductId(int productId) {
+        return sessionFactory.getCurrentSession()
+                .createQuery("SELECT w.user.userId FROM Watchlist w WHERE w.product.productId = :productId",
+                        Integer.class)
+                .setParameter("productId", productId)
+                .list();
+    }
+
+    @Override
+    public List<ProductSummary> findInStockProductsByUserId(int userId) {
+        return sessionFactory.getCurrentSession()
+                .createQuery("SELECT new org.example.onlinemart.dto.ProductSummary(" +
+                        "p.productId, p.productName, p.description, p.retailPrice) " +
+                        "FROM Watchlist w JOIN w.product p " +
+                        "WHERE w.user.userId = :userId AND p.stock > 0 " +
+                        "ORDER BY p.productId", ProductSummary.class)
+                .setParameter("userId", userId)
+                .list();
+    }
 }
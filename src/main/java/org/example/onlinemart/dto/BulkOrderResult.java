@@ -0,0 +1,50 @@
+package org.example.onlinemart.dto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk order transition: the orders that moved to the target
+ * status and, for the rest, why they were skipped.
+ */
+public class BulkOrderResult {
+    private String targetStatus;
+    private int requested;
+    private List<Integer> transitioned = new ArrayList<>();
+    private Map<Integer, String> skipped = new LinkedHashMap<>();
+
+    public BulkOrderResult() {
+    }
+
+    public BulkOrderResult(String targetStatus, int requested) {
+        this.targetStatus = targetStatus;
+        this.requested = requested;
+    }
+
+    public String getTargetStatus() {
+        return targetStatus;
+    }
+    public void setTargetStatus(String targetStatus) {
+        this.targetStatus = targetStatus;
+    }
+    public int getRequested() {
+        return requested;
+    }
+    public void setRequested(int requested) {
+        this.requested = requested;
+    }
+    public List<Integer> getTransitioned() {
+        return transitioned;
+    }
+    public void setTransitioned(List<Integer> transitioned) {
+        this.transitioned = transitioned;
+    }
+    public Map<Integer, String> getSkipped() {
+        return skipped;
+    }
+    public void setSkipped(Map<Integer, String> skipped) {
+        this.skipped = skipped;
+    }
+}
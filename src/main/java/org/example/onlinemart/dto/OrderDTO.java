@@ -6,6 +6,7 @@ import java.util.Date;
 
 public class OrderDTO {
     private int orderId;
+    private int userId;
     private UserDTO user;
     private String orderStatus;
     private Date orderTime;
@@ -20,6 +21,9 @@ public class OrderDTO {
         }
         OrderDTO dto = new OrderDTO();
         dto.setOrderId(order.getOrderId());
+        if (order.getUser() != null) {
+            dto.setUserId(order.getUser().getUserId());
+        }
         dto.setUser(UserDTO.fromEntity(order.getUser()));
         dto.setOrderStatus(order.getOrderStatus().name());
         dto.setOrderTime(order.getOrderTime());
@@ -33,6 +37,12 @@ public class OrderDTO {
     public void setOrderId(int orderId) {
         this.orderId = orderId;
     }
+    public int getUserId() {
+        return userId;
+    }
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
     public UserDTO getUser() {
         return user;
     }
@@ -0,0 +1,93 @@
+package org.example.onlinemart.dto;
+
+import org.example.onlinemart.entity.Order;
+
+import java.util.Date;
+
+/**
+ * One order as written by the order export: its status, times and stored
+ * totals with the ordering user, read without loading the entities.
+ */
+public class OrderExportRow {
+    private int orderId;
+    private int userId;
+    private String username;
+    private String orderStatus;
+    private Date orderTime;
+    private Date updatedAt;
+    private int itemCount;
+    private double totalRevenue;
+    private double totalCost;
+
+    public OrderExportRow() {
+    }
+
+    public OrderExportRow(int orderId, int userId, String username, Order.OrderStatus orderStatus,
+                          Date orderTime, Date updatedAt, int itemCount,
+                          double totalRevenue, double totalCost) {
+        this.orderId = orderId;
+        this.userId = userId;
+        this.username = username;
+        this.orderStatus = orderStatus.name();
+        this.orderTime = orderTime;
+        this.updatedAt = updatedAt;
+        this.itemCount = itemCount;
+        this.totalRevenue = totalRevenue;
+        this.totalCost = totalCost;
+    }
+
+    public int getOrderId() {
+        return orderId;
+    }
+    public void setOrderId(int orderId) {
+        this.orderId = orderId;
+    }
+    public int getUserId() {
+        return userId;
+    }
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+    public String getUsername() {
+        return username;
+    }
+    public void setUsername(String username) {
+        this.username = username;
+    }
+    public String getOrderStatus() {
+        return orderStatus;
+    }
+    public void setOrderStatus(String orderStatus) {
+        this.orderStatus = orderStatus;
+    }
+    public Date getOrderTime() {
+        return orderTime;
+    }
+    public void setOrderTime(Date orderTime) {
+        this.orderTime = orderTime;
+    }
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    public int getItemCount() {
+        return itemCount;
+    }
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+    public double getTotalRevenue() {
+        return totalRevenue;
+    }
+    public void setTotalRevenue(double totalRevenue) {
+        this.totalRevenue = totalRevenue;
+    }
+    public double getTotalCost() {
+        return totalCost;
+    }
+    public void setTotalCost(double totalCost) {
+        this.totalCost = totalCost;
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.onlinemart.dto;
+
+import org.example.onlinemart.entity.Order;
+
+import java.util.Date;
+
+/**
+ * One order line as read for reporting: the line's quantity and price snapshots
+ * with the IDs, placement time and status of its order, without any managed entities.
+ */
+public class OrderLine {
+    private final int orderId;
+    private final int productId;
+    private final int quantity;
+    private final double retailPrice;
+    private final double wholesalePrice;
+    private final long orderTime;
+    private final Order.OrderStatus orderStatus;
+
+    public OrderLine(int orderId, int productId, int quantity, double retailPrice, double wholesalePrice,
+                     Date orderTime, Order.OrderStatus orderStatus) {
+        this(orderId, productId, quantity, retailPrice, wholesalePrice, orderTime.getTime(), orderStatus);
+    }
+
+    public OrderLine(int orderId, int productId, int quantity, double retailPrice, double wholesalePrice,
+                     long orderTime, Order.OrderStatus orderStatus) {
+        this.orderId = orderId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.retailPrice = retailPrice;
+        this.wholesalePrice = wholesalePrice;
+        this.orderTime = orderTime;
+        this.orderStatus = orderStatus;
+    }
+
+    public double getRevenue() {
+        return retailPrice * quantity;
+    }
+
+    public double getCost() {
+        return wholesalePrice * quantity;
+    }
+
+    public int getOrderId() {
+        return orderId;
+    }
+    public int getProductId() {
+        return productId;
+    }
+    public int getQuantity() {
+        return quantity;
+    }
+    public double getRetailPrice() {
+        return retailPrice;
+    }
+    public double getWholesalePrice() {
+        return wholesalePrice;
+    }
+    public long getOrderTime() {
+        return orderTime;
+    }
+    public Order.OrderStatus getOrderStatus() {
+        return orderStatus;
+    }
+}
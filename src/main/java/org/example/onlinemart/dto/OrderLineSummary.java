@@ -0,0 +1,106 @@
+package org.example.onlinemart.dto;
+
+import java.util.List;
+
+/**
+ * Totals over the order lines matching a filter, the top products by revenue
+ * among them, and how long the scan took.
+ */
+public class OrderLineSummary {
+    private long lineCount;
+    private long units;
+    private double revenue;
+    private double cost;
+    private List<ProductSummary> topProducts;
+    private long scannedLines;
+    private long elapsedMicros;
+
+    public OrderLineSummary(long lineCount, long units, double revenue, double cost,
+                            List<ProductSummary> topProducts, long scannedLines, long elapsedMicros) {
+        this.lineCount = lineCount;
+        this.units = units;
+        this.revenue = revenue;
+        this.cost = cost;
+        this.topProducts = topProducts;
+        this.scannedLines = scannedLines;
+        this.elapsedMicros = elapsedMicros;
+    }
+
+    public double getProfit() {
+        return revenue - cost;
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+    public void setLineCount(long lineCount) {
+        this.lineCount = lineCount;
+    }
+    public long getUnits() {
+        return units;
+    }
+    public void setUnits(long units) {
+        this.units = units;
+    }
+    public double getRevenue() {
+        return revenue;
+    }
+    public void setRevenue(double revenue) {
+        this.revenue = revenue;
+    }
+    public double getCost() {
+        return cost;
+    }
+    public void setCost(double cost) {
+        this.cost = cost;
+    }
+    public List<ProductSummary> getTopProducts() {
+        return topProducts;
+    }
+    public void setTopProducts(List<ProductSummary> topProducts) {
+        this.topProducts = topProducts;
+    }
+    public long getScannedLines() {
+        return scannedLines;
+    }
+    public void setScannedLines(long scannedLines) {
+        this.scannedLines = scannedLines;
+    }
+    public long getElapsedMicros() {
+        return elapsedMicros;
+    }
+    public void setElapsedMicros(long elapsedMicros) {
+        this.elapsedMicros = elapsedMicros;
+    }
+
+    public static class ProductSummary {
+        private int productId;
+        private long units;
+        private double revenue;
+        private double cost;
+
+        public ProductSummary(int productId, long units, double revenue, double cost) {
+            this.productId = productId;
+            this.units = units;
+            this.revenue = revenue;
+            this.cost = cost;
+        }
+
+        public double getProfit() {
+            return revenue - cost;
+        }
+
+        public int getProductId() {
+            return productId;
+        }
+        public long getUnits() {
+            return units;
+        }
+        public double getRevenue() {
+            return revenue;
+        }
+        public double getCost() {
+            return cost;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.onlinemart.dto;
+
+import java.util.Date;
+
+/**
+ * Receipt for an order submitted asynchronously. The client polls it by
+ * {@code ticketId} until the status is COMPLETED (with the order ID) or FAILED.
+ * UNKNOWN means placement stopped waiting before the order was known to commit;
+ * the ticket moves on to COMPLETED or FAILED if the outcome arrives later, so the
+ * order must not be resubmitted meanwhile.
+ */
+public class OrderTicket {
+    public static final String QUEUED = "QUEUED";
+    public static final String PROCESSING = "PROCESSING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+    public static final String UNKNOWN = "UNKNOWN";
+
+    private String ticketId;
+    private int userId;
+    private String status;
+    private Integer orderId;
+    private String message;
+    private Date submittedAt;
+    private Date completedAt;
+
+    public OrderTicket() {
+    }
+
+    public OrderTicket(String ticketId, int userId) {
+        this.ticketId = ticketId;
+        this.userId = userId;
+        this.status = QUEUED;
+        this.submittedAt = new Date();
+    }
+
+    public String getTicketId() {
+        return ticketId;
+    }
+    public void setTicketId(String ticketId) {
+        this.ticketId = ticketId;
+    }
+    public int getUserId() {
+        return userId;
+    }
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+    public String getStatus() {
+        return status;
+    }
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    public Integer getOrderId() {
+        return orderId;
+    }
+    public void setOrderId(Integer orderId) {
+        this.orderId = orderId;
+    }
+    public String getMessage() {
+        return message;
+    }
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    public Date getSubmittedAt() {
+        return submittedAt;
+    }
+    public void setSubmittedAt(Date submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+    public Date getCompletedAt() {
+        return completedAt;
+    }
+    public void setCompletedAt(Date completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.onlinemart.dto;
+
+import java.util.List;
+
+/**
+ * One page of best-selling products. Pass {@code nextAfterQuantity} and
+ * {@code nextAfterProductId} back to get the following page; both are null on
+ * the last page.
+ */
+public class PopularProductPage {
+    private List<PopularProductResult> products;
+    private Long nextAfterQuantity;
+    private Long nextAfterProductId;
+
+    public PopularProductPage() {
+    }
+
+    public PopularProductPage(List<PopularProductResult> products, int pageSize) {
+        this.products = products;
+        if (products.size() == pageSize && !products.isEmpty()) {
+            PopularProductResult last = products.get(products.size() - 1);
+            this.nextAfterQuantity = last.getTotalQuantity();
+            this.nextAfterProductId = last.getProductId();
+        }
+    }
+
+    public List<PopularProductResult> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<PopularProductResult> products) {
+        this.products = products;
+    }
+
+    public Long getNextAfterQuantity() {
+        return nextAfterQuantity;
+    }
+
+    public void setNextAfterQuantity(Long nextAfterQuantity) {
+        this.nextAfterQuantity = nextAfterQuantity;
+    }
+
+    public Long getNextAfterProductId() {
+        return nextAfterProductId;
+    }
+
+    public void setNextAfterProductId(Long nextAfterProductId) {
+        this.nextAfterProductId = nextAfterProductId;
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.onlinemart.dto;
+
+import org.example.onlinemart.entity.Product;
+
+/**
+ * The customer-facing fields of a product, read straight from a query projection
+ * or copied from a cached product.
+ */
+public class ProductSummary {
+    private int productId;
+    private String productName;
+    private String description;
+    private double retailPrice;
+
+    public ProductSummary() {
+    }
+
+    public ProductSummary(int productId, String productName, String description, double retailPrice) {
+        this.productId = productId;
+        this.productName = productName;
+        this.description = description;
+        this.retailPrice = retailPrice;
+    }
+
+    public static ProductSummary fromEntity(Product product) {
+        return new ProductSummary(product.getProductId(), product.getProductName(),
+                product.getDescription(), product.getRetailPrice());
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public double getRetailPrice() {
+        return retailPrice;
+    }
+
+    public void setRetailPrice(double retailPrice) {
+        this.retailPrice = retailPrice;
+    }
+}
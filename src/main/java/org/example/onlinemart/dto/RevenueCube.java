@@ -0,0 +1,44 @@
+package org.example.onlinemart.dto;
+
+import java.util.Map;
+
+/**
+ * Revenue metrics of completed orders in total, per product and per day of
+ * completion (yyyy-MM-dd).
+ */
+public class RevenueCube {
+    private RevenueMetrics totals;
+    private Map<Integer, RevenueMetrics> byProduct;
+    private Map<String, RevenueMetrics> byDay;
+
+    public RevenueCube(RevenueMetrics totals, Map<Integer, RevenueMetrics> byProduct,
+                       Map<String, RevenueMetrics> byDay) {
+        this.totals = totals;
+        this.byProduct = byProduct;
+        this.byDay = byDay;
+    }
+
+    public RevenueMetrics getTotals() {
+        return totals;
+    }
+
+    public void setTotals(RevenueMetrics totals) {
+        this.totals = totals;
+    }
+
+    public Map<Integer, RevenueMetrics> getByProduct() {
+        return byProduct;
+    }
+
+    public void setByProduct(Map<Integer, RevenueMetrics> byProduct) {
+        this.byProduct = byProduct;
+    }
+
+    public Map<String, RevenueMetrics> getByDay() {
+        return byDay;
+    }
+
+    public void setByDay(Map<String, RevenueMetrics> byDay) {
+        this.byDay = byDay;
+    }
+}
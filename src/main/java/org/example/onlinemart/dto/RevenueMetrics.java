@@ -0,0 +1,51 @@
+package org.example.onlinemart.dto;
+
+/**
+ * Order count, units, revenue and cost over a set of orders, read from the
+ * totals stored on each order.
+ */
+public class RevenueMetrics {
+    private long orderCount;
+    private long itemCount;
+    private double totalRevenue;
+    private double totalCost;
+
+    public RevenueMetrics() {
+    }
+
+    public RevenueMetrics(Long orderCount, Long itemCount, Double totalRevenue, Double totalCost) {
+        this.orderCount = (orderCount != null) ? orderCount : 0L;
+        this.itemCount = (itemCount != null) ? itemCount : 0L;
+        this.totalRevenue = (totalRevenue != null) ? totalRevenue : 0.0;
+        this.totalCost = (totalCost != null) ? totalCost : 0.0;
+    }
+
+    public double getTotalProfit() {
+        return totalRevenue - totalCost;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+    public long getItemCount() {
+        return itemCount;
+    }
+    public void setItemCount(long itemCount) {
+        this.itemCount = itemCount;
+    }
+    public double getTotalRevenue() {
+        return totalRevenue;
+    }
+    public void setTotalRevenue(double totalRevenue) {
+        this.totalRevenue = totalRevenue;
+    }
+    public double getTotalCost() {
+        return totalCost;
+    }
+    public void setTotalCost(double totalCost) {
+        this.totalCost = totalCost;
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.onlinemart.dto;
+
+/**
+ * A product's estimated units in a trending window. The true units lie between
+ * {@code estimatedUnits - maxError} and {@code estimatedUnits}.
+ */
+public class TrendingProductResult {
+    private int productId;
+    private String productName;
+    private long estimatedUnits;
+    private long maxError;
+
+    public TrendingProductResult(int productId, String productName, long estimatedUnits, long maxError) {
+        this.productId = productId;
+        this.productName = productName;
+        this.estimatedUnits = estimatedUnits;
+        this.maxError = maxError;
+    }
+
+    public long getGuaranteedUnits() {
+        return estimatedUnits - maxError;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public long getEstimatedUnits() {
+        return estimatedUnits;
+    }
+
+    public void setEstimatedUnits(long estimatedUnits) {
+        this.estimatedUnits = estimatedUnits;
+    }
+
+    public long getMaxError() {
+        return maxError;
+    }
+
+    public void setMaxError(long maxError) {
+        this.maxError = maxError;
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.onlinemart.dto;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Top products of a trending window with the sketch's error bound: no estimate
+ * exceeds the true units by more than {@code errorBound}, which is the window's
+ * total units divided by the sketch capacity.
+ */
+public class TrendingProducts {
+    private String window;
+    private Date windowStart;
+    private long totalUnits;
+    private int capacity;
+    private long errorBound;
+    private List<TrendingProductResult> products;
+
+    public TrendingProducts(String window, Date windowStart, long totalUnits, int capacity,
+                            long errorBound, List<TrendingProductResult> products) {
+        this.window = window;
+        this.windowStart = windowStart;
+        this.totalUnits = totalUnits;
+        this.capacity = capacity;
+        this.errorBound = errorBound;
+        this.products = products;
+    }
+
+    public String getWindow() {
+        return window;
+    }
+
+    public void setWindow(String window) {
+        this.window = window;
+    }
+
+    public Date getWindowStart() {
+        return windowStart;
+    }
+
+    public void setWindowStart(Date windowStart) {
+        this.windowStart = windowStart;
+    }
+
+    public long getTotalUnits() {
+        return totalUnits;
+    }
+
+    public void setTotalUnits(long totalUnits) {
+        this.totalUnits = totalUnits;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public long getErrorBound() {
+        return errorBound;
+    }
+
+    public void setErrorBound(long errorBound) {
+        this.errorBound = errorBound;
+    }
+
+    public List<TrendingProductResult> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<TrendingProductResult> products) {
+        this.products = products;
+    }
+}
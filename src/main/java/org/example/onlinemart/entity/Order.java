@@ -31,6 +31,21 @@ public class Order {
     @Column(name = "order_time",nullable = false)
     private Date orderTime = new Date();
 
+    // Order totals, computed once from the price snapshots when the order is placed
+    @Column(name = "item_count", nullable = false)
+    private int itemCount;
+
+    @Column(name = "total_revenue", nullable = false, precision = 12, scale = 2)
+    private double totalRevenue;
+
+    @Column(name = "total_cost", nullable = false, precision = 12, scale = 2)
+    private double totalCost;
+
+    // When the order was completed; sales rollups and the revenue cube bucket by it
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "completed_at")
+    private Date completedAt;
+
     @Temporal(TemporalType.TIMESTAMP)
     @Column(name = "updated_at",nullable = false)
     private Date updatedAt = new Date();
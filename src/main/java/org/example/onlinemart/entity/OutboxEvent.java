@@ -0,0 +1,44 @@
+package org.example.onlinemart.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * A notification written in the same transaction as the change it describes,
+ * and published to its Redis channel by the outbox relay after commit.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "outbox_events")
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "event_id")
+    private long eventId;
+
+    @Column(nullable = false, length = 50)
+    private String channel;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "created_at", nullable = false)
+    private Date createdAt = new Date();
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "published_at")
+    private Date publishedAt;
+
+    public OutboxEvent(String channel, String payload) {
+        this.channel = channel;
+        this.payload = payload;
+    }
+}
@@ -34,6 +34,15 @@ public class Product {
     @Column(nullable = false)
     private int stock;
 
+    // Highest inventory-lock fencing token that has written stock; only fenced updates change it
+    @Column(name = "stock_fence", nullable = false, updatable = false)
+    private long stockFence;
+
+    // Optimistic lock: a write based on a stale read fails instead of overwriting newer stock
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     @Temporal(TemporalType.TIMESTAMP)
     @Column(name = "created_at", nullable = false)
     private Date createdAt = new Date();
@@ -0,0 +1,35 @@
+package org.example.onlinemart.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Running sales totals per product over completed orders. Updated in the
+ * transaction that completes an order, so admin summaries read one row per
+ * product instead of the whole order history.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "product_sales_stats")
+public class ProductSalesStats {
+
+    @Id
+    @Column(name = "product_id")
+    private int productId;
+
+    @Column(name = "units_sold", nullable = false)
+    private long unitsSold;
+
+    @Column(name = "total_profit", nullable = false, precision = 14, scale = 2)
+    private double totalProfit;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "updated_at", nullable = false)
+    private Date updatedAt = new Date();
+}
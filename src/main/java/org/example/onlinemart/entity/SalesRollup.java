@@ -0,0 +1,53 @@
+package org.example.onlinemart.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Sales of completed orders summed into an hourly or daily bucket, keyed by
+ * the bucket's start. Date-range reports add up buckets instead of order lines.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "sales_rollups")
+public class SalesRollup {
+
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private double revenue;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private double cost;
+
+    @Data
+    @Embeddable
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        @Column(nullable = false, length = 4)
+        private String granularity;
+
+        @Temporal(TemporalType.TIMESTAMP)
+        @Column(name = "bucket_start", nullable = false)
+        private Date bucketStart;
+    }
+}
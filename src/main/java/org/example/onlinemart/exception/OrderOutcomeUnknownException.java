@@ -0,0 +1,32 @@
+package org.example.onlinemart.exception;
+
+import org.example.onlinemart.entity.Order;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Thrown when an order placement stopped waiting before it knew whether the order
+ * committed, such as on a timeout. The order may still exist, so the caller must
+ * not treat it as failed and place it again.
+ */
+public class OrderOutcomeUnknownException extends RuntimeException {
+    private final transient CompletableFuture<Order> outcome;
+
+    public OrderOutcomeUnknownException(String message, CompletableFuture<Order> outcome) {
+        super(message);
+        this.outcome = outcome;
+    }
+
+    public OrderOutcomeUnknownException(String message, Throwable cause) {
+        super(message, cause);
+        this.outcome = null;
+    }
+
+    /**
+     * The placement still in progress, completed once its outcome is known, or
+     * null when it never will be.
+     */
+    public CompletableFuture<Order> getOutcome() {
+        return outcome;
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.onlinemart.lock;
+
+import java.util.Map;
+import java.util.SortedSet;
+
+/**
+ * Backend for {@link org.example.onlinemart.service.InventoryLockService}.
+ * Selected with the {@code inventory.lock.mode} property: {@code redis} (default)
+ * for multi-node deployments, {@code local} for a single instance.
+ */
+public interface InventoryLockProvider {
+
+    /**
+     * Takes the locks on all the given products or none of them.
+     *
+     * @param productIds The product IDs to lock, in ascending order
+     * @param maxWaitMillis How long to wait for locks held elsewhere; 0 tries once
+     * @param retryIntervalMillis Pause between attempts for backends that poll
+     * @return A lock token if successful, null otherwise
+     */
+    String acquire(SortedSet<Integer> productIds, long maxWaitMillis, long retryIntervalMillis);
+
+    int release(SortedSet<Integer> productIds, String lockToken);
+
+    long getFencingToken(String lockToken);
+
+    boolean extend(int productId, String lockToken, int extensionSeconds);
+
+    boolean forceRelease(int productId);
+
+    boolean isLocked(int productId);
+
+    Map<String, Long> getStats();
+}
@@ -0,0 +1,219 @@
+package org.example.onlinemart.lock;
+
+import org.example.onlinemart.dao.ProductDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-JVM inventory locks for single-instance deployments.
+ * <p>
+ * Products are hashed onto a fixed array of {@link ReentrantLock} stripes. A
+ * multi-product request takes its distinct stripes in ascending index order, so
+ * two requests can never wait on each other in a cycle. Locks never expire, but
+ * fencing tokens are still issued so stock writes look the same in both modes.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.lock.mode", havingValue = "local")
+public class LocalInventoryLockProvider implements InventoryLockProvider {
+    private static final Logger logger = LoggerFactory.getLogger(LocalInventoryLockProvider.class);
+
+    private final ProductDAO productDAO;
+
+    private final ReentrantLock[] stripes;
+    private final AtomicLongArray stripeContention;
+    private final int stripeMask;
+
+    private final Map<String, HeldStripes> heldLocks = new ConcurrentHashMap<>();
+    private final AtomicLong fencingCounter = new AtomicLong();
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    @Autowired
+    public LocalInventoryLockProvider(ProductDAO productDAO,
+                                      @Value("${inventory.lock.local.stripes:256}") int stripeCount) {
+        this.productDAO = productDAO;
+
+        // Round up to a power of two so the stripe index is a mask instead of a modulo
+        int size = Integer.highestOneBit(Math.max(stripeCount - 1, 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.stripeContention = new AtomicLongArray(size);
+        this.stripeMask = size - 1;
+    }
+
+    @PostConstruct
+    public void init() {
+        // Continue from the highest fence already stored, so a restart never issues a stale token
+        fencingCounter.set(productDAO.findMaxStockFence());
+        logger.info("Local inventory locks ready with {} stripes, fencing from {}",
+                stripes.length, fencingCounter.get());
+    }
+
+    @Override
+    public String acquire(SortedSet<Integer> productIds, long maxWaitMillis, long retryIntervalMillis) {
+        if (productIds == null || productIds.isEmpty()) {
+            return null;
+        }
+
+        int[] stripeIndexes = stripesFor(productIds);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        int locked = 0;
+
+        try {
+            for (; locked < stripeIndexes.length; locked++) {
+                int index = stripeIndexes[locked];
+                ReentrantLock lock = stripes[index];
+                if (lock.tryLock()) {
+                    continue;
+                }
+
+                contended.increment();
+                stripeContention.incrementAndGet(index);
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !lock.tryLock(remaining, TimeUnit.NANOSECONDS)) {
+                    timeouts.increment();
+                    unlock(stripeIndexes, locked);
+                    logger.debug("Timed out waiting for local locks on product IDs: {}", productIds);
+                    return null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unlock(stripeIndexes, locked);
+            return null;
+        }
+
+        String lockToken = UUID.randomUUID().toString();
+        heldLocks.put(lockToken, new HeldStripes(stripeIndexes, fencingCounter.incrementAndGet(),
+                Thread.currentThread()));
+        acquisitions.increment();
+        return lockToken;
+    }
+
+    @Override
+    public int release(SortedSet<Integer> productIds, String lockToken) {
+        if (lockToken == null) {
+            return 0;
+        }
+
+        HeldStripes held = heldLocks.get(lockToken);
+        if (held == null) {
+            logger.warn("Failed to release local locks for product IDs: {} - token not held", productIds);
+            return 0;
+        }
+        if (held.owner != Thread.currentThread()) {
+            // ReentrantLock can only be unlocked by the thread that took it
+            logger.error("Local locks for product IDs: {} released from a thread that does not own them",
+                    productIds);
+            return 0;
+        }
+
+        heldLocks.remove(lockToken);
+        unlock(held.stripeIndexes, held.stripeIndexes.length);
+        return productIds.size();
+    }
+
+    @Override
+    public long getFencingToken(String lockToken) {
+        if (lockToken == null) {
+            return 0L;
+        }
+        HeldStripes held = heldLocks.get(lockToken);
+        return (held != null) ? held.fencingToken : 0L;
+    }
+
+    @Override
+    public boolean extend(int productId, String lockToken, int extensionSeconds) {
+        // Local locks are held until released, so there is nothing to extend
+        return lockToken != null && heldLocks.containsKey(lockToken);
+    }
+
+    @Override
+    public boolean forceRelease(int productId) {
+        logger.warn("Local lock for product ID: {} cannot be force-released by another thread", productId);
+        return false;
+    }
+
+    @Override
+    public boolean isLocked(int productId) {
+        // Reports the whole stripe, so a product that shares it with a locked one also shows as locked
+        return stripes[stripeIndex(productId)].isLocked();
+    }
+
+    @Override
+    public Map<String, Long> getStats() {
+        int hottest = 0;
+        for (int i = 1; i < stripes.length; i++) {
+            if (stripeContention.get(i) > stripeContention.get(hottest)) {
+                hottest = i;
+            }
+        }
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("acquisitions", acquisitions.sum());
+        stats.put("contended", contended.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("held", (long) heldLocks.size());
+        stats.put("stripes", (long) stripes.length);
+        stats.put("hottestStripe", (long) hottest);
+        stats.put("hottestStripeContention", stripeContention.get(hottest));
+        return stats;
+    }
+
+    private int[] stripesFor(SortedSet<Integer> productIds) {
+        SortedSet<Integer> indexes = new TreeSet<>();
+        for (Integer productId : productIds) {
+            indexes.add(stripeIndex(productId));
+        }
+        int[] result = new int[indexes.size()];
+        int i = 0;
+        for (Integer index : indexes) {
+            result[i++] = index;
+        }
+        return result;
+    }
+
+    private int stripeIndex(int productId) {
+        // Sequential IDs would otherwise fill neighbouring stripes; mix the bits first
+        int h = productId * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & stripeMask;
+    }
+
+    private void unlock(int[] stripeIndexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[stripeIndexes[i]].unlock();
+        }
+    }
+
+    private static final class HeldStripes {
+        private final int[] stripeIndexes;
+        private final long fencingToken;
+        private final Thread owner;
+
+        private HeldStripes(int[] stripeIndexes, long fencingToken, Thread owner) {
+            this.stripeIndexes = stripeIndexes;
+            this.fencingToken = fencingToken;
+            this.owner = owner;
+        }
+    }
+}
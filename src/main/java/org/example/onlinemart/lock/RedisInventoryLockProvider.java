@@ -0,0 +1,378 @@
+package org.example.onlinemart.lock;
+
+import org.example.onlinemart.cache.CacheService;
+import org.example.onlinemart.dao.ProductDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis-backed inventory locks for multi-node deployments.
+ * <p>
+ * Held locks are renewed by a watchdog while their owning thread is alive, so the
+ * lock timeout only needs to cover a crashed owner. Request threads are pooled and
+ * outlive any one request, so renewal also stops once a lock has been held for
+ * {@code inventory.lock.maxHoldMillis}; a lock leaked by a request that never
+ * released it then expires like a crashed one. Every acquisition also gets a
+ * fencing token from a Redis counter; stock writes carry that token so a holder
+ * whose lock expired cannot overwrite the work of the next holder. The counter is
+ * raised to the highest fence stored in the database at startup and whenever it
+ * has gone missing, so a flushed Redis never issues tokens that writes reject.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.lock.mode", havingValue = "redis", matchIfMissing = true)
+public class RedisInventoryLockProvider implements InventoryLockProvider {
+    private static final Logger logger = LoggerFactory.getLogger(RedisInventoryLockProvider.class);
+
+    private static final String FENCING_COUNTER_KEY = "inventory:lock:fence";
+
+    /**
+     * Takes every lock key in KEYS[2..n] with the token in ARGV[1] and a TTL of ARGV[2]
+     * seconds, or none of them if any key is already held. On success the fencing
+     * counter in KEYS[1] is incremented and its new value returned; 0 means failure
+     * and -1 that the counter is missing and nothing was taken.
+     */
+    private static final String ACQUIRE_ALL_SCRIPT =
+            "if redis.call('exists', KEYS[1]) == 0 then return -1 end " +
+            "for i = 2, #KEYS do " +
+            "  if redis.call('exists', KEYS[i]) == 1 then return 0 end " +
+            "end " +
+            "for i = 2, #KEYS do " +
+            "  redis.call('set', KEYS[i], ARGV[1], 'EX', ARGV[2]) " +
+            "end " +
+            "return redis.call('incr', KEYS[1])";
+
+    /**
+     * Raises the fencing counter in KEYS[1] to ARGV[1] unless it is already higher.
+     */
+    private static final String SEED_FENCE_SCRIPT =
+            "local current = tonumber(redis.call('get', KEYS[1]) or '0') " +
+            "if current < tonumber(ARGV[1]) then redis.call('set', KEYS[1], ARGV[1]) end " +
+            "return redis.call('get', KEYS[1])";
+
+    /**
+     * Deletes every key in KEYS that is still held with the token in ARGV[1].
+     */
+    private static final String RELEASE_ALL_SCRIPT =
+            "local released = 0 " +
+            "for i, key in ipairs(KEYS) do " +
+            "  if redis.call('get', key) == ARGV[1] then " +
+            "    redis.call('del', key) " +
+            "    released = released + 1 " +
+            "  end " +
+            "end " +
+            "return released";
+
+    /**
+     * Resets the TTL of every key in KEYS still held with the token in ARGV[1]
+     * to ARGV[2] seconds and returns how many were renewed.
+     */
+    private static final String RENEW_ALL_SCRIPT =
+            "local renewed = 0 " +
+            "for i, key in ipairs(KEYS) do " +
+            "  if redis.call('get', key) == ARGV[1] then " +
+            "    redis.call('expire', key, ARGV[2]) " +
+            "    renewed = renewed + 1 " +
+            "  end " +
+            "end " +
+            "return renewed";
+
+    private final CacheService cacheService;
+    private final JedisPool jedisPool;
+    private final ProductDAO productDAO;
+
+    private final Map<String, HeldLock> heldLocks = new ConcurrentHashMap<>();
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "inventory-lock-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${inventory.lock.timeout:10}")
+    private int lockTimeoutSeconds;
+
+    @Value("${inventory.lock.watchdogIntervalMillis:0}")
+    private long watchdogIntervalMillis;
+
+    @Value("${inventory.lock.maxHoldMillis:60000}")
+    private long maxHoldMillis = 60000;
+
+    @Autowired
+    public RedisInventoryLockProvider(CacheService cacheService, JedisPool jedisPool, ProductDAO productDAO) {
+        this.cacheService = cacheService;
+        this.jedisPool = jedisPool;
+        this.productDAO = productDAO;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            seedFencingCounter();
+        } catch (JedisException e) {
+            // Acquiring reseeds a missing counter, so Redis being down at startup is not fatal
+            logger.error("Error seeding the inventory fencing counter", e);
+        }
+
+        // Renew well before expiry; a third of the timeout leaves room for two missed rounds
+        long interval = watchdogIntervalMillis > 0
+                ? watchdogIntervalMillis
+                : Math.max(TimeUnit.SECONDS.toMillis(lockTimeoutSeconds) / 3, 100);
+        watchdog.scheduleAtFixedRate(this::renewHeldLocks, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        watchdog.shutdownNow();
+    }
+
+    @Override
+    public String acquire(SortedSet<Integer> productIds, long maxWaitMillis, long retryIntervalMillis) {
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+        while (true) {
+            String lockToken = tryAcquire(productIds);
+            if (lockToken != null || System.currentTimeMillis() >= deadline) {
+                if (lockToken == null) {
+                    timeouts.increment();
+                }
+                return lockToken;
+            }
+            contended.increment();
+            try {
+                Thread.sleep(retryIntervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * One attempt at taking every key in a single Lua script round trip.
+     */
+    private String tryAcquire(SortedSet<Integer> productIds) {
+        List<String> lockKeys = getProductLockKeys(productIds);
+        if (lockKeys.isEmpty()) {
+            return null;
+        }
+
+        String lockToken = UUID.randomUUID().toString();
+        List<String> scriptKeys = new ArrayList<>(lockKeys.size() + 1);
+        scriptKeys.add(FENCING_COUNTER_KEY);
+        scriptKeys.addAll(lockKeys);
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            List<String> args = Arrays.asList(lockToken, String.valueOf(lockTimeoutSeconds));
+            Object result = jedis.eval(ACQUIRE_ALL_SCRIPT, scriptKeys, args);
+            if (result instanceof Long && (Long) result < 0) {
+                // Redis lost the counter; continuing from 0 would issue fences every write rejects
+                seedFencingCounter();
+                result = jedis.eval(ACQUIRE_ALL_SCRIPT, scriptKeys, args);
+            }
+            long fencingToken = (result instanceof Long) ? (Long) result : 0L;
+            if (fencingToken > 0) {
+                heldLocks.put(lockToken, new HeldLock(lockKeys, fencingToken, Thread.currentThread(),
+                        System.currentTimeMillis() + maxHoldMillis));
+                acquisitions.increment();
+                logger.debug("Locks acquired for product IDs: {} with token: {}, fence: {}",
+                        productIds, lockToken, fencingToken);
+                return lockToken;
+            }
+        } catch (JedisException e) {
+            logger.error("Error acquiring locks for product IDs: {}", productIds, e);
+            return null;
+        }
+
+        logger.debug("Failed to acquire locks for product IDs: {}", productIds);
+        return null;
+    }
+
+    /**
+     * Raise the Redis fencing counter to the highest fence already stored.
+     */
+    private void seedFencingCounter() {
+        long storedFence = productDAO.findMaxStockFence();
+        try (Jedis jedis = jedisPool.getResource()) {
+            Object counter = jedis.eval(SEED_FENCE_SCRIPT, Collections.singletonList(FENCING_COUNTER_KEY),
+                    Collections.singletonList(String.valueOf(storedFence)));
+            logger.info("Inventory fencing counter at {}, highest stored fence {}", counter, storedFence);
+        }
+    }
+
+    @Override
+    public long getFencingToken(String lockToken) {
+        if (lockToken == null) {
+            return 0L;
+        }
+        HeldLock held = heldLocks.get(lockToken);
+        return (held != null) ? held.fencingToken : 0L;
+    }
+
+    @Override
+    public int release(SortedSet<Integer> productIds, String lockToken) {
+        if (lockToken == null) {
+            return 0;
+        }
+
+        heldLocks.remove(lockToken);
+
+        List<String> lockKeys = getProductLockKeys(productIds);
+        if (lockKeys.isEmpty()) {
+            return 0;
+        }
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            Object result = jedis.eval(RELEASE_ALL_SCRIPT, lockKeys, Collections.singletonList(lockToken));
+            int released = (result instanceof Long) ? ((Long) result).intValue() : 0;
+            if (released < lockKeys.size()) {
+                logger.warn("Released {} of {} locks for product IDs: {} - some had expired or changed owner",
+                        released, lockKeys.size(), productIds);
+            } else {
+                logger.debug("Locks released for product IDs: {}", productIds);
+            }
+            return released;
+        } catch (JedisException e) {
+            logger.error("Error releasing locks for product IDs: {}", productIds, e);
+            return 0;
+        }
+    }
+
+    @Override
+    public boolean forceRelease(int productId) {
+        String lockKey = getProductLockKey(productId);
+        boolean released = cacheService.delete(lockKey);
+
+        if (released) {
+            logger.warn("Lock force-released for product ID: {}", productId);
+        }
+
+        return released;
+    }
+
+    @Override
+    public boolean isLocked(int productId) {
+        String lockKey = getProductLockKey(productId);
+        return cacheService.exists(lockKey);
+    }
+
+    @Override
+    public boolean extend(int productId, String lockToken, int extensionSeconds) {
+        if (lockToken == null) {
+            return false;
+        }
+
+        String lockKey = getProductLockKey(productId);
+        String currentToken = cacheService.get(lockKey, String.class).orElse(null);
+
+        // Only extend the lock if the token matches
+        if (lockToken.equals(currentToken)) {
+            boolean extended = cacheService.expire(lockKey, extensionSeconds, TimeUnit.SECONDS);
+            logger.debug("Lock extended for product ID: {} by {} seconds", productId, extensionSeconds);
+            return extended;
+        }
+
+        return false;
+    }
+
+    @Override
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("acquisitions", acquisitions.sum());
+        stats.put("contended", contended.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("held", (long) heldLocks.size());
+        return stats;
+    }
+
+    /**
+     * Watchdog round: renews every lock whose owner thread is still running and
+     * whose lease has not run out. Other locks are dropped and left to expire;
+     * locks that were lost in Redis are dropped too, and the fencing token rejects
+     * their late writes.
+     */
+    void renewHeldLocks() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, HeldLock> entry : heldLocks.entrySet()) {
+            String lockToken = entry.getKey();
+            HeldLock held = entry.getValue();
+
+            if (!held.owner.isAlive()) {
+                logger.warn("Owner of inventory lock {} is gone, letting it expire", lockToken);
+                heldLocks.remove(lockToken);
+                continue;
+            }
+            if (now >= held.leaseEndMillis) {
+                logger.warn("Inventory lock {} held past {} ms, no longer renewing it", lockToken, maxHoldMillis);
+                heldLocks.remove(lockToken);
+                continue;
+            }
+
+            try (Jedis jedis = jedisPool.getResource()) {
+                Object result = jedis.eval(RENEW_ALL_SCRIPT, held.lockKeys,
+                        Arrays.asList(lockToken, String.valueOf(lockTimeoutSeconds)));
+                int renewed = (result instanceof Long) ? ((Long) result).intValue() : 0;
+                if (renewed < held.lockKeys.size()) {
+                    logger.warn("Inventory lock {} lost {} of {} keys before renewal",
+                            lockToken, held.lockKeys.size() - renewed, held.lockKeys.size());
+                    heldLocks.remove(lockToken);
+                }
+            } catch (Exception e) {
+                // Keep the entry; the next round will try again before the TTL runs out
+                logger.error("Error renewing inventory lock {}", lockToken, e);
+            }
+        }
+    }
+
+    private String getProductLockKey(int productId) {
+        return "inventory:lock:" + productId;
+    }
+
+    private List<String> getProductLockKeys(SortedSet<Integer> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> lockKeys = new ArrayList<>(productIds.size());
+        for (Integer productId : productIds) {
+            lockKeys.add(getProductLockKey(productId));
+        }
+        return lockKeys;
+    }
+
+    private static final class HeldLock {
+        private final List<String> lockKeys;
+        private final long fencingToken;
+        private final Thread owner;
+        private final long leaseEndMillis;
+
+        private HeldLock(List<String> lockKeys, long fencingToken, Thread owner, long leaseEndMillis) {
+            this.lockKeys = lockKeys;
+            this.fencingToken = fencingToken;
+            this.owner = owner;
+            this.leaseEndMillis = leaseEndMillis;
+        }
+    }
+}
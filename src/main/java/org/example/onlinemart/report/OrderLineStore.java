@@ -0,0 +1,410 @@
+package org.example.onlinemart.report;
+
+import org.example.onlinemart.dao.OrderItemDAO;
+import org.example.onlinemart.dto.OrderLine;
+import org.example.onlinemart.dto.OrderLineSummary;
+import org.example.onlinemart.entity.Order;
+import org.example.onlinemart.entity.OrderItem;
+import org.example.onlinemart.transaction.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory copy of {@code order_items} in primitive columns, for analytics that
+ * would otherwise re-read the same lines from MySQL.
+ * <p>
+ * Each line takes 37 bytes spread over one array per column (order, product,
+ * quantity, both price snapshots, order time, status), with no per-line objects.
+ * The columns are loaded on first use, grow as orders are placed and have their
+ * status column updated as orders complete or are canceled, both after commit.
+ * Scans are tight branch-free loops over the arrays that the JIT can unroll and
+ * vectorize, so summaries over millions of lines take milliseconds. Changes that
+ * commit while the columns load are replayed once loading finishes.
+ */
+@Component
+public class OrderLineStore {
+    private static final Logger logger = LoggerFactory.getLogger(OrderLineStore.class);
+
+    private static final int BYTES_PER_LINE = 4 + 4 + 4 + 8 + 8 + 8 + 1;
+
+    private final OrderItemDAO orderItemDAO;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object loadLock = new Object();
+    private final Object pendingLock = new Object();
+
+    // Guarded by lock
+    private Columns columns;
+
+    // Guarded by pendingLock; collects changes while the columns load
+    private List<Runnable> pending;
+    private volatile boolean loaded;
+
+    @Value("${analytics.store.initialCapacity:4096}")
+    private int initialCapacity;
+
+    @Value("${analytics.store.loadChunkSize:10000}")
+    private int loadChunkSize;
+
+    @Autowired
+    public OrderLineStore(OrderItemDAO orderItemDAO) {
+        this.orderItemDAO = orderItemDAO;
+    }
+
+    /**
+     * Add a newly placed order's lines once the current transaction commits.
+     * Call after the order and its items are saved.
+     */
+    public void appendAfterCommit(Order order, List<OrderItem> items) {
+        int orderId = order.getOrderId();
+        long orderTime = order.getOrderTime().getTime();
+        Order.OrderStatus status = order.getOrderStatus();
+
+        List<OrderLine> lines = new ArrayList<>(items.size());
+        for (OrderItem oi : items) {
+            lines.add(new OrderLine(orderId, oi.getProduct().getProductId(), oi.getQuantity(),
+                    oi.getRetailPriceSnapshot(), oi.getWholesalePriceSnapshot(), orderTime, status));
+        }
+        afterCommit(() -> columns.appendOrder(lines));
+    }
+
+    /**
+     * Set the status of orders' lines once the current transaction commits.
+     */
+    public void updateStatusAfterCommit(Collection<Integer> orderIds, Order.OrderStatus status) {
+        List<Integer> ids = new ArrayList<>(orderIds);
+        afterCommit(() -> {
+            for (Integer orderId : ids) {
+                columns.setStatus(orderId, status);
+            }
+        });
+    }
+
+    /**
+     * Totals over the lines matching a filter and the top products by revenue.
+     *
+     * @param status Only lines of orders in this status; null for all
+     * @param from Earliest order time in epoch millis, inclusive
+     * @param to Latest order time in epoch millis, exclusive
+     * @param topN How many products to return
+     */
+    public OrderLineSummary summarize(Order.OrderStatus status, long from, long to, int topN) {
+        ensureLoaded();
+
+        lock.readLock().lock();
+        try {
+            long start = System.nanoTime();
+            Columns c = columns;
+            int size = c.size;
+            byte wanted = (status != null) ? (byte) status.ordinal() : -1;
+
+            // Group by product into dense arrays indexed by product ID
+            long[] lineCounts = new long[c.maxProductId + 1];
+            long[] units = new long[c.maxProductId + 1];
+            double[] revenue = new double[c.maxProductId + 1];
+            double[] cost = new double[c.maxProductId + 1];
+            for (int i = 0; i < size; i++) {
+                int hit = ((wanted < 0 | c.statuses[i] == wanted)
+                        & c.orderTimes[i] >= from & c.orderTimes[i] < to) ? 1 : 0;
+                int product = c.productIds[i];
+                int quantity = hit * c.quantities[i];
+                lineCounts[product] += hit;
+                units[product] += quantity;
+                revenue[product] += quantity * c.retailPrices[i];
+                cost[product] += quantity * c.wholesalePrices[i];
+            }
+
+            long totalLines = 0;
+            long totalUnits = 0;
+            double totalRevenue = 0;
+            double totalCost = 0;
+            for (int p = 0; p < lineCounts.length; p++) {
+                totalLines += lineCounts[p];
+                totalUnits += units[p];
+                totalRevenue += revenue[p];
+                totalCost += cost[p];
+            }
+
+            List<OrderLineSummary.ProductSummary> top = new ArrayList<>();
+            for (int p : topByRevenue(lineCounts, revenue, topN)) {
+                top.add(new OrderLineSummary.ProductSummary(p, units[p], revenue[p], cost[p]));
+            }
+            return new OrderLineSummary(totalLines, totalUnits, totalRevenue, totalCost, top, size,
+                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Size and approximate heap use of the columns.
+     */
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("loaded", loaded ? 1L : 0L);
+        lock.readLock().lock();
+        try {
+            if (columns != null) {
+                stats.put("lines", (long) columns.size);
+                stats.put("orders", (long) columns.orderIndex.size);
+                stats.put("capacity", (long) columns.orderIds.length);
+                stats.put("approxBytes", (long) columns.orderIds.length * BYTES_PER_LINE
+                        + (long) columns.orderIndex.keys.length * 12);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stats;
+    }
+
+    /**
+     * Drop the columns and load them again from the database.
+     *
+     * @return The number of lines loaded
+     */
+    public int reload() {
+        synchronized (loadLock) {
+            loaded = false;
+            ensureLoaded();
+        }
+        lock.readLock().lock();
+        try {
+            return columns.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+            synchronized (pendingLock) {
+                pending = new ArrayList<>();
+            }
+
+            long start = System.currentTimeMillis();
+            Columns fresh = new Columns(initialCapacity);
+            try {
+                orderItemDAO.scrollAllLines(loadChunkSize, chunk -> {
+                    for (OrderLine line : chunk) {
+                        fresh.append(line);
+                    }
+                });
+            } catch (RuntimeException e) {
+                synchronized (pendingLock) {
+                    pending = null;
+                }
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                columns = fresh;
+                synchronized (pendingLock) {
+                    for (Runnable change : pending) {
+                        change.run();
+                    }
+                    pending = null;
+                    loaded = true;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Loaded {} order lines into the columnar store in {} ms",
+                    fresh.size, System.currentTimeMillis() - start);
+        }
+    }
+
+    private void afterCommit(Runnable change) {
+        AfterCommit.run(() -> apply(change));
+    }
+
+    private void apply(Runnable change) {
+        synchronized (pendingLock) {
+            if (!loaded) {
+                // Not loaded yet: the load reads it from the database; while loading, replay it afterwards
+                if (pending != null) {
+                    pending.add(change);
+                }
+                return;
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int[] topByRevenue(long[] lineCounts, double[] revenue, int n) {
+        int[] top = new int[Math.max(n, 0)];
+        int found = 0;
+        for (int p = 0; p < lineCounts.length; p++) {
+            if (lineCounts[p] == 0) {
+                continue;
+            }
+            // Insertion into the small sorted top array
+            int pos = found;
+            while (pos > 0 && revenue[top[pos - 1]] < revenue[p]) {
+                pos--;
+            }
+            if (pos >= top.length) {
+                continue;
+            }
+            int last = Math.min(found, top.length - 1);
+            System.arraycopy(top, pos, top, pos + 1, last - pos);
+            top[pos] = p;
+            found = Math.min(found + 1, top.length);
+        }
+        return Arrays.copyOf(top, found);
+    }
+
+    private static final class Columns {
+        private int size;
+        private int maxProductId;
+        private int[] orderIds;
+        private int[] productIds;
+        private int[] quantities;
+        private double[] retailPrices;
+        private double[] wholesalePrices;
+        private long[] orderTimes;
+        private byte[] statuses;
+        private final OrderIndex orderIndex = new OrderIndex();
+
+        private Columns(int capacity) {
+            int initial = Math.max(capacity, 16);
+            orderIds = new int[initial];
+            productIds = new int[initial];
+            quantities = new int[initial];
+            retailPrices = new double[initial];
+            wholesalePrices = new double[initial];
+            orderTimes = new long[initial];
+            statuses = new byte[initial];
+        }
+
+        private void appendOrder(List<OrderLine> lines) {
+            if (lines.isEmpty() || orderIndex.first(lines.get(0).getOrderId()) >= 0) {
+                // Already read by the load
+                return;
+            }
+            for (OrderLine line : lines) {
+                append(line);
+            }
+        }
+
+        private void append(OrderLine line) {
+            if (size == orderIds.length) {
+                grow();
+            }
+            orderIds[size] = line.getOrderId();
+            productIds[size] = line.getProductId();
+            quantities[size] = line.getQuantity();
+            retailPrices[size] = line.getRetailPrice();
+            wholesalePrices[size] = line.getWholesalePrice();
+            orderTimes[size] = line.getOrderTime();
+            statuses[size] = (byte) line.getOrderStatus().ordinal();
+            maxProductId = Math.max(maxProductId, line.getProductId());
+            orderIndex.addLine(line.getOrderId(), size);
+            size++;
+        }
+
+        private void setStatus(int orderId, Order.OrderStatus status) {
+            int first = orderIndex.first(orderId);
+            if (first < 0) {
+                return;
+            }
+            Arrays.fill(statuses, first, first + orderIndex.count(orderId), (byte) status.ordinal());
+        }
+
+        private void grow() {
+            int capacity = orderIds.length * 2;
+            orderIds = Arrays.copyOf(orderIds, capacity);
+            productIds = Arrays.copyOf(productIds, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            retailPrices = Arrays.copyOf(retailPrices, capacity);
+            wholesalePrices = Arrays.copyOf(wholesalePrices, capacity);
+            orderTimes = Arrays.copyOf(orderTimes, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+        }
+    }
+
+    /**
+     * Open-addressing map from order ID to the first line and line count of the
+     * order; an order's lines are always stored next to each other. Order IDs
+     * start at 1, so 0 marks an empty slot.
+     */
+    private static final class OrderIndex {
+        private int size;
+        private int[] keys = new int[1024];
+        private int[] firsts = new int[1024];
+        private int[] counts = new int[1024];
+
+        private int first(int orderId) {
+            int slot = find(orderId);
+            return (keys[slot] == orderId) ? firsts[slot] : -1;
+        }
+
+        private int count(int orderId) {
+            int slot = find(orderId);
+            return (keys[slot] == orderId) ? counts[slot] : 0;
+        }
+
+        private void addLine(int orderId, int line) {
+            int slot = find(orderId);
+            if (keys[slot] == orderId) {
+                counts[slot]++;
+                return;
+            }
+            keys[slot] = orderId;
+            firsts[slot] = line;
+            counts[slot] = 1;
+            if (++size * 2 > keys.length) {
+                rehash();
+            }
+        }
+
+        private int find(int orderId) {
+            int mask = keys.length - 1;
+            int slot = (orderId * 0x9E3779B9) >>> 1 & mask;
+            while (keys[slot] != 0 && keys[slot] != orderId) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void rehash() {
+            int[] oldKeys = keys;
+            int[] oldFirsts = firsts;
+            int[] oldCounts = counts;
+            keys = new int[oldKeys.length * 2];
+            firsts = new int[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = find(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    firsts[slot] = oldFirsts[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+    }
+}
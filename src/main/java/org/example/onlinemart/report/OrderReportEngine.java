@@ -0,0 +1,143 @@
+package org.example.onlinemart.report;
+
+import org.example.onlinemart.dao.OrderItemDAO;
+import org.example.onlinemart.dto.OrderLine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs reports over the lines of completed orders without holding them in memory.
+ * <p>
+ * Lines are streamed from the database in chunks of {@code report.chunkSize}.
+ * Each chunk is aggregated on a fork-join pool, split in halves down to
+ * {@code report.leafSize} lines, and the partial results are merged. At most
+ * {@code report.maxChunksInFlight} chunks are queued or being aggregated; the
+ * reading thread merges the oldest before reading more, so memory is bounded by
+ * the chunk window and the size of the result, whatever the number of lines.
+ */
+@Component
+public class OrderReportEngine {
+    private static final Logger logger = LoggerFactory.getLogger(OrderReportEngine.class);
+
+    private final OrderItemDAO orderItemDAO;
+
+    private ForkJoinPool pool;
+
+    @Value("${report.parallelism:0}")
+    private int parallelism;
+
+    @Value("${report.chunkSize:5000}")
+    private int chunkSize;
+
+    @Value("${report.leafSize:1000}")
+    private int leafSize;
+
+    @Value("${report.maxChunksInFlight:0}")
+    private int maxChunksInFlight;
+
+    @Autowired
+    public OrderReportEngine(OrderItemDAO orderItemDAO) {
+        this.orderItemDAO = orderItemDAO;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (parallelism <= 0) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        if (maxChunksInFlight <= 0) {
+            maxChunksInFlight = parallelism * 2;
+        }
+        pool = new ForkJoinPool(parallelism);
+        logger.info("Report engine started: parallelism {}, chunk size {}, {} chunks in flight",
+                parallelism, chunkSize, maxChunksInFlight);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Aggregate all completed order lines.
+     *
+     * @param newAccumulator Creates an empty accumulator; called once per leaf task
+     * @return The merged result
+     */
+    public <A extends ReportAccumulator<A>> A run(Supplier<A> newAccumulator) {
+        long start = System.nanoTime();
+        A result = newAccumulator.get();
+        Deque<ForkJoinTask<A>> inFlight = new ArrayDeque<>();
+
+        long lines;
+        try {
+            lines = orderItemDAO.scrollCompletedLines(chunkSize, chunk -> {
+                while (inFlight.size() >= maxChunksInFlight) {
+                    result.merge(inFlight.removeFirst().join());
+                }
+                inFlight.addLast(pool.submit(new ChunkTask<>(chunk, 0, chunk.size(), newAccumulator, leafSize)));
+            });
+            while (!inFlight.isEmpty()) {
+                result.merge(inFlight.removeFirst().join());
+            }
+        } finally {
+            // Only left over when reading or aggregating failed
+            for (ForkJoinTask<A> task : inFlight) {
+                task.cancel(true);
+            }
+        }
+
+        logger.info("Report over {} order lines took {} ms", lines,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    private static final class ChunkTask<A extends ReportAccumulator<A>> extends RecursiveTask<A> {
+        private final List<OrderLine> lines;
+        private final int from;
+        private final int to;
+        private final Supplier<A> newAccumulator;
+        private final int leafSize;
+
+        private ChunkTask(List<OrderLine> lines, int from, int to, Supplier<A> newAccumulator, int leafSize) {
+            this.lines = lines;
+            this.from = from;
+            this.to = to;
+            this.newAccumulator = newAccumulator;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= leafSize) {
+                A accumulator = newAccumulator.get();
+                for (int i = from; i < to; i++) {
+                    accumulator.add(lines.get(i));
+                }
+                return accumulator;
+            }
+
+            int mid = (from + to) >>> 1;
+            ChunkTask<A> left = new ChunkTask<>(lines, from, mid, newAccumulator, leafSize);
+            ChunkTask<A> right = new ChunkTask<>(lines, mid, to, newAccumulator, leafSize);
+            left.fork();
+            A result = right.compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.onlinemart.report;
+
+import org.example.onlinemart.dto.OrderLine;
+
+/**
+ * Partial result of a report over order lines. Each chunk of lines is folded into
+ * its own accumulator and the partial results are merged, so merging must be
+ * associative and must not depend on which lines went into which chunk.
+ *
+ * @param <A> The accumulator type itself
+ */
+public interface ReportAccumulator<A extends ReportAccumulator<A>> {
+
+    /**
+     * Fold one line into this result.
+     */
+    void add(OrderLine line);
+
+    /**
+     * Fold another partial result into this one.
+     */
+    void merge(A other);
+}
@@ -0,0 +1,104 @@
+package org.example.onlinemart.report;
+
+import org.example.onlinemart.dto.OrderLine;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sales over completed order lines: overall totals, totals per product and
+ * revenue per month of placement. Its size depends on the number of products and
+ * months, not on the number of lines.
+ */
+public class SalesReport implements ReportAccumulator<SalesReport> {
+    private long lineCount;
+    private long units;
+    private double revenue;
+    private double cost;
+    private final Map<Integer, ProductTotals> byProduct = new HashMap<>();
+    private final Map<String, Double> revenueByMonth = new TreeMap<>();
+
+    @Override
+    public void add(OrderLine line) {
+        lineCount++;
+        units += line.getQuantity();
+        revenue += line.getRevenue();
+        cost += line.getCost();
+
+        byProduct.computeIfAbsent(line.getProductId(), id -> new ProductTotals())
+                .add(line.getQuantity(), line.getRevenue(), line.getCost());
+
+        String month = YearMonth.from(Instant.ofEpochMilli(line.getOrderTime())
+                .atZone(ZoneId.systemDefault())).toString();
+        revenueByMonth.merge(month, line.getRevenue(), Double::sum);
+    }
+
+    @Override
+    public void merge(SalesReport other) {
+        lineCount += other.lineCount;
+        units += other.units;
+        revenue += other.revenue;
+        cost += other.cost;
+
+        for (Map.Entry<Integer, ProductTotals> entry : other.byProduct.entrySet()) {
+            ProductTotals totals = byProduct.computeIfAbsent(entry.getKey(), id -> new ProductTotals());
+            totals.add(entry.getValue().units, entry.getValue().revenue, entry.getValue().cost);
+        }
+        for (Map.Entry<String, Double> entry : other.revenueByMonth.entrySet()) {
+            revenueByMonth.merge(entry.getKey(), entry.getValue(), Double::sum);
+        }
+    }
+
+    public double getProfit() {
+        return revenue - cost;
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+    public long getUnits() {
+        return units;
+    }
+    public double getRevenue() {
+        return revenue;
+    }
+    public double getCost() {
+        return cost;
+    }
+    public Map<Integer, ProductTotals> getByProduct() {
+        return byProduct;
+    }
+    public Map<String, Double> getRevenueByMonth() {
+        return revenueByMonth;
+    }
+
+    public static class ProductTotals {
+        private long units;
+        private double revenue;
+        private double cost;
+
+        private void add(long units, double revenue, double cost) {
+            this.units += units;
+            this.revenue += revenue;
+            this.cost += cost;
+        }
+
+        public double getProfit() {
+            return revenue - cost;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+        public double getRevenue() {
+            return revenue;
+        }
+        public double getCost() {
+            return cost;
+        }
+    }
+}
@@ -3,14 +3,18 @@ package org.example.onlinemart.service;
 import org.example.onlinemart.cache.CacheKeys;
 import org.example.onlinemart.cache.CacheService;
 import org.example.onlinemart.controller.AdminController;
-import org.example.onlinemart.controller.AdminSummaryUtil;
-import org.example.onlinemart.dao.OrderItemDAO;
+import org.example.onlinemart.dao.OrderDAO;
+import org.example.onlinemart.dao.ProductSalesStatsDAO;
+import org.example.onlinemart.dto.PopularProductPage;
 import org.example.onlinemart.dto.PopularProductResult;
+import org.example.onlinemart.report.OrderReportEngine;
+import org.example.onlinemart.report.SalesReport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -21,21 +25,24 @@ import java.util.concurrent.TimeUnit;
 public class AdminSummaryService {
     private static final Logger logger = LoggerFactory.getLogger(AdminSummaryService.class);
 
-    private final OrderService orderService;
-    private final OrderItemDAO orderItemDAO;
+    private final ProductSalesStatsDAO productSalesStatsDAO;
+    private final OrderDAO orderDAO;
     private final CacheService cacheService;
+    private final OrderReportEngine orderReportEngine;
 
     @Value("${redis.cache.adminSummary.TTL:120}")
     private long adminSummaryCacheTTL;
 
 
     @Autowired
-    public AdminSummaryService(OrderService orderService,
-                               OrderItemDAO orderItemDAO,
-                               CacheService cacheService) {
-        this.orderService = orderService;
-        this.orderItemDAO = orderItemDAO;
+    public AdminSummaryService(ProductSalesStatsDAO productSalesStatsDAO,
+                               OrderDAO orderDAO,
+                               CacheService cacheService,
+                               OrderReportEngine orderReportEngine) {
+        this.productSalesStatsDAO = productSalesStatsDAO;
+        this.orderDAO = orderDAO;
         this.cacheService = cacheService;
+        this.orderReportEngine = orderReportEngine;
     }
 
     public AdminController.ProductStats findMostProfitableProduct() {
@@ -50,8 +57,13 @@ public class AdminSummaryService {
         }
 
         logger.debug("Cache miss for most profitable product");
-        AdminController.ProductStats result =
-                AdminSummaryUtil.findMostProfitableProduct(orderService, orderItemDAO);
+        List<Object[]> rows = productSalesStatsDAO.findTopByProfit(1);
+        AdminController.ProductStats result = new AdminController.ProductStats();
+        if (!rows.isEmpty()) {
+            Object[] row = rows.get(0);
+            result = new AdminController.ProductStats((Integer) row[0], (String) row[1],
+                    ((Number) row[2]).doubleValue(), ((Number) row[3]).intValue());
+        }
 
         cacheService.set(cacheKey, result, adminSummaryCacheTTL, TimeUnit.SECONDS);
 
@@ -71,41 +83,90 @@ public class AdminSummaryService {
 
         logger.debug("Cache miss for total sold count");
 
-        int total = AdminSummaryUtil.countTotalSold(orderService, orderItemDAO);
+        int total = (int) productSalesStatsDAO.sumUnitsSold();
         cacheService.set(cacheKey, total, adminSummaryCacheTTL, TimeUnit.SECONDS);
 
         return total;
     }
 
-    public List<PopularProductResult> findTop3PopularProducts() {
-        String cacheKey = CacheKeys.AdminSummary.topPopular(3);
-
-        Optional<List<PopularProductResult>> cachedResults =
-                cacheService.getList(cacheKey, PopularProductResult.class);
-
-        if (cachedResults.isPresent()) {
-            logger.debug("Cache hit for top 3 popular products");
-            return cachedResults.get();
+    /**
+     * A page of best-selling products, by units sold and then product ID. Every
+     * page is read off the product_sales_stats keyset, so a cursor always refers
+     * to the same data as the page after it.
+     *
+     * @param n Page size
+     * @param afterQuantity Units sold of the last product on the previous page; null for the first page
+     * @param afterProductId ID of the last product on the previous page
+     */
+    public PopularProductPage findPopularProductsPage(int n, Long afterQuantity, Integer afterProductId) {
+        if (afterQuantity == null || afterProductId == null) {
+            return new PopularProductPage(toPopularResults(productSalesStatsDAO.findTopByUnitsSold(n)), n);
         }
+        // The keyset condition skips straight to the cursor, which is cheap at any depth
+        return new PopularProductPage(toPopularResults(
+                productSalesStatsDAO.findTopByUnitsSoldAfter(n, afterQuantity, afterProductId)), n);
+    }
 
-        logger.debug("Cache miss for top 3 popular products");
-
-        List<Object[]> rows = orderItemDAO.findTop3Popular();
+    private static List<PopularProductResult> toPopularResults(List<Object[]> rows) {
         List<PopularProductResult> results = new ArrayList<>();
-
         for (Object[] row : rows) {
-            org.example.onlinemart.entity.Product product = (org.example.onlinemart.entity.Product) row[0];
-            Long totalQty = (Long) row[1];
             results.add(new PopularProductResult(
-                    (long) product.getProductId(),
-                    product.getProductName(),
-                    totalQty
+                    ((Integer) row[0]).longValue(),
+                    (String) row[1],
+                    (Long) row[2]
             ));
         }
+        return results;
+    }
+
+    /**
+     * Full sales report over every completed order line, with totals per product
+     * and revenue per month. Streams the lines, so it is safe on large histories,
+     * but it reads all of them; the result is cached.
+     */
+    public SalesReport getSalesReport() {
+        String cacheKey = CacheKeys.AdminSummary.SALES_REPORT;
+
+        Optional<SalesReport> cachedReport = cacheService.get(cacheKey, SalesReport.class);
+        if (cachedReport.isPresent()) {
+            logger.debug("Cache hit for sales report");
+            return cachedReport.get();
+        }
 
-        cacheService.set(cacheKey, results, adminSummaryCacheTTL, TimeUnit.SECONDS);
+        logger.debug("Cache miss for sales report");
+        SalesReport report = orderReportEngine.run(SalesReport::new);
+        cacheService.set(cacheKey, report, adminSummaryCacheTTL, TimeUnit.SECONDS);
 
-        return results;
+        return report;
+    }
+
+    /**
+     * Computes the stored totals of orders placed before the totals existed.
+     *
+     * @return The number of orders backfilled
+     */
+    @Transactional
+    public int backfillOrderTotals() {
+        int updated = orderDAO.backfillTotals();
+        logger.info("Backfilled totals for {} orders", updated);
+        clearAllSummaryCaches();
+        // The revenue cube summed the old totals; dropping it makes the next read rebuild it
+        cacheService.delete(CacheKeys.AdminSummary.REVENUE_METRICS);
+        return updated;
+    }
+
+    /**
+     * Recomputes {@code product_sales_stats} from the completed orders, for the
+     * initial backfill or after the table drifted.
+     *
+     * @return The number of products with sales
+     */
+    @Transactional
+    public int rebuildSalesStats() {
+        int products = productSalesStatsDAO.rebuild();
+        logger.info("Rebuilt sales stats for {} products", products);
+        clearAllSummaryCaches();
+        return products;
     }
 
     /**
@@ -118,8 +179,7 @@ public class AdminSummaryService {
             cacheService.delete(
                     CacheKeys.AdminSummary.MOST_PROFITABLE,
                     CacheKeys.AdminSummary.TOTAL_SOLD,
-                    CacheKeys.AdminSummary.topPopular(3),
-                    CacheKeys.AdminSummary.REVENUE_METRICS
+                    CacheKeys.AdminSummary.SALES_REPORT
             );
         } catch (Exception e) {
             logger.warn("Error clearing admin summary caches", e);
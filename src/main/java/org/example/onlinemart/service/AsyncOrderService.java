@@ -0,0 +1,261 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.cache.CacheService;
+import org.example.onlinemart.dto.OrderTicket;
+import org.example.onlinemart.entity.Order;
+import org.example.onlinemart.entity.OrderItem;
+import org.example.onlinemart.exception.CacheException;
+import org.example.onlinemart.exception.OrderOutcomeUnknownException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accepts orders without waiting for them to be placed.
+ * <p>
+ * A submitted order is validated, given a ticket and handed to a fixed pool of
+ * workers through a bounded queue; a full queue rejects the submission instead of
+ * growing. Tickets live in the cache so any instance can answer a status poll,
+ * and a notification is published on the {@code order-ticket} channel when the
+ * order is placed or fails. A placement that times out leaves the ticket UNKNOWN
+ * rather than FAILED, and settles it once the order's outcome is known.
+ */
+@Service
+public class AsyncOrderService {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncOrderService.class);
+
+    private final OrderIntakeService orderIntakeService;
+    private final CacheService cacheService;
+    private final NotificationService notificationService;
+
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder unknown = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueWaitMillis = new LongAdder();
+    private final LongAdder processingMillis = new LongAdder();
+    private final LongAccumulator maxLatencyMillis = new LongAccumulator(Long::max, 0L);
+
+    @Value("${order.async.workers:4}")
+    private int workers;
+
+    @Value("${order.async.queueCapacity:500}")
+    private int queueCapacity;
+
+    @Value("${order.async.ticketTTL:3600}")
+    private long ticketTTL;
+
+    @Autowired
+    public AsyncOrderService(OrderIntakeService orderIntakeService,
+                             CacheService cacheService,
+                             NotificationService notificationService) {
+        this.orderIntakeService = orderIntakeService;
+        this.cacheService = cacheService;
+        this.notificationService = notificationService;
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "async-order-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        logger.info("Async order workers started: {} workers, queue capacity {}", workers, queueCapacity);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Async order workers did not finish, {} orders left queued", executor.getQueue().size());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Validate an order and queue it for placement.
+     *
+     * @param userId The ordering user
+     * @param items The order lines
+     * @return The ticket to poll for the result
+     */
+    public OrderTicket submit(int userId, List<OrderItem> items) {
+        validate(items);
+
+        OrderTicket ticket = new OrderTicket(UUID.randomUUID().toString(), userId);
+        saveTicket(ticket);
+
+        long enqueuedAt = System.currentTimeMillis();
+        try {
+            executor.execute(() -> process(ticket, items, enqueuedAt));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            cacheService.delete(CacheKeys.Orders.ticket(ticket.getTicketId()));
+            throw new RuntimeException("Too many orders in progress, please retry shortly");
+        }
+
+        submitted.increment();
+        return ticket;
+    }
+
+    /**
+     * Look up a ticket issued to a user.
+     *
+     * @param userId The user polling for the ticket
+     * @param ticketId The ticket ID
+     * @return The ticket, or null if it is unknown, expired or belongs to another user
+     */
+    public OrderTicket getTicket(int userId, String ticketId) {
+        Optional<OrderTicket> ticket = cacheService.get(CacheKeys.Orders.ticket(ticketId), OrderTicket.class);
+        if (!ticket.isPresent() || ticket.get().getUserId() != userId) {
+            return null;
+        }
+        return ticket.get();
+    }
+
+    /**
+     * Backpressure and latency figures of the worker pool.
+     *
+     * @return Metric names mapped to their current values
+     */
+    public Map<String, Long> getStats() {
+        long finished = completed.sum() + failed.sum() + unknown.sum();
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", (long) executor.getQueue().size());
+        stats.put("queueCapacity", (long) queueCapacity);
+        stats.put("activeWorkers", (long) executor.getActiveCount());
+        stats.put("submitted", submitted.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("unknown", unknown.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("avgQueueWaitMillis", (finished > 0) ? queueWaitMillis.sum() / finished : 0L);
+        stats.put("avgProcessingMillis", (finished > 0) ? processingMillis.sum() / finished : 0L);
+        stats.put("maxLatencyMillis", maxLatencyMillis.get());
+        stats.put("intakeQueueDepth", (long) orderIntakeService.getQueueDepth());
+        return stats;
+    }
+
+    private void validate(List<OrderItem> items) {
+        if (items == null || items.isEmpty()) {
+            throw new RuntimeException("Order must contain at least one item");
+        }
+        for (OrderItem oi : items) {
+            if (oi.getProduct() == null) {
+                throw new RuntimeException("Order item is missing its product");
+            }
+            if (oi.getQuantity() <= 0) {
+                throw new RuntimeException("Invalid quantity for product ID: " + oi.getProduct().getProductId());
+            }
+        }
+    }
+
+    private void process(OrderTicket ticket, List<OrderItem> items, long enqueuedAt) {
+        long startedAt = System.currentTimeMillis();
+        queueWaitMillis.add(startedAt - enqueuedAt);
+
+        ticket.setStatus(OrderTicket.PROCESSING);
+        saveTicketQuietly(ticket);
+
+        OrderOutcomeUnknownException pending = null;
+        try {
+            Order order = orderIntakeService.placeOrder(ticket.getUserId(), items);
+            ticket.setStatus(OrderTicket.COMPLETED);
+            ticket.setOrderId(order.getOrderId());
+            completed.increment();
+        } catch (OrderOutcomeUnknownException e) {
+            // The order may still commit; telling the client it failed would invite a duplicate
+            logger.warn("Async order for ticket {} has an unknown outcome: {}", ticket.getTicketId(), e.getMessage());
+            ticket.setStatus(OrderTicket.UNKNOWN);
+            ticket.setMessage(e.getMessage());
+            unknown.increment();
+            pending = e;
+        } catch (RuntimeException e) {
+            logger.warn("Async order for ticket {} failed: {}", ticket.getTicketId(), e.getMessage());
+            ticket.setStatus(OrderTicket.FAILED);
+            ticket.setMessage(e.getMessage());
+            failed.increment();
+        }
+
+        long finishedAt = System.currentTimeMillis();
+        processingMillis.add(finishedAt - startedAt);
+        maxLatencyMillis.accumulate(finishedAt - enqueuedAt);
+
+        ticket.setCompletedAt(new Date(finishedAt));
+        publish(ticket);
+
+        if (pending != null && pending.getOutcome() != null) {
+            pending.getOutcome().whenComplete((order, error) -> settle(ticket, order, error));
+        }
+    }
+
+    /**
+     * Move an UNKNOWN ticket on once the placement it stopped waiting for finishes.
+     */
+    private void settle(OrderTicket ticket, Order order, Throwable error) {
+        Throwable cause = (error instanceof CompletionException && error.getCause() != null)
+                ? error.getCause() : error;
+        if (order != null) {
+            ticket.setStatus(OrderTicket.COMPLETED);
+            ticket.setOrderId(order.getOrderId());
+            ticket.setMessage(null);
+        } else if (!(cause instanceof OrderOutcomeUnknownException)) {
+            ticket.setStatus(OrderTicket.FAILED);
+            ticket.setMessage(cause.getMessage());
+        } else {
+            return;
+        }
+        ticket.setCompletedAt(new Date());
+        publish(ticket);
+    }
+
+    private void publish(OrderTicket ticket) {
+        saveTicketQuietly(ticket);
+        notificationService.notifyOrderTicket(ticket.getTicketId(), ticket.getUserId(),
+                ticket.getStatus(), ticket.getOrderId());
+    }
+
+    private void saveTicket(OrderTicket ticket) {
+        cacheService.set(CacheKeys.Orders.ticket(ticket.getTicketId()), ticket, ticketTTL, TimeUnit.SECONDS);
+    }
+
+    private void saveTicketQuietly(OrderTicket ticket) {
+        try {
+            saveTicket(ticket);
+        } catch (CacheException e) {
+            logger.error("Failed to update ticket {} to {}", ticket.getTicketId(), ticket.getStatus(), e);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.cache.CacheService;
+import org.example.onlinemart.dto.OrderDTO;
+import org.example.onlinemart.entity.Order;
+import org.example.onlinemart.exception.CacheException;
+import org.example.onlinemart.exception.OrderOutcomeUnknownException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.HeuristicCompletionException;
+import org.springframework.transaction.TransactionSystemException;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Makes order placement safe to retry with an {@code Idempotency-Key}.
+ * <p>
+ * The first request with a key claims it with an in-flight marker (SET NX) and
+ * runs the placement; its response then replaces the marker for
+ * {@code order.idempotency.windowSeconds}. Retries with the same key wait for the
+ * in-flight request or replay the stored response instead of placing again. The
+ * marker itself only lives for {@code order.idempotency.inFlightSeconds}, so a key
+ * whose request died mid-placement frees up soon after.
+ * <p>
+ * A placement that failed and rolled back releases the key for a retry. One whose
+ * outcome is unknown, such as an intake timeout, keeps the key under an unknown
+ * record instead: retries are refused until the placement finishes and records its
+ * response, or fails and releases the key.
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final CacheService cacheService;
+
+    @Value("${order.idempotency.windowSeconds:86400}")
+    private long windowSeconds;
+
+    // Must outlast a placement, including order.intake.submitTimeoutMillis
+    @Value("${order.idempotency.inFlightSeconds:30}")
+    private long inFlightSeconds;
+
+    @Value("${order.idempotency.waitMillis:5000}")
+    private long waitMillis;
+
+    @Value("${order.idempotency.pollMillis:50}")
+    private long pollMillis;
+
+    @Autowired
+    public IdempotencyService(CacheService cacheService) {
+        this.cacheService = cacheService;
+    }
+
+    /**
+     * Place an order at most once per user and key.
+     *
+     * @param userId The ordering user; keys are scoped per user
+     * @param idempotencyKey The client-chosen key
+     * @param placement Places the order
+     * @return The response of the first request with this key
+     */
+    public OrderDTO placeOnce(int userId, String idempotencyKey, Supplier<Order> placement) {
+        String cacheKey = CacheKeys.Orders.idempotency(userId, idempotencyKey);
+        long deadline = System.currentTimeMillis() + waitMillis;
+
+        while (true) {
+            boolean claimed;
+            try {
+                claimed = cacheService.setIfAbsent(cacheKey, IdempotencyRecord.inFlight(),
+                        inFlightSeconds, TimeUnit.SECONDS);
+            } catch (CacheException e) {
+                // Without the cache we cannot deduplicate; placing is better than refusing the order
+                logger.warn("Idempotency check unavailable for key {}, placing without it", idempotencyKey, e);
+                return OrderDTO.fromEntity(placement.get());
+            }
+
+            if (claimed) {
+                return placeAndRecord(cacheKey, placement);
+            }
+
+            Optional<IdempotencyRecord> existing;
+            try {
+                existing = cacheService.get(cacheKey, IdempotencyRecord.class);
+            } catch (CacheException e) {
+                logger.warn("Idempotency check unavailable for key {}, placing without it", idempotencyKey, e);
+                return OrderDTO.fromEntity(placement.get());
+            }
+            if (existing.isPresent() && IdempotencyRecord.COMPLETED.equals(existing.get().getStatus())) {
+                logger.debug("Replaying stored response for idempotency key {}", idempotencyKey);
+                return existing.get().getResponse();
+            }
+            if (existing.isPresent() && IdempotencyRecord.UNKNOWN.equals(existing.get().getStatus())) {
+                throw new RuntimeException("The order for this Idempotency-Key may have been placed, "
+                        + "please check your orders before retrying");
+            }
+
+            // Still in flight, or the first attempt failed and released the key: look again shortly
+            if (System.currentTimeMillis() >= deadline) {
+                throw new RuntimeException("A request with this Idempotency-Key is still being processed");
+            }
+            sleep();
+        }
+    }
+
+    private OrderDTO placeAndRecord(String cacheKey, Supplier<Order> placement) {
+        OrderDTO response;
+        try {
+            response = OrderDTO.fromEntity(placement.get());
+        } catch (OrderOutcomeUnknownException e) {
+            keepUnknown(cacheKey, e.getOutcome());
+            throw e;
+        } catch (TransactionSystemException | HeuristicCompletionException e) {
+            // The commit itself failed, so the order may or may not exist
+            keepUnknown(cacheKey, null);
+            throw e;
+        } catch (RuntimeException e) {
+            // Rolled back: release the key so the client can retry
+            release(cacheKey);
+            throw e;
+        }
+
+        record(cacheKey, response);
+        return response;
+    }
+
+    /**
+     * Hold the key for the full window, and settle it once the placement still in
+     * progress, if any, finishes.
+     */
+    private void keepUnknown(String cacheKey, CompletableFuture<Order> outcome) {
+        try {
+            cacheService.set(cacheKey, IdempotencyRecord.unknown(), windowSeconds, TimeUnit.SECONDS);
+        } catch (CacheException e) {
+            logger.warn("Failed to mark idempotency key {} unknown, it frees up when the marker expires",
+                    cacheKey, e);
+        }
+        if (outcome == null) {
+            return;
+        }
+        outcome.whenComplete((order, error) -> {
+            if (order != null) {
+                record(cacheKey, OrderDTO.fromEntity(order));
+            } else if (!(unwrap(error) instanceof OrderOutcomeUnknownException)) {
+                release(cacheKey);
+            }
+        });
+    }
+
+    private void record(String cacheKey, OrderDTO response) {
+        try {
+            cacheService.set(cacheKey, IdempotencyRecord.completed(response), windowSeconds, TimeUnit.SECONDS);
+        } catch (CacheException e) {
+            logger.warn("Failed to store response for idempotency key {}", cacheKey, e);
+        }
+    }
+
+    private void release(String cacheKey) {
+        try {
+            cacheService.delete(cacheKey);
+        } catch (CacheException e) {
+            logger.warn("Failed to release idempotency key {}, it frees up when the marker expires", cacheKey, e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(pollMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the original request");
+        }
+    }
+
+    public static class IdempotencyRecord {
+        public static final String IN_FLIGHT = "IN_FLIGHT";
+        public static final String COMPLETED = "COMPLETED";
+        public static final String UNKNOWN = "UNKNOWN";
+
+        private String status;
+        private OrderDTO response;
+
+        public IdempotencyRecord() {
+        }
+
+        public static IdempotencyRecord inFlight() {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setStatus(IN_FLIGHT);
+            return record;
+        }
+
+        public static IdempotencyRecord unknown() {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setStatus(UNKNOWN);
+            return record;
+        }
+
+        public static IdempotencyRecord completed(OrderDTO response) {
+            IdempotencyRecord record = new IdempotencyRecord();
+            record.setStatus(COMPLETED);
+            record.setResponse(response);
+            return record;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public OrderDTO getResponse() {
+            return response;
+        }
+
+        public void setResponse(OrderDTO response) {
+            this.response = response;
+        }
+    }
+}
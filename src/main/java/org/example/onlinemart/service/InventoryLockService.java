@@ -1,57 +1,102 @@
 package org.example.onlinemart.service;
 
-import org.example.onlinemart.cache.CacheKeys;
-import org.example.onlinemart.cache.CacheService;
+import org.example.onlinemart.lock.InventoryLockProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.TimeUnit;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 /**
- * Service for managing distributed locks on inventory items
+ * Service for managing locks on inventory items
  * to prevent race conditions during order processing.
+ * <p>
+ * The locking itself is done by an {@link InventoryLockProvider}: Redis locks with
+ * a renewal watchdog when several instances share the database, or striped in-JVM
+ * locks when {@code inventory.lock.mode=local}.
  */
 @Service
 public class InventoryLockService {
     private static final Logger logger = LoggerFactory.getLogger(InventoryLockService.class);
 
-    private final CacheService cacheService;
-
-    @Value("${inventory.lock.timeout:30}")
-    private int lockTimeoutSeconds;
+    private final InventoryLockProvider lockProvider;
 
     @Autowired
-    public InventoryLockService(CacheService cacheService) {
-        this.cacheService = cacheService;
+    public InventoryLockService(InventoryLockProvider lockProvider) {
+        this.lockProvider = lockProvider;
+        logger.info("Inventory locks provided by {}", lockProvider.getClass().getSimpleName());
     }
 
     /**
      * Acquire a lock on a product's inventory.
-     * This uses Redis as a distributed lock mechanism.
      *
      * @param productId The product ID to lock
      * @return A lock token if successful, null if the lock couldn't be acquired
      */
     public String acquireLock(int productId) {
-        String lockKey = getProductLockKey(productId);
-        String lockToken = UUID.randomUUID().toString();
+        return acquireLocks(Collections.singleton(productId));
+    }
 
-        // Try to set the key only if it doesn't exist (NX option in Redis)
-        boolean acquired = cacheService.set(lockKey, lockToken, lockTimeoutSeconds, TimeUnit.SECONDS);
+    /**
+     * Acquire the locks on several products' inventory at once.
+     * The product IDs are de-duplicated and sorted so that every caller asks for
+     * them in the same order, and the call either holds every lock or none of them.
+     *
+     * @param productIds The product IDs to lock
+     * @return A lock token shared by all the locks if successful, null if any lock is held elsewhere
+     */
+    public String acquireLocks(Collection<Integer> productIds) {
+        return acquireLocks(productIds, 0, 0);
+    }
 
-        if (acquired) {
-            logger.debug("Lock acquired for product ID: {} with token: {}", productId, lockToken);
-            return lockToken;
-        } else {
-            logger.debug("Failed to acquire lock for product ID: {}", productId);
+    /**
+     * Acquire the locks on several products, waiting until they are all held
+     * or the wait time runs out.
+     *
+     * @param productIds The product IDs to lock
+     * @param maxWaitMillis How long to keep trying
+     * @param retryIntervalMillis Pause between attempts when the provider has to poll
+     * @return A lock token if successful, null if the locks couldn't be acquired in time
+     */
+    public String acquireLocks(Collection<Integer> productIds, long maxWaitMillis, long retryIntervalMillis) {
+        SortedSet<Integer> sortedIds = sorted(productIds);
+        if (sortedIds.isEmpty()) {
             return null;
         }
+        return lockProvider.acquire(sortedIds, maxWaitMillis, retryIntervalMillis);
+    }
+
+    /**
+     * Get the fencing token issued with a lock held by this instance.
+     * Tokens grow monotonically across all acquisitions, so a storage write
+     * carrying a smaller token than the last one it accepted is stale.
+     *
+     * @param lockToken The token received when acquiring the lock
+     * @return The fencing token, or 0 if the lock is not held here
+     */
+    public long getFencingToken(String lockToken) {
+        return lockProvider.getFencingToken(lockToken);
+    }
+
+    /**
+     * Release the locks taken by {@link #acquireLocks(Collection)}.
+     * Locks that are no longer held with the given token are left untouched.
+     *
+     * @param productIds The product IDs to unlock
+     * @param lockToken The token received when acquiring the locks
+     * @return The number of locks released
+     */
+    public int releaseLocks(Collection<Integer> productIds, String lockToken) {
+        if (lockToken == null) {
+            return 0;
+        }
+        return lockProvider.release(sorted(productIds), lockToken);
     }
 
     /**
@@ -63,22 +108,7 @@ public class InventoryLockService {
      * @return true if the lock was released, false if the lock wasn't found or token didn't match
      */
     public boolean releaseLock(int productId, String lockToken) {
-        if (lockToken == null) {
-            return false;
-        }
-
-        String lockKey = getProductLockKey(productId);
-        String currentToken = cacheService.get(lockKey, String.class).orElse(null);
-
-        // Only delete the lock if the token matches
-        if (lockToken.equals(currentToken)) {
-            boolean released = cacheService.delete(lockKey);
-            logger.debug("Lock released for product ID: {}", productId);
-            return released;
-        }
-
-        logger.warn("Failed to release lock for product ID: {} - token mismatch", productId);
-        return false;
+        return releaseLocks(Collections.singleton(productId), lockToken) == 1;
     }
 
     /**
@@ -89,14 +119,7 @@ public class InventoryLockService {
      * @return true if the lock was released, false if the lock wasn't found
      */
     public boolean forceReleaseLock(int productId) {
-        String lockKey = getProductLockKey(productId);
-        boolean released = cacheService.delete(lockKey);
-
-        if (released) {
-            logger.warn("Lock force-released for product ID: {}", productId);
-        }
-
-        return released;
+        return lockProvider.forceRelease(productId);
     }
 
     /**
@@ -106,8 +129,7 @@ public class InventoryLockService {
      * @return true if the product is locked, false otherwise
      */
     public boolean isLocked(int productId) {
-        String lockKey = getProductLockKey(productId);
-        return cacheService.exists(lockKey);
+        return lockProvider.isLocked(productId);
     }
 
     /**
@@ -131,24 +153,19 @@ public class InventoryLockService {
      * @return true if the lock was extended, false otherwise
      */
     public boolean extendLock(int productId, String lockToken, int extensionSeconds) {
-        if (lockToken == null) {
-            return false;
-        }
-
-        String lockKey = getProductLockKey(productId);
-        String currentToken = cacheService.get(lockKey, String.class).orElse(null);
-
-        // Only extend the lock if the token matches
-        if (lockToken.equals(currentToken)) {
-            boolean extended = cacheService.expire(lockKey, extensionSeconds, TimeUnit.SECONDS);
-            logger.debug("Lock extended for product ID: {} by {} seconds", productId, extensionSeconds);
-            return extended;
-        }
+        return lockProvider.extend(productId, lockToken, extensionSeconds);
+    }
 
-        return false;
+    /**
+     * Acquisition and contention counters of the active lock provider.
+     *
+     * @return Counter names mapped to their current values
+     */
+    public Map<String, Long> getLockStats() {
+        return lockProvider.getStats();
     }
 
-    private String getProductLockKey(int productId) {
-        return "inventory:lock:" + productId;
+    private SortedSet<Integer> sorted(Collection<Integer> productIds) {
+        return (productIds == null) ? new TreeSet<>() : new TreeSet<>(productIds);
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package org.example.onlinemart.service;
 
 import com.google.gson.Gson;
+import org.example.onlinemart.entity.OutboxEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,10 +9,12 @@ import org.springframework.stereotype.Service;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
@@ -43,6 +46,8 @@ public class NotificationService {
         subscribe("order-status-change", this::handleOrderStatusChange);
         subscribe("inventory-update", this::handleInventoryUpdate);
         subscribe("user-activity", this::handleUserActivity);
+        subscribe("order-ticket", this::handleOrderTicket);
+        subscribe("product-restock", this::handleProductRestock);
     }
 
     @PreDestroy
@@ -109,6 +114,27 @@ public class NotificationService {
         }
     }
 
+    /**
+     * Publish outbox events, already serialized, in one pipelined round trip.
+     * Unlike {@link #publish}, a failure is thrown so that the events stay in the
+     * outbox and are published again.
+     *
+     * @param events The events to publish, in order
+     */
+    public void publishBatch(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            for (OutboxEvent event : events) {
+                pipeline.publish(event.getChannel(), event.getPayload());
+            }
+            pipeline.sync();
+            logger.debug("Published {} outbox events", events.size());
+        }
+    }
+
     /**
      * Create a JedisPubSub instance to handle incoming messages
      */
@@ -171,6 +197,25 @@ public class NotificationService {
                 data.get("userId"), data.get("action"));
     }
 
+    /**
+     * Handle asynchronous order ticket notifications
+     */
+    private void handleOrderTicket(Map<String, Object> data) {
+        // Implementation would push the result to the waiting client
+        logger.info("Order ticket {} for user ID: {} is {}, order ID: {}",
+                data.get("ticketId"), data.get("userId"), data.get("status"), data.get("orderId"));
+    }
+
+    /**
+     * Handle product restock notifications
+     */
+    private void handleProductRestock(Map<String, Object> data) {
+        // Implementation would push the notice to each listed user's open connections
+        List<?> userIds = (List<?>) data.get("userIds");
+        logger.info("Product ID: {} is back in stock, notifying {} watchers",
+                data.get("productId"), userIds == null ? 0 : userIds.size());
+    }
+
     /**
      * Send an order status change notification
      */
@@ -209,4 +254,32 @@ public class NotificationService {
 
         publish("user-activity", data);
     }
+
+    /**
+     * Send a notification that an asynchronously submitted order has finished
+     */
+    public void notifyOrderTicket(String ticketId, int userId, String status, Integer orderId) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("ticketId", ticketId);
+        data.put("userId", userId);
+        data.put("status", status);
+        data.put("orderId", orderId);
+        data.put("timestamp", System.currentTimeMillis());
+
+        publish("order-ticket", data);
+    }
+
+    /**
+     * Send a restock notice for a product to one batch of its watchers
+     */
+    public void notifyRestock(int productId, String productName, int stock, List<Integer> userIds) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("productId", productId);
+        data.put("productName", productName);
+        data.put("stock", stock);
+        data.put("userIds", userIds);
+        data.put("timestamp", System.currentTimeMillis());
+
+        publish("product-restock", data);
+    }
 }
\ No newline at end of file
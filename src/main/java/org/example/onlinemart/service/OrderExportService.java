@@ -0,0 +1,146 @@
+package org.example.onlinemart.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.onlinemart.dao.OrderDAO;
+import org.example.onlinemart.dto.OrderExportRow;
+import org.example.onlinemart.entity.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.function.Consumer;
+
+/**
+ * Writes orders as NDJSON or CSV straight from a database cursor.
+ * <p>
+ * Each order is written as soon as it is read and the output is flushed every
+ * {@code export.flushRows} rows, so neither the orders nor the response are
+ * held in memory and heap use does not grow with the table.
+ */
+@Service
+public class OrderExportService {
+    private static final Logger logger = LoggerFactory.getLogger(OrderExportService.class);
+
+    public static final String NDJSON = "ndjson";
+    public static final String CSV = "csv";
+
+    private static final String CSV_HEADER = "order_id,user_id,username,order_status,order_time,updated_at," +
+            "item_count,total_revenue,total_cost";
+
+    private final OrderDAO orderDAO;
+    private final ObjectMapper objectMapper;
+
+    @Value("${export.flushRows:1000}")
+    private int flushRows;
+
+    @Autowired
+    public OrderExportService(OrderDAO orderDAO, ObjectMapper objectMapper) {
+        this.orderDAO = orderDAO;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * The response content type of an export format.
+     *
+     * @throws RuntimeException if the format is not ndjson or csv
+     */
+    public String contentType(String format) {
+        if (NDJSON.equalsIgnoreCase(format)) {
+            return "application/x-ndjson";
+        }
+        if (CSV.equalsIgnoreCase(format)) {
+            return "text/csv";
+        }
+        throw new RuntimeException("Unknown export format: " + format + ", expected ndjson or csv");
+    }
+
+    /**
+     * Write the matching orders, oldest first.
+     *
+     * @param format {@code ndjson} or {@code csv}
+     * @param from Earliest order time, inclusive; null for no lower bound
+     * @param to Latest order time, exclusive; null for no upper bound
+     * @param status Only orders in this status; null for all
+     * @param out Receives the export; not closed
+     */
+    public void export(String format, LocalDateTime from, LocalDateTime to, Order.OrderStatus status,
+                       OutputStream out) throws IOException {
+        contentType(format);
+        boolean csv = CSV.equalsIgnoreCase(format);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        if (csv) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long start = System.currentTimeMillis();
+        long rows;
+        try {
+            rows = orderDAO.scrollOrders(toDate(from), toDate(to), status, new Consumer<OrderExportRow>() {
+                private long written;
+
+                @Override
+                public void accept(OrderExportRow row) {
+                    try {
+                        writer.write(csv ? toCsv(row, dateFormat) : objectMapper.writeValueAsString(row));
+                        writer.write('\n');
+                        if (++written % flushRows == 0) {
+                            writer.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; the cursor has been closed
+            throw e.getCause();
+        }
+        writer.flush();
+
+        logger.info("Exported {} orders as {} in {} ms", rows, format, System.currentTimeMillis() - start);
+    }
+
+    private static String toCsv(OrderExportRow row, SimpleDateFormat dateFormat) {
+        return row.getOrderId() + "," +
+                row.getUserId() + "," +
+                csvField(row.getUsername()) + "," +
+                row.getOrderStatus() + "," +
+                ((row.getOrderTime() != null) ? dateFormat.format(row.getOrderTime()) : "") + "," +
+                ((row.getUpdatedAt() != null) ? dateFormat.format(row.getUpdatedAt()) : "") + "," +
+                row.getItemCount() + "," +
+                row.getTotalRevenue() + "," +
+                row.getTotalCost();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private static Date toDate(LocalDateTime time) {
+        return (time != null) ? Date.from(time.atZone(ZoneId.systemDefault()).toInstant()) : null;
+    }
+}
@@ -0,0 +1,315 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.entity.Order;
+import org.example.onlinemart.entity.OrderItem;
+import org.example.onlinemart.entity.Product;
+import org.example.onlinemart.exception.OrderOutcomeUnknownException;
+import org.example.onlinemart.transaction.AfterCommit;
+import org.hibernate.SessionFactory;
+import org.hibernate.event.spi.EventSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Order-intake pipeline that group-commits order placement.
+ * <p>
+ * Callers enqueue their order into a bounded queue and wait on a future. A single
+ * worker drains up to {@code order.intake.maxBatchSize} orders, or whatever arrived
+ * within {@code order.intake.maxWaitMillis}, and applies them in one transaction so
+ * the batch pays for one commit. Each order runs under its own savepoint: a failing
+ * order is rolled back alone, along with the after-commit work it registered
+ * through {@link AfterCommit}, and only its caller sees the error. Futures complete
+ * after the batch commits. A caller that gives up waiting, or whose batch failed
+ * to commit with an unknown outcome, gets an {@link OrderOutcomeUnknownException},
+ * since its order may still exist. When {@code order.intake.enabled} is false, orders go
+ * straight to {@link OrderService#createOrder}.
+ */
+@Service
+public class OrderIntakeService {
+    private static final Logger logger = LoggerFactory.getLogger(OrderIntakeService.class);
+
+    private final OrderService orderService;
+    private final SessionFactory sessionFactory;
+    private final TransactionTemplate batchTransaction;
+    private final TransactionTemplate orderSavepoint;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "order-intake-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private BlockingQueue<PendingOrder> queue;
+    private volatile boolean running;
+
+    @Value("${order.intake.enabled:false}")
+    private boolean enabled;
+
+    @Value("${order.intake.queueCapacity:1000}")
+    private int queueCapacity;
+
+    @Value("${order.intake.maxBatchSize:50}")
+    private int maxBatchSize;
+
+    @Value("${order.intake.maxWaitMillis:5}")
+    private long maxWaitMillis;
+
+    @Value("${order.intake.submitTimeoutMillis:10000}")
+    private long submitTimeoutMillis;
+
+    @Autowired
+    public OrderIntakeService(OrderService orderService,
+                              SessionFactory sessionFactory,
+                              PlatformTransactionManager transactionManager) {
+        this.orderService = orderService;
+        this.sessionFactory = sessionFactory;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.orderSavepoint = new TransactionTemplate(transactionManager);
+        this.orderSavepoint.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        worker.submit(this::drainLoop);
+        logger.info("Order intake pipeline started: batch size {}, max wait {} ms, queue capacity {}",
+                maxBatchSize, maxWaitMillis, queueCapacity);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        running = false;
+        worker.shutdownNow();
+        if (queue != null) {
+            PendingOrder pending;
+            while ((pending = queue.poll()) != null) {
+                pending.future.completeExceptionally(new RuntimeException("Order intake is shutting down"));
+            }
+        }
+    }
+
+    /**
+     * Place an order, through the batching pipeline when it is enabled.
+     *
+     * @param userId The ordering user
+     * @param items The order lines
+     * @return The created order, committed
+     */
+    public Order placeOrder(int userId, List<OrderItem> items) {
+        if (!enabled) {
+            return orderService.createOrder(userId, items);
+        }
+
+        CompletableFuture<Order> placement = submit(userId, items);
+        try {
+            return placement.get(submitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("Order placement failed", cause);
+        } catch (TimeoutException e) {
+            // Still queued or in a batch that may yet commit
+            throw new OrderOutcomeUnknownException(
+                    "Order placement timed out, please check your orders before retrying", placement);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrderOutcomeUnknownException(
+                    "Order placement interrupted, please check your orders before retrying", placement);
+        }
+    }
+
+    /**
+     * Enqueue an order for the next batch.
+     *
+     * @param userId The ordering user
+     * @param items The order lines
+     * @return A future completed once the order's batch has committed
+     */
+    public CompletableFuture<Order> submit(int userId, List<OrderItem> items) {
+        if (!enabled) {
+            throw new IllegalStateException("Order intake pipeline is disabled");
+        }
+
+        PendingOrder pending = new PendingOrder(userId, items);
+        if (!queue.offer(pending)) {
+            throw new RuntimeException("Too many orders in progress, please retry shortly");
+        }
+        return pending.future;
+    }
+
+    public int getQueueDepth() {
+        return (queue != null) ? queue.size() : 0;
+    }
+
+    private void drainLoop() {
+        List<PendingOrder> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                PendingOrder first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingOrder next = (remaining > 0) ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                applyBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Order intake batch failed", e);
+                for (PendingOrder pending : batch) {
+                    pending.future.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void applyBatch(List<PendingOrder> batch) {
+        List<PendingOrder> placed = new ArrayList<>(batch.size());
+        AtomicInteger completion = new AtomicInteger(TransactionSynchronization.STATUS_UNKNOWN);
+        try {
+            batchTransaction.executeWithoutResult(status -> {
+                // Spring rethrows failures of after-commit work too, so record how the commit itself ended
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        completion.set(status);
+                    }
+                });
+                for (PendingOrder pending : batch) {
+                    Set<Object> managedBefore = managedEntities();
+                    try {
+                        // After-commit hooks of an order rolled back to its savepoint are dropped with it
+                        pending.order = AfterCommit.withinSavepoint(() -> orderSavepoint.execute(savepoint -> {
+                            Order order = orderService.createOrder(pending.userId, pending.items);
+                            // Flush inside the savepoint so a failing statement is rolled back with it
+                            sessionFactory.getCurrentSession().flush();
+                            return order;
+                        }));
+                        placed.add(pending);
+                    } catch (RuntimeException e) {
+                        evictFailedOrder(managedBefore, pending.items);
+                        pending.future.completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            if (completion.get() == TransactionSynchronization.STATUS_ROLLED_BACK) {
+                logger.error("Commit of order batch failed, {} orders lost", placed.size(), e);
+                for (PendingOrder pending : placed) {
+                    pending.future.completeExceptionally(e);
+                }
+                return;
+            }
+            if (completion.get() == TransactionSynchronization.STATUS_UNKNOWN) {
+                logger.error("Commit of order batch ended in an unknown state, {} orders may exist", placed.size(), e);
+                RuntimeException unknown = new OrderOutcomeUnknownException(
+                        "Order commit failed with an unknown outcome, please check your orders before retrying", e);
+                for (PendingOrder pending : placed) {
+                    pending.future.completeExceptionally(unknown);
+                }
+                return;
+            }
+            logger.error("Order batch committed but its after-commit work failed", e);
+        }
+
+        for (PendingOrder pending : placed) {
+            pending.future.complete(pending.order);
+        }
+        logger.debug("Committed order batch: {} placed, {} failed", placed.size(), batch.size() - placed.size());
+    }
+
+    private Set<Object> managedEntities() {
+        Set<Object> entities = Collections.newSetFromMap(new IdentityHashMap<>());
+        entities.addAll(currentSession().getPersistenceContext().getEntitiesByKey().values());
+        return entities;
+    }
+
+    /**
+     * The savepoint undid the failed order's rows, but the session still holds its
+     * entities and any statements it had not flushed. Drop those, and the products
+     * it ordered, whose stock and version in memory no longer match the database.
+     * Orders placed earlier in the batch stay attached.
+     */
+    private void evictFailedOrder(Set<Object> managedBefore, List<OrderItem> items) {
+        EventSource session = currentSession();
+        // Each savepoint ends with a flush, so anything still queued belongs to the failed order
+        session.getActionQueue().clear();
+
+        Set<Integer> orderedProductIds = new HashSet<>();
+        for (OrderItem item : items) {
+            if (item.getProduct() != null) {
+                orderedProductIds.add(item.getProduct().getProductId());
+            }
+        }
+
+        List<Object> managed = new ArrayList<>(session.getPersistenceContext().getEntitiesByKey().values());
+        for (Object entity : managed) {
+            boolean ordered = entity instanceof Product
+                    && orderedProductIds.contains(((Product) entity).getProductId());
+            if (ordered || !managedBefore.contains(entity)) {
+                session.evict(entity);
+            }
+        }
+    }
+
+    private EventSource currentSession() {
+        return sessionFactory.getCurrentSession().unwrap(EventSource.class);
+    }
+
+    private static final class PendingOrder {
+        private final int userId;
+        private final List<OrderItem> items;
+        private final CompletableFuture<Order> future = new CompletableFuture<>();
+        private Order order;
+
+        private PendingOrder(int userId, List<OrderItem> items) {
+            this.userId = userId;
+            this.items = items;
+        }
+    }
+}
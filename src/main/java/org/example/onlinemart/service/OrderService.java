@@ -1,5 +1,6 @@
 package org.example.onlinemart.service;
 
+import org.example.onlinemart.dto.BulkOrderResult;
 import org.example.onlinemart.entity.Order;
 import org.example.onlinemart.entity.OrderItem;
 
@@ -9,6 +10,8 @@ public interface OrderService {
     Order createOrder(int userId, List<OrderItem> items);
     Order cancelOrder(int orderId);
     Order completeOrder(int orderId);
+    BulkOrderResult completeOrders(List<Integer> orderIds);
+    BulkOrderResult cancelOrders(List<Integer> orderIds);
     Order findById(int orderId);
     List<Order> findAll();
     List<Order> findByUserId(int userId);
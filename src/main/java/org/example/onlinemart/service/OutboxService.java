@@ -0,0 +1,172 @@
+package org.example.onlinemart.service;
+
+import com.google.gson.Gson;
+import org.example.onlinemart.dao.OutboxEventDAO;
+import org.example.onlinemart.entity.Order;
+import org.example.onlinemart.entity.OutboxEvent;
+import org.example.onlinemart.entity.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transactional outbox for order and inventory notifications.
+ * <p>
+ * Services record events in the {@code outbox_events} table inside their own
+ * transaction, so an event exists exactly when its change committed and the
+ * request never waits on Redis. A relay thread drains the table in batches,
+ * publishes each batch through {@link NotificationService#publishBatch} and then
+ * marks it published. A crash between the two publishes the batch again:
+ * delivery is at-least-once, and subscribers must tolerate duplicates.
+ */
+@Service
+public class OutboxService {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+    public static final String ORDER_STATUS_CHANNEL = "order-status-change";
+    public static final String INVENTORY_CHANNEL = "inventory-update";
+
+    private final OutboxEventDAO outboxEventDAO;
+    private final NotificationService notificationService;
+    private final TransactionTemplate relayTransaction;
+    private final Gson gson = new Gson();
+
+    private final ScheduledExecutorService relay = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long lastCleanup;
+
+    @Value("${outbox.relay.enabled:true}")
+    private boolean relayEnabled;
+
+    @Value("${outbox.relay.intervalMillis:200}")
+    private long relayIntervalMillis;
+
+    @Value("${outbox.relay.batchSize:200}")
+    private int relayBatchSize;
+
+    @Value("${outbox.retentionHours:24}")
+    private long retentionHours;
+
+    @Autowired
+    public OutboxService(OutboxEventDAO outboxEventDAO,
+                         NotificationService notificationService,
+                         PlatformTransactionManager transactionManager) {
+        this.outboxEventDAO = outboxEventDAO;
+        this.notificationService = notificationService;
+        this.relayTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!relayEnabled) {
+            logger.info("Outbox relay disabled, events will accumulate in outbox_events");
+            return;
+        }
+        relay.scheduleWithFixedDelay(this::drain, relayIntervalMillis, relayIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        relay.shutdownNow();
+    }
+
+    /**
+     * Record an order status change; must run inside the transaction that made it.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderStatusChanged(int orderId, Order.OrderStatus status, int userId) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("orderId", orderId);
+        data.put("status", status.name());
+        data.put("userId", userId);
+        data.put("timestamp", System.currentTimeMillis());
+
+        record(ORDER_STATUS_CHANNEL, data);
+    }
+
+    /**
+     * Record a product's new stock level; must run inside the transaction that changed it.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void inventoryChanged(Product product) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("productId", product.getProductId());
+        data.put("stock", product.getStock());
+        data.put("productName", product.getProductName());
+        data.put("timestamp", System.currentTimeMillis());
+
+        record(INVENTORY_CHANNEL, data);
+    }
+
+    private void record(String channel, Map<String, Object> data) {
+        outboxEventDAO.save(new OutboxEvent(channel, gson.toJson(data)));
+    }
+
+    /**
+     * Publish everything pending, one batch per transaction.
+     */
+    void drain() {
+        try {
+            int published;
+            do {
+                published = relayTransaction.execute(status -> publishNextBatch());
+            } while (published == relayBatchSize && !Thread.currentThread().isInterrupted());
+
+            purgePublished();
+        } catch (Exception e) {
+            // Left unpublished; the next run tries again
+            logger.warn("Outbox relay failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    private int publishNextBatch() {
+        List<OutboxEvent> events = outboxEventDAO.findUnpublishedForUpdate(relayBatchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        notificationService.publishBatch(events);
+
+        List<Long> eventIds = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            eventIds.add(event.getEventId());
+        }
+        outboxEventDAO.markPublished(eventIds, new Date());
+        return events.size();
+    }
+
+    private void purgePublished() {
+        long now = System.currentTimeMillis();
+        if (now - lastCleanup < TimeUnit.HOURS.toMillis(1)) {
+            return;
+        }
+        lastCleanup = now;
+
+        Date cutoff = new Date(now - TimeUnit.HOURS.toMillis(retentionHours));
+        Integer purged = relayTransaction.execute(status -> outboxEventDAO.deletePublishedBefore(cutoff));
+        if (purged != null && purged > 0) {
+            logger.info("Purged {} published outbox events older than {} hours", purged, retentionHours);
+        }
+    }
+}
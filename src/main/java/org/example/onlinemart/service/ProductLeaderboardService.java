@@ -0,0 +1,186 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.cache.RedisAggregateGuard;
+import org.example.onlinemart.dao.ProductSalesStatsDAO;
+import org.example.onlinemart.dto.PopularProductResult;
+import org.example.onlinemart.entity.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.resps.Tuple;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Units-sold leaderboard kept in a Redis sorted set.
+ * <p>
+ * Completing an order adds its units to each product's score with ZINCRBY once
+ * the transaction commits; a negative delta reverses them. Reading the top N is a
+ * ZREVRANGE, O(log n + k), with the product names loaded in one batch. When the
+ * set is missing, or an update could not be applied, it is rebuilt from
+ * {@code product_sales_stats} under {@link RedisAggregateGuard}.
+ */
+@Service
+public class ProductLeaderboardService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductLeaderboardService.class);
+
+    private static final String LEADERBOARD_KEY = CacheKeys.AdminSummary.POPULARITY_LEADERBOARD;
+
+    private final JedisPool jedisPool;
+    private final RedisAggregateGuard aggregateGuard;
+    private final ProductSalesStatsDAO productSalesStatsDAO;
+    private final ProductService productService;
+
+    @Autowired
+    public ProductLeaderboardService(JedisPool jedisPool,
+                                     RedisAggregateGuard aggregateGuard,
+                                     ProductSalesStatsDAO productSalesStatsDAO,
+                                     ProductService productService) {
+        this.jedisPool = jedisPool;
+        this.aggregateGuard = aggregateGuard;
+        this.productSalesStatsDAO = productSalesStatsDAO;
+        this.productService = productService;
+    }
+
+    /**
+     * Add units to the products' scores once the current transaction commits,
+     * or right away when there is none. Use negative units to reverse a sale.
+     *
+     * @param unitsByProduct Product IDs mapped to the units to add
+     */
+    public void recordAfterCommit(Map<Integer, Long> unitsByProduct) {
+        if (unitsByProduct.isEmpty()) {
+            return;
+        }
+        Map<Integer, Long> deltas = new HashMap<>(unitsByProduct);
+        aggregateGuard.updateAfterCommit(Collections.singletonList(LEADERBOARD_KEY), () -> increment(deltas));
+    }
+
+    /**
+     * The best-selling products by units sold.
+     *
+     * @param n How many products to return
+     * @return Up to n products, most units first and lower IDs first on ties
+     */
+    public List<PopularProductResult> top(int n) {
+        if (n <= 0) {
+            return new ArrayList<>();
+        }
+
+        List<Tuple> entries;
+        try (Jedis jedis = jedisPool.getResource()) {
+            if (!jedis.exists(LEADERBOARD_KEY)) {
+                // Answer from the stats just read, whether or not they could be published
+                List<PopularProductResult> loaded = rebuild(jedis);
+                return new ArrayList<>(loaded.subList(0, Math.min(n, loaded.size())));
+            }
+            entries = jedis.zrevrangeWithScores(LEADERBOARD_KEY, 0, n - 1);
+            if (entries.size() == n) {
+                // Redis orders equal scores by member text; pull in every tie at the cut-off to order them by ID
+                double cutoff = entries.get(n - 1).getScore();
+                entries = jedis.zrevrangeByScoreWithScores(LEADERBOARD_KEY, Double.POSITIVE_INFINITY, cutoff);
+            }
+        }
+
+        List<Tuple> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingDouble(Tuple::getScore).reversed()
+                .thenComparingInt(t -> Integer.parseInt(t.getElement())));
+        return withNames(sorted.subList(0, Math.min(n, sorted.size())));
+    }
+
+    /**
+     * Reload the leaderboard from {@code product_sales_stats}.
+     *
+     * @return The number of products with sales
+     */
+    public int rebuild() {
+        try (Jedis jedis = jedisPool.getResource()) {
+            return rebuild(jedis).size();
+        }
+    }
+
+    /**
+     * Reload the leaderboard from {@code product_sales_stats}. The new set is
+     * written under a temporary key and renamed over the old one, so readers
+     * never see it half built; it is not published if units were recorded while
+     * the stats were read.
+     *
+     * @return Every product with sales, best seller first
+     */
+    private List<PopularProductResult> rebuild(Jedis jedis) {
+        String snapshot = aggregateGuard.snapshot(jedis, LEADERBOARD_KEY);
+        List<Object[]> rows = productSalesStatsDAO.findTopByUnitsSold(Integer.MAX_VALUE);
+
+        List<PopularProductResult> results = new ArrayList<>(rows.size());
+        Map<String, Double> scores = new HashMap<>();
+        for (Object[] row : rows) {
+            long units = ((Number) row[2]).longValue();
+            results.add(new PopularProductResult(((Number) row[0]).longValue(), (String) row[1], units));
+            scores.put(String.valueOf(row[0]), (double) units);
+        }
+
+        if (snapshot != null && !scores.isEmpty()) {
+            String tempKey = RedisAggregateGuard.rebuildKey(LEADERBOARD_KEY);
+            jedis.del(tempKey);
+            jedis.zadd(tempKey, scores);
+            if (aggregateGuard.publish(jedis, LEADERBOARD_KEY, snapshot, 0, LEADERBOARD_KEY)) {
+                logger.info("Rebuilt popularity leaderboard with {} products", scores.size());
+            }
+        }
+        return results;
+    }
+
+    private List<PopularProductResult> withNames(List<Tuple> entries) {
+        List<Integer> productIds = new ArrayList<>(entries.size());
+        for (Tuple entry : entries) {
+            productIds.add(Integer.parseInt(entry.getElement()));
+        }
+        Map<Integer, String> names = new HashMap<>();
+        for (Product product : productService.findByIds(productIds)) {
+            names.put(product.getProductId(), product.getProductName());
+        }
+
+        List<PopularProductResult> results = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            int productId = productIds.get(i);
+            results.add(new PopularProductResult((long) productId, names.get(productId),
+                    (long) entries.get(i).getScore()));
+        }
+        return results;
+    }
+
+    private void increment(Map<Integer, Long> unitsByProduct) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            if (!jedis.exists(LEADERBOARD_KEY)) {
+                // Not built yet: the next read loads it from the stats table, which already has these units
+                return;
+            }
+            Pipeline pipeline = jedis.pipelined();
+            for (Map.Entry<Integer, Long> entry : unitsByProduct.entrySet()) {
+                pipeline.zincrby(LEADERBOARD_KEY, entry.getValue(), String.valueOf(entry.getKey()));
+            }
+            pipeline.sync();
+        } catch (Exception e) {
+            logger.warn("Failed to update popularity leaderboard, dropping it for a rebuild", e);
+            dropLeaderboard();
+        }
+    }
+
+    private void dropLeaderboard() {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.del(LEADERBOARD_KEY);
+        } catch (Exception e) {
+            logger.error("Failed to drop popularity leaderboard", e);
+        }
+    }
+}
@@ -12,6 +12,12 @@ public interface ProductService {
 
     Product findById(int productId);
 
+    /**
+     * Products with the given IDs, in the same order; unknown IDs are left out.
+     * Cached products are read in one round trip and the rest in one query.
+     */
+    List<Product> findByIds(List<Integer> productIds);
+
     List<Product> findAll();
 
     List<Product> findAllInStock();
@@ -0,0 +1,324 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.cache.RedisAggregateGuard;
+import org.example.onlinemart.dao.OrderItemDAO;
+import org.example.onlinemart.dto.ProductSummary;
+import org.example.onlinemart.entity.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.params.ZAddParams;
+import redis.clients.jedis.resps.Tuple;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-user purchase profile kept in Redis.
+ * <p>
+ * Each user has a sorted set of product to units bought and a capped sorted set of
+ * product to its latest order time, the same ordering as
+ * {@link OrderItemDAO#findRecentPurchasedProducts}. Completing an order updates
+ * both once the transaction commits, so the frequent and recent
+ * summaries are one or two reads each. A missing profile is rebuilt from the
+ * user's completed orders on the next read, under {@link RedisAggregateGuard};
+ * one that could not be updated is dropped so it is rebuilt the same way.
+ */
+@Service
+public class PurchaseProfileService {
+    private static final Logger logger = LoggerFactory.getLogger(PurchaseProfileService.class);
+
+    // Orders by latest order time, then product ID, so equal times list the lower ID first
+    private static final Comparator<Purchase> NEWEST_FIRST = Comparator
+            .comparingLong((Purchase p) -> p.lastOrderTime).reversed()
+            .thenComparingInt(p -> p.productId);
+
+    // Orders by units bought, then product ID, as topFrequent does
+    private static final Comparator<Purchase> MOST_UNITS_FIRST = Comparator
+            .comparingLong((Purchase p) -> p.units).reversed()
+            .thenComparingInt(p -> p.productId);
+
+    private final JedisPool jedisPool;
+    private final RedisAggregateGuard aggregateGuard;
+    private final OrderItemDAO orderItemDAO;
+    private final ProductService productService;
+
+    @Value("${activity.profile.recentCapacity:20}")
+    private int recentCapacity = 20;
+
+    @Value("${activity.profile.TTL:604800}")
+    private long profileTTL = 604800;
+
+    @Autowired
+    public PurchaseProfileService(JedisPool jedisPool, RedisAggregateGuard aggregateGuard,
+                                  OrderItemDAO orderItemDAO, ProductService productService) {
+        this.jedisPool = jedisPool;
+        this.aggregateGuard = aggregateGuard;
+        this.orderItemDAO = orderItemDAO;
+        this.productService = productService;
+    }
+
+    /**
+     * Add the lines of newly completed orders to their users' profiles once the
+     * current transaction commits, or right away when there is none. Call inside
+     * the transaction that completes them, so their lines are read there.
+     */
+    public void recordCompletedAfterCommit(Collection<Integer> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, List<Purchase>> purchasesByUser = new HashMap<>();
+        for (Object[] row : orderItemDAO.sumPurchasesByUserForOrders(orderIds)) {
+            purchasesByUser.computeIfAbsent((Integer) row[0], id -> new ArrayList<>())
+                    .add(new Purchase((Integer) row[1], ((Number) row[2]).longValue(), (Date) row[3]));
+        }
+        if (purchasesByUser.isEmpty()) {
+            return;
+        }
+
+        List<String> profileKeys = new ArrayList<>(purchasesByUser.size());
+        for (Integer userId : purchasesByUser.keySet()) {
+            profileKeys.add(CacheKeys.UserActivity.frequentPurchases(userId));
+        }
+        aggregateGuard.updateAfterCommit(profileKeys, () -> apply(purchasesByUser));
+    }
+
+    /**
+     * Like {@link #topFrequent}, loading the products in one query. Without Redis
+     * the answer comes from a single grouped query over the user's orders.
+     */
+    public List<ProductSummary> topFrequentProducts(int userId, int limit) {
+        List<Integer> productIds;
+        try {
+            productIds = topFrequent(userId, limit);
+        } catch (JedisException e) {
+            logger.warn("Purchase profile of user {} unavailable, reading their orders", userId, e);
+            return orderItemDAO.findTopPurchasedProducts(userId, limit);
+        }
+        return summaries(productIds);
+    }
+
+    /**
+     * Like {@link #recent}, loading the products in one query. Without Redis
+     * the answer comes from a single grouped query over the user's orders.
+     */
+    public List<ProductSummary> recentProducts(int userId, int limit) {
+        List<Integer> productIds;
+        try {
+            productIds = recent(userId, limit);
+        } catch (JedisException e) {
+            logger.warn("Purchase profile of user {} unavailable, reading their orders", userId, e);
+            return orderItemDAO.findRecentPurchasedProducts(userId, limit);
+        }
+        return summaries(productIds);
+    }
+
+    private List<ProductSummary> summaries(List<Integer> productIds) {
+        List<ProductSummary> summaries = new ArrayList<>(productIds.size());
+        for (Product product : productService.findByIds(productIds)) {
+            summaries.add(ProductSummary.fromEntity(product));
+        }
+        return summaries;
+    }
+
+    /**
+     * The products a user has bought the most units of.
+     *
+     * @param userId The user
+     * @param limit How many products to return
+     * @return Up to limit product IDs, most units first and lower IDs first on ties
+     */
+    public List<Integer> topFrequent(int userId, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        String key = CacheKeys.UserActivity.frequentPurchases(userId);
+        try (Jedis jedis = jedisPool.getResource()) {
+            List<Tuple> top = jedis.zrevrangeWithScores(key, 0, limit - 1);
+            if (top.isEmpty()) {
+                // Answer from the orders just read, whether or not they could be published
+                List<Purchase> purchases = rebuild(jedis, userId);
+                purchases.sort(MOST_UNITS_FIRST);
+                return productIds(purchases, limit);
+            }
+            return highestFirst(jedis, key, top, limit);
+        }
+    }
+
+    /**
+     * The products a user bought most recently, each listed once.
+     *
+     * @param userId The user
+     * @param limit How many products to return, at most {@code activity.profile.recentCapacity}
+     * @return Up to limit product IDs, latest order time first and lower IDs first on ties
+     */
+    public List<Integer> recent(int userId, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        String key = CacheKeys.UserActivity.recentPurchases(userId);
+        try (Jedis jedis = jedisPool.getResource()) {
+            List<Tuple> latest = jedis.zrevrangeWithScores(key, 0, limit - 1);
+            if (latest.isEmpty()) {
+                // Answer from the orders just read, whether or not they could be published
+                return productIds(rebuild(jedis, userId), Math.min(limit, recentCapacity));
+            }
+            return highestFirst(jedis, key, latest, limit);
+        }
+    }
+
+    /**
+     * Product IDs of a profile set's top entries by score, then by ID.
+     *
+     * @param top The first limit entries of ZREVRANGE
+     */
+    private static List<Integer> highestFirst(Jedis jedis, String key, List<Tuple> top, int limit) {
+        if (top.size() == limit) {
+            // Redis orders equal scores by member text; pull in every tie at the cut-off to order them by ID
+            double cutoff = top.get(limit - 1).getScore();
+            top = jedis.zrevrangeByScoreWithScores(key, Double.POSITIVE_INFINITY, cutoff);
+        }
+
+        List<Tuple> sorted = new ArrayList<>(top);
+        sorted.sort(Comparator.comparingDouble(Tuple::getScore).reversed()
+                .thenComparingInt(t -> Integer.parseInt(t.getElement())));
+
+        List<Integer> productIds = new ArrayList<>(limit);
+        for (int i = 0; i < Math.min(limit, sorted.size()); i++) {
+            productIds.add(Integer.parseInt(sorted.get(i).getElement()));
+        }
+        return productIds;
+    }
+
+    /**
+     * Reload a user's profile from their completed orders. Both keys are written
+     * under temporary names and renamed over the old ones, so readers never see
+     * them half built; they are not published if the user completed an order
+     * while the orders were read.
+     *
+     * @return The user's purchases, newest first
+     */
+    private List<Purchase> rebuild(Jedis jedis, int userId) {
+        String frequentKey = CacheKeys.UserActivity.frequentPurchases(userId);
+        String recentKey = CacheKeys.UserActivity.recentPurchases(userId);
+        String snapshot = aggregateGuard.snapshot(jedis, frequentKey);
+
+        List<Purchase> purchases = new ArrayList<>();
+        for (Object[] row : orderItemDAO.sumCompletedPurchasesForUser(userId)) {
+            purchases.add(new Purchase((Integer) row[0], ((Number) row[1]).longValue(), (Date) row[2]));
+        }
+        purchases.sort(NEWEST_FIRST);
+        if (purchases.isEmpty() || snapshot == null) {
+            return purchases;
+        }
+
+        Map<String, Double> units = new HashMap<>();
+        Map<String, Double> recent = new HashMap<>();
+        for (Purchase purchase : purchases) {
+            units.put(String.valueOf(purchase.productId), (double) purchase.units);
+            if (recent.size() < recentCapacity) {
+                recent.put(String.valueOf(purchase.productId), (double) purchase.lastOrderTime);
+            }
+        }
+
+        Pipeline pipeline = jedis.pipelined();
+        pipeline.del(RedisAggregateGuard.rebuildKey(frequentKey), RedisAggregateGuard.rebuildKey(recentKey));
+        pipeline.zadd(RedisAggregateGuard.rebuildKey(frequentKey), units);
+        pipeline.zadd(RedisAggregateGuard.rebuildKey(recentKey), recent);
+        pipeline.sync();
+        if (aggregateGuard.publish(jedis, frequentKey, snapshot, profileTTL, frequentKey, recentKey)) {
+            logger.debug("Rebuilt purchase profile for user {} with {} products", userId, purchases.size());
+        }
+        return purchases;
+    }
+
+    private static List<Integer> productIds(List<Purchase> purchases, int limit) {
+        List<Integer> productIds = new ArrayList<>(Math.min(limit, purchases.size()));
+        for (int i = 0; i < Math.min(limit, purchases.size()); i++) {
+            productIds.add(purchases.get(i).productId);
+        }
+        return productIds;
+    }
+
+    private void apply(Map<Integer, List<Purchase>> purchasesByUser) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            Map<Integer, Response<Long>> existing = new LinkedHashMap<>();
+            Pipeline check = jedis.pipelined();
+            for (Integer userId : purchasesByUser.keySet()) {
+                existing.put(userId, check.exists(CacheKeys.UserActivity.frequentPurchases(userId),
+                        CacheKeys.UserActivity.recentPurchases(userId)));
+            }
+            check.sync();
+
+            Pipeline pipeline = jedis.pipelined();
+            for (Map.Entry<Integer, Response<Long>> entry : existing.entrySet()) {
+                int userId = entry.getKey();
+                String frequentKey = CacheKeys.UserActivity.frequentPurchases(userId);
+                String recentKey = CacheKeys.UserActivity.recentPurchases(userId);
+                if (entry.getValue().get() < 2) {
+                    // Not built, or half expired: the next read loads it from the orders, which already have these lines
+                    pipeline.del(frequentKey, recentKey);
+                    continue;
+                }
+
+                for (Purchase purchase : purchasesByUser.get(userId)) {
+                    String member = String.valueOf(purchase.productId);
+                    pipeline.zincrby(frequentKey, purchase.units, member);
+                    // Orders complete out of order time; GT keeps each product's latest order time
+                    pipeline.zadd(recentKey, purchase.lastOrderTime, member, ZAddParams.zAddParams().gt());
+                }
+                // Keep the newest entries
+                pipeline.zremrangeByRank(recentKey, 0, -recentCapacity - 1);
+                pipeline.expire(frequentKey, profileTTL);
+                pipeline.expire(recentKey, profileTTL);
+            }
+            pipeline.sync();
+        } catch (Exception e) {
+            logger.warn("Failed to update purchase profiles of {} users, dropping them for a rebuild",
+                    purchasesByUser.size(), e);
+            dropProfiles(purchasesByUser.keySet());
+        }
+    }
+
+    private void dropProfiles(Collection<Integer> userIds) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            List<String> keys = new ArrayList<>(userIds.size() * 2);
+            for (Integer userId : userIds) {
+                keys.add(CacheKeys.UserActivity.frequentPurchases(userId));
+                keys.add(CacheKeys.UserActivity.recentPurchases(userId));
+            }
+            jedis.del(keys.toArray(new String[0]));
+        } catch (Exception e) {
+            logger.error("Failed to drop purchase profiles", e);
+        }
+    }
+
+    private static final class Purchase {
+        private final int productId;
+        private final long units;
+        private final long lastOrderTime;
+
+        private Purchase(int productId, long units, Date lastOrderTime) {
+            this.productId = productId;
+            this.units = units;
+            this.lastOrderTime = (lastOrderTime != null) ? lastOrderTime.getTime() : 0L;
+        }
+    }
+}
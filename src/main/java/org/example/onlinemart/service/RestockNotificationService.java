@@ -0,0 +1,146 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.entity.Product;
+import org.example.onlinemart.transaction.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tells the users watching a product that it is back in stock, so clients can
+ * wait for the notice instead of polling their watchlist.
+ * <p>
+ * A restock is handed to a single dispatcher thread once its transaction commits.
+ * The dispatcher walks the product's watcher set in batches of
+ * {@code watchlist.restock.batchSize} and gives each batch to a pool of
+ * {@code watchlist.restock.parallelism} senders, waiting for a free sender before
+ * reading the next batch, so a product with many watchers never has more than that
+ * many batches in memory or in flight.
+ */
+@Service
+public class RestockNotificationService {
+    private static final Logger logger = LoggerFactory.getLogger(RestockNotificationService.class);
+
+    private final WatchlistIndexService watchlistIndexService;
+    private final NotificationService notificationService;
+
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "restock-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ExecutorService senders;
+    private Semaphore sendPermits;
+
+    @Value("${watchlist.restock.batchSize:500}")
+    private int batchSize = 500;
+
+    @Value("${watchlist.restock.parallelism:4}")
+    private int parallelism = 4;
+
+    @Autowired
+    public RestockNotificationService(WatchlistIndexService watchlistIndexService,
+                                      NotificationService notificationService) {
+        this.watchlistIndexService = watchlistIndexService;
+        this.notificationService = notificationService;
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "restock-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        sendPermits = new Semaphore(parallelism);
+        logger.info("Restock notifications started: {} senders, batches of {}", parallelism, batchSize);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        dispatcher.shutdownNow();
+        senders.shutdown();
+        try {
+            if (!senders.awaitTermination(5, TimeUnit.SECONDS)) {
+                senders.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            senders.shutdownNow();
+        }
+    }
+
+    /**
+     * Notify a product's watchers once the current transaction commits, or right
+     * away when there is none. Call when the product's stock goes from zero to
+     * positive; the caller's thread only queues the work.
+     */
+    public void restockedAfterCommit(Product product) {
+        int productId = product.getProductId();
+        String productName = product.getProductName();
+        int stock = product.getStock();
+
+        AfterCommit.run(() -> dispatch(productId, productName, stock));
+    }
+
+    private void dispatch(int productId, String productName, int stock) {
+        try {
+            dispatcher.execute(() -> fanOut(productId, productName, stock));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Restock notifications are shut down, product {} not announced", productId);
+        }
+    }
+
+    /**
+     * Runs on the dispatcher thread.
+     */
+    void fanOut(int productId, String productName, int stock) {
+        long start = System.currentTimeMillis();
+        int notified;
+        try {
+            notified = watchlistIndexService.forEachWatcherBatch(productId, batchSize,
+                    batch -> send(productId, productName, stock, batch));
+        } catch (RuntimeException e) {
+            logger.error("Restock fan-out failed for product {}", productId, e);
+            return;
+        }
+        logger.info("Restock of product {} dispatched to {} watchers in {} ms",
+                productId, notified, System.currentTimeMillis() - start);
+    }
+
+    private void send(int productId, String productName, int stock, List<Integer> userIds) {
+        try {
+            sendPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while notifying watchers of product " + productId, e);
+        }
+
+        try {
+            senders.execute(() -> {
+                try {
+                    notificationService.notifyRestock(productId, productName, stock, userIds);
+                } finally {
+                    sendPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            sendPermits.release();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.cache.RedisAggregateGuard;
+import org.example.onlinemart.dao.OrderDAO;
+import org.example.onlinemart.dao.OrderItemDAO;
+import org.example.onlinemart.dao.SalesRollupDAO;
+import org.example.onlinemart.dto.RevenueCube;
+import org.example.onlinemart.dto.RevenueMetrics;
+import org.example.onlinemart.entity.Order;
+import org.example.onlinemart.entity.SalesRollup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Revenue metrics of completed orders kept precomputed in one Redis hash under
+ * {@link CacheKeys.AdminSummary#REVENUE_METRICS}.
+ * <p>
+ * The hash is a small cube: order count, units, revenue and cost for the totals,
+ * for each product and for each day of completion, one field per cell and
+ * measure ({@code product:42:revenue}). Completing orders adds to the cells with
+ * HINCRBY/HINCRBYFLOAT once the transaction commits, so reading the totals or a
+ * product's or day's cell is a single HMGET. When the hash is missing, or an
+ * update could not be applied, it is rebuilt from the database under
+ * {@link RedisAggregateGuard}. A day is the date of the order's
+ * {@code completed_at} in the JVM's time zone, as in the daily sales rollups
+ * the rebuild reads.
+ */
+@Service
+public class RevenueCubeService {
+    private static final Logger logger = LoggerFactory.getLogger(RevenueCubeService.class);
+
+    private static final String CUBE_KEY = CacheKeys.AdminSummary.REVENUE_METRICS;
+    private static final String TOTAL = "total:all";
+    private static final String PRODUCT = "product:";
+    private static final String DAY = "day:";
+    private static final String[] MEASURES = {"orders", "units", "revenue", "cost"};
+
+    private final JedisPool jedisPool;
+    private final RedisAggregateGuard aggregateGuard;
+    private final OrderDAO orderDAO;
+    private final OrderItemDAO orderItemDAO;
+    private final SalesRollupDAO salesRollupDAO;
+
+    @Autowired
+    public RevenueCubeService(JedisPool jedisPool,
+                              RedisAggregateGuard aggregateGuard,
+                              OrderDAO orderDAO,
+                              OrderItemDAO orderItemDAO,
+                              SalesRollupDAO salesRollupDAO) {
+        this.jedisPool = jedisPool;
+        this.aggregateGuard = aggregateGuard;
+        this.orderDAO = orderDAO;
+        this.orderItemDAO = orderItemDAO;
+        this.salesRollupDAO = salesRollupDAO;
+    }
+
+    /**
+     * Add newly completed orders to the cube once the current transaction
+     * commits. Call inside that transaction: the orders' lines are summed now.
+     *
+     * @param completedAt The completion time written to the orders
+     */
+    public void recordCompletedAfterCommit(Collection<Integer> orderIds, Date completedAt) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = orderItemDAO.sumSalesByProductForOrders(orderIds);
+        int orderCount = orderIds.size();
+        String day = dayKey(completedAt);
+
+        aggregateGuard.updateAfterCommit(Collections.singletonList(CUBE_KEY),
+                () -> increment(orderCount, day, rows));
+    }
+
+    /**
+     * Order count, units, revenue, cost and profit over all completed orders.
+     */
+    public RevenueMetrics getTotals() {
+        return readCell(TOTAL);
+    }
+
+    /**
+     * Revenue metrics of one product; the order count is the number of completed
+     * orders containing it.
+     */
+    public RevenueMetrics getProductMetrics(int productId) {
+        return readCell(PRODUCT + productId);
+    }
+
+    /**
+     * Revenue metrics of the orders completed on one day.
+     */
+    public RevenueMetrics getDayMetrics(LocalDate day) {
+        return readCell(DAY + day);
+    }
+
+    /**
+     * The whole cube. Its size grows with the number of products and days.
+     */
+    public RevenueCube getCube() {
+        Map<String, String> fields;
+        try (Jedis jedis = jedisPool.getResource()) {
+            fields = jedis.hgetAll(CUBE_KEY);
+        }
+        if (fields.isEmpty()) {
+            // Answer from the cells just computed, whether or not they could be published
+            try (Jedis jedis = jedisPool.getResource()) {
+                fields = rebuild(jedis);
+            }
+        }
+
+        Map<String, Map<String, String>> cells = new HashMap<>();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            int split = field.getKey().lastIndexOf(':');
+            cells.computeIfAbsent(field.getKey().substring(0, split), cell -> new HashMap<>())
+                    .put(field.getKey().substring(split + 1), field.getValue());
+        }
+
+        RevenueMetrics totals = new RevenueMetrics(0L, 0L, 0.0, 0.0);
+        Map<Integer, RevenueMetrics> byProduct = new TreeMap<>();
+        Map<String, RevenueMetrics> byDay = new TreeMap<>();
+        for (Map.Entry<String, Map<String, String>> cell : cells.entrySet()) {
+            Map<String, String> measures = cell.getValue();
+            RevenueMetrics metrics = toMetrics(measures.get("orders"), measures.get("units"),
+                    measures.get("revenue"), measures.get("cost"));
+            if (cell.getKey().equals(TOTAL)) {
+                totals = metrics;
+            } else if (cell.getKey().startsWith(PRODUCT)) {
+                byProduct.put(Integer.parseInt(cell.getKey().substring(PRODUCT.length())), metrics);
+            } else if (cell.getKey().startsWith(DAY)) {
+                byDay.put(cell.getKey().substring(DAY.length()), metrics);
+            }
+        }
+        return new RevenueCube(totals, byProduct, byDay);
+    }
+
+    /**
+     * Recompute the cube from the database.
+     *
+     * @return The number of cells in the cube
+     */
+    public int rebuild() {
+        try (Jedis jedis = jedisPool.getResource()) {
+            return rebuild(jedis).size() / MEASURES.length;
+        }
+    }
+
+    /**
+     * Recompute the cube from the database: totals from the stored order totals,
+     * products from the order lines and days from the daily sales rollups. The new
+     * hash is written under a temporary key and renamed over the old one; it is
+     * not published if orders were completed while the database was read.
+     *
+     * @return The cube's fields
+     */
+    private Map<String, String> rebuild(Jedis jedis) {
+        String snapshot = aggregateGuard.snapshot(jedis, CUBE_KEY);
+        Map<String, String> fields = new HashMap<>();
+
+        RevenueMetrics totals = orderDAO.sumTotals(Order.OrderStatus.Completed);
+        putCell(fields, TOTAL, totals.getOrderCount(), totals.getItemCount(),
+                totals.getTotalRevenue(), totals.getTotalCost());
+        for (Object[] row : orderItemDAO.sumSalesByProduct()) {
+            putCell(fields, PRODUCT + row[0], ((Number) row[1]).longValue(), ((Number) row[2]).longValue(),
+                    ((Number) row[3]).doubleValue(), ((Number) row[4]).doubleValue());
+        }
+        for (SalesRollup bucket : salesRollupDAO.findByGranularity(SalesRollup.DAY)) {
+            putCell(fields, DAY + dayKey(bucket.getKey().getBucketStart()), bucket.getOrderCount(),
+                    bucket.getUnits(), bucket.getRevenue(), bucket.getCost());
+        }
+
+        if (snapshot != null) {
+            String tempKey = RedisAggregateGuard.rebuildKey(CUBE_KEY);
+            jedis.del(tempKey);
+            jedis.hset(tempKey, fields);
+            if (aggregateGuard.publish(jedis, CUBE_KEY, snapshot, 0, CUBE_KEY)) {
+                logger.info("Rebuilt revenue cube with {} cells", fields.size() / MEASURES.length);
+            }
+        }
+        return fields;
+    }
+
+    private RevenueMetrics readCell(String cell) {
+        String[] fields = new String[MEASURES.length];
+        for (int i = 0; i < MEASURES.length; i++) {
+            fields[i] = cell + ":" + MEASURES[i];
+        }
+
+        List<String> values;
+        try (Jedis jedis = jedisPool.getResource()) {
+            if (jedis.exists(CUBE_KEY)) {
+                values = jedis.hmget(CUBE_KEY, fields);
+            } else {
+                Map<String, String> rebuilt = rebuild(jedis);
+                values = new ArrayList<>(fields.length);
+                for (String field : fields) {
+                    values.add(rebuilt.get(field));
+                }
+            }
+        }
+        return toMetrics(values.get(0), values.get(1), values.get(2), values.get(3));
+    }
+
+    private void increment(int orderCount, String day, List<Object[]> rows) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            if (!jedis.exists(CUBE_KEY)) {
+                // Not built yet: the next read loads it from the database, which already has these orders
+                return;
+            }
+
+            long units = 0;
+            double revenue = 0;
+            double cost = 0;
+            Pipeline pipeline = jedis.pipelined();
+            for (Object[] row : rows) {
+                long productUnits = ((Number) row[2]).longValue();
+                double productRevenue = ((Number) row[3]).doubleValue();
+                double productCost = ((Number) row[4]).doubleValue();
+                incrementCell(pipeline, PRODUCT + row[0], ((Number) row[1]).longValue(),
+                        productUnits, productRevenue, productCost);
+                units += productUnits;
+                revenue += productRevenue;
+                cost += productCost;
+            }
+            incrementCell(pipeline, TOTAL, orderCount, units, revenue, cost);
+            incrementCell(pipeline, DAY + day, orderCount, units, revenue, cost);
+            pipeline.sync();
+        } catch (Exception e) {
+            logger.warn("Failed to update revenue cube, dropping it for a rebuild", e);
+            dropCube();
+        }
+    }
+
+    private static void incrementCell(Pipeline pipeline, String cell, long orders, long units,
+                                      double revenue, double cost) {
+        pipeline.hincrBy(CUBE_KEY, cell + ":orders", orders);
+        pipeline.hincrBy(CUBE_KEY, cell + ":units", units);
+        pipeline.hincrByFloat(CUBE_KEY, cell + ":revenue", revenue);
+        pipeline.hincrByFloat(CUBE_KEY, cell + ":cost", cost);
+    }
+
+    private static void putCell(Map<String, String> fields, String cell, long orders, long units,
+                                double revenue, double cost) {
+        fields.put(cell + ":orders", String.valueOf(orders));
+        fields.put(cell + ":units", String.valueOf(units));
+        fields.put(cell + ":revenue", String.valueOf(revenue));
+        fields.put(cell + ":cost", String.valueOf(cost));
+    }
+
+    private static RevenueMetrics toMetrics(String orders, String units, String revenue, String cost) {
+        return new RevenueMetrics(
+                (orders != null) ? Long.valueOf(orders) : null,
+                (units != null) ? Long.valueOf(units) : null,
+                (revenue != null) ? Double.valueOf(revenue) : null,
+                (cost != null) ? Double.valueOf(cost) : null);
+    }
+
+    private static String dayKey(Date day) {
+        return new SimpleDateFormat("yyyy-MM-dd").format(day);
+    }
+
+    private void dropCube() {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.del(CUBE_KEY);
+        } catch (Exception e) {
+            logger.error("Failed to drop revenue cube", e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.cache.CacheService;
+import org.example.onlinemart.dao.SalesRollupDAO;
+import org.example.onlinemart.dto.RevenueMetrics;
+import org.example.onlinemart.entity.SalesRollup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Date-range sales reporting over hourly and daily rollup buckets.
+ * <p>
+ * A range is answered from daily buckets for the whole days inside it and from
+ * hourly buckets for the partial days at either end, so a one-year report reads
+ * about 365 daily rows plus at most 46 hourly ones. Ranges are widened to whole
+ * hours. Buckets are filled as orders complete, by the order's {@code completed_at},
+ * and like the range bounds are wall-clock times in the JVM's time zone.
+ */
+@Service
+@Transactional(readOnly = true)
+public class SalesRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+    private final SalesRollupDAO salesRollupDAO;
+    private final CacheService cacheService;
+
+    @Value("${redis.cache.adminSummary.TTL:120}")
+    private long adminSummaryCacheTTL;
+
+    @Autowired
+    public SalesRollupService(SalesRollupDAO salesRollupDAO, CacheService cacheService) {
+        this.salesRollupDAO = salesRollupDAO;
+        this.cacheService = cacheService;
+    }
+
+    /**
+     * Add newly completed orders to the buckets of their completion time; call
+     * inside the transaction that completes them.
+     *
+     * @param completedAt The completion time written to the orders
+     */
+    @Transactional
+    public void recordCompleted(Collection<Integer> orderIds, Date completedAt) {
+        salesRollupDAO.applyCompletedOrders(orderIds, completedAt);
+    }
+
+    /**
+     * Sales of orders completed in [from, to).
+     *
+     * @param from Start of the range, rounded down to the hour
+     * @param to End of the range, rounded up to the hour
+     * @return Order count, units, revenue, cost and profit in the range
+     */
+    public RevenueMetrics getSales(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = from.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = to.truncatedTo(ChronoUnit.HOURS);
+        if (end.isBefore(to)) {
+            end = end.plusHours(1);
+        }
+        if (!start.isBefore(end)) {
+            return new RevenueMetrics(0L, 0L, 0.0, 0.0);
+        }
+
+        // Only ranges that have fully ended are cached; the current hour is still filling up
+        boolean closed = !end.isAfter(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS));
+        String cacheKey = CacheKeys.AdminSummary.salesByDateRange(start.toString(), end.toString());
+        if (closed) {
+            Optional<RevenueMetrics> cached = cacheService.get(cacheKey, RevenueMetrics.class);
+            if (cached.isPresent()) {
+                logger.debug("Cache hit for sales {} to {}", start, end);
+                return cached.get();
+            }
+        }
+
+        RevenueMetrics sales = sumRange(start, end);
+        if (closed) {
+            cacheService.set(cacheKey, sales, adminSummaryCacheTTL, TimeUnit.SECONDS);
+        }
+        return sales;
+    }
+
+    /**
+     * Recompute all rollup buckets from the completed orders.
+     *
+     * @return The number of buckets written
+     */
+    @Transactional
+    public int rebuild() {
+        int buckets = salesRollupDAO.rebuild();
+        logger.info("Rebuilt {} sales rollup buckets", buckets);
+        return buckets;
+    }
+
+    private RevenueMetrics sumRange(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime firstWholeDay = start.truncatedTo(ChronoUnit.DAYS);
+        if (firstWholeDay.isBefore(start)) {
+            firstWholeDay = firstWholeDay.plusDays(1);
+        }
+        LocalDateTime lastWholeDayEnd = end.truncatedTo(ChronoUnit.DAYS);
+
+        if (!firstWholeDay.isBefore(lastWholeDayEnd)) {
+            return sum(SalesRollup.HOUR, start, end);
+        }
+
+        RevenueMetrics total = sum(SalesRollup.DAY, firstWholeDay, lastWholeDayEnd);
+        if (start.isBefore(firstWholeDay)) {
+            total = add(total, sum(SalesRollup.HOUR, start, firstWholeDay));
+        }
+        if (lastWholeDayEnd.isBefore(end)) {
+            total = add(total, sum(SalesRollup.HOUR, lastWholeDayEnd, end));
+        }
+        return total;
+    }
+
+    private RevenueMetrics sum(String granularity, LocalDateTime from, LocalDateTime to) {
+        return salesRollupDAO.sumBuckets(granularity, toDate(from), toDate(to));
+    }
+
+    private static RevenueMetrics add(RevenueMetrics a, RevenueMetrics b) {
+        return new RevenueMetrics(
+                a.getOrderCount() + b.getOrderCount(),
+                a.getItemCount() + b.getItemCount(),
+                a.getTotalRevenue() + b.getTotalRevenue(),
+                a.getTotalCost() + b.getTotalCost());
+    }
+
+    private static Date toDate(LocalDateTime time) {
+        return Date.from(time.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,270 @@
+package org.example.onlinemart.service;
+
+import com.google.gson.Gson;
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.dto.TrendingProductResult;
+import org.example.onlinemart.dto.TrendingProducts;
+import org.example.onlinemart.entity.Product;
+import org.example.onlinemart.sketch.SpaceSavingSketch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Approximate top products of the last hour and the last day, in fixed memory.
+ * <p>
+ * Units from completed orders are fed, after commit, into a
+ * {@link SpaceSavingSketch} per time slice: five-minute slices for the hour
+ * window and hourly slices for the day window. Every
+ * {@code popularity.trending.flushMillis} each instance writes its current
+ * sketches to a Redis hash per slice, one field per instance. A query merges the
+ * sketches of all instances over the slices of the window, so answers cover the
+ * whole cluster but lag by up to one flush interval. Windows are aligned to
+ * slice boundaries: "last hour" is the current five-minute slice and the eleven
+ * before it.
+ */
+@Service
+public class TrendingProductService {
+    private static final Logger logger = LoggerFactory.getLogger(TrendingProductService.class);
+
+    private final JedisPool jedisPool;
+    private final ProductService productService;
+    private final Gson gson = new Gson();
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "trending-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this
+    private final Map<Window, Slice> currentSlices = new EnumMap<>(Window.class);
+    private final List<Slice> closedSlices = new ArrayList<>();
+
+    @Value("${popularity.trending.capacity:100}")
+    private int capacity;
+
+    @Value("${popularity.trending.flushMillis:5000}")
+    private long flushMillis;
+
+    @Autowired
+    public TrendingProductService(JedisPool jedisPool, ProductService productService) {
+        this.jedisPool = jedisPool;
+        this.productService = productService;
+    }
+
+    @PostConstruct
+    public void init() {
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        flusher.shutdownNow();
+        flushQuietly();
+    }
+
+    /**
+     * Count units toward the trending windows once the current transaction
+     * commits, or right away when there is none.
+     *
+     * @param unitsByProduct Product IDs mapped to the units sold
+     */
+    public void recordAfterCommit(Map<Integer, Long> unitsByProduct) {
+        if (unitsByProduct.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(unitsByProduct);
+            return;
+        }
+
+        Map<Integer, Long> units = new HashMap<>(unitsByProduct);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(units);
+            }
+        });
+    }
+
+    /**
+     * The top products of a window across all instances.
+     *
+     * @param window {@code hour} or {@code day}
+     * @param k How many products to return
+     * @return Up to k products, highest estimate first, with the error bounds
+     */
+    public TrendingProducts top(String window, int k) {
+        Window w = Window.of(window);
+        long newest = w.sliceStart(System.currentTimeMillis());
+        long oldest = newest - (w.slices - 1) * w.sliceMillis;
+
+        List<Response<Map<String, String>>> responses = new ArrayList<>(w.slices);
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            for (long start = oldest; start <= newest; start += w.sliceMillis) {
+                responses.add(pipeline.hgetAll(CacheKeys.AdminSummary.trendingSlice(w.label, start)));
+            }
+            pipeline.sync();
+        }
+
+        SpaceSavingSketch merged = new SpaceSavingSketch(capacity);
+        for (Response<Map<String, String>> response : responses) {
+            for (String json : response.get().values()) {
+                merged.merge(gson.fromJson(json, SpaceSavingSketch.class));
+            }
+        }
+
+        List<Map.Entry<Integer, SpaceSavingSketch.Counter>> top = merged.top(k);
+        List<Integer> productIds = new ArrayList<>(top.size());
+        for (Map.Entry<Integer, SpaceSavingSketch.Counter> entry : top) {
+            productIds.add(entry.getKey());
+        }
+        Map<Integer, String> names = new HashMap<>();
+        for (Product product : productService.findByIds(productIds)) {
+            names.put(product.getProductId(), product.getProductName());
+        }
+
+        List<TrendingProductResult> products = new ArrayList<>(top.size());
+        for (Map.Entry<Integer, SpaceSavingSketch.Counter> entry : top) {
+            products.add(new TrendingProductResult(entry.getKey(), names.get(entry.getKey()),
+                    entry.getValue().getCount(), entry.getValue().getError()));
+        }
+        return new TrendingProducts(w.label, new Date(oldest), merged.getTotal(), capacity,
+                merged.getErrorBound(), products);
+    }
+
+    private synchronized void record(Map<Integer, Long> unitsByProduct) {
+        long now = System.currentTimeMillis();
+        for (Window w : Window.values()) {
+            long start = w.sliceStart(now);
+            Slice slice = currentSlices.get(w);
+            if (slice == null || slice.start != start) {
+                if (slice != null && slice.dirty) {
+                    closedSlices.add(slice);
+                }
+                slice = new Slice(w, start, new SpaceSavingSketch(capacity));
+                currentSlices.put(w, slice);
+            }
+            for (Map.Entry<Integer, Long> entry : unitsByProduct.entrySet()) {
+                slice.sketch.offer(entry.getKey(), entry.getValue());
+            }
+            slice.dirty = true;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            // The sketches stay dirty and are written on the next run
+            logger.warn("Failed to flush trending product sketches", e);
+        }
+    }
+
+    private void flush() {
+        Map<String, String> writes = new HashMap<>();
+        Map<String, Long> ttls = new HashMap<>();
+        Map<Slice, Long> flushedTotals = new HashMap<>();
+        synchronized (this) {
+            List<Slice> dirty = new ArrayList<>(closedSlices);
+            for (Slice slice : currentSlices.values()) {
+                if (slice.dirty) {
+                    dirty.add(slice);
+                }
+            }
+            for (Slice slice : dirty) {
+                String key = CacheKeys.AdminSummary.trendingSlice(slice.window.label, slice.start);
+                writes.put(key, gson.toJson(slice.sketch));
+                ttls.put(key, slice.window.slices * slice.window.sliceMillis + slice.window.sliceMillis);
+                flushedTotals.put(slice, slice.sketch.getTotal());
+            }
+        }
+        if (writes.isEmpty()) {
+            return;
+        }
+
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            for (Map.Entry<String, String> write : writes.entrySet()) {
+                pipeline.hset(write.getKey(), nodeId, write.getValue());
+                pipeline.pexpire(write.getKey(), ttls.get(write.getKey()));
+            }
+            pipeline.sync();
+        }
+
+        synchronized (this) {
+            // A slice updated while its snapshot was being written stays dirty
+            for (Map.Entry<Slice, Long> entry : flushedTotals.entrySet()) {
+                if (entry.getKey().sketch.getTotal() == entry.getValue()) {
+                    entry.getKey().dirty = false;
+                }
+            }
+            closedSlices.removeIf(slice -> !slice.dirty);
+        }
+    }
+
+    private enum Window {
+        HOUR("hour", TimeUnit.MINUTES.toMillis(5), 12),
+        DAY("day", TimeUnit.HOURS.toMillis(1), 24);
+
+        private final String label;
+        private final long sliceMillis;
+        private final int slices;
+
+        Window(String label, long sliceMillis, int slices) {
+            this.label = label;
+            this.sliceMillis = sliceMillis;
+            this.slices = slices;
+        }
+
+        private long sliceStart(long time) {
+            return time - Math.floorMod(time, sliceMillis);
+        }
+
+        private static Window of(String label) {
+            for (Window window : values()) {
+                if (window.label.equalsIgnoreCase(label)) {
+                    return window;
+                }
+            }
+            throw new RuntimeException("Unknown trending window: " + label + ", expected hour or day");
+        }
+    }
+
+    private static final class Slice {
+        private final Window window;
+        private final long start;
+        private final SpaceSavingSketch sketch;
+        private boolean dirty;
+
+        private Slice(Window window, long start, SpaceSavingSketch sketch) {
+            this.window = window;
+            this.start = start;
+            this.sketch = sketch;
+        }
+    }
+}
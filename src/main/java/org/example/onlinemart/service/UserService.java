@@ -1,6 +1,6 @@
 package org.example.onlinemart.service;
 
-import org.example.onlinemart.entity.Product;
+import org.example.onlinemart.dto.ProductSummary;
 import org.example.onlinemart.entity.User;
 
 import java.util.List;
@@ -15,6 +15,9 @@ public interface UserService {
     User updateUser(int userId, User updates);
     User changeUserRole(int userId, User.Role newRole);
 
-    List<Product> getWatchlistProductsInStock(int userId);
+    /**
+     * The in-stock products on a user's watchlist, ordered by product ID.
+     */
+    List<ProductSummary> getWatchlistProductsInStock(int userId);
 }
 
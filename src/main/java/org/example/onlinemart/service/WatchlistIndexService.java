@@ -0,0 +1,352 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.cache.RedisAggregateGuard;
+import org.example.onlinemart.dao.ProductDAO;
+import org.example.onlinemart.dao.WatchlistDAO;
+import org.example.onlinemart.transaction.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Redis sets that answer "which of my watched products are in stock" without MySQL.
+ * <p>
+ * Each user's watched product IDs are one set and the IDs of every product with
+ * stock are another; the answer is their SINTER. A user's set is loaded from the
+ * database on first read and the in-stock set once, then both are kept current
+ * after each committed change. Each product also has the reverse set, the IDs of
+ * the users watching it, which restock notices are sent from. Changes only touch a
+ * set that is already loaded, so a missing set is always loaded whole. A set that
+ * could not be updated is dropped so it is loaded again. Watch and unwatch go
+ * through {@link RedisAggregateGuard}, so a watchlist or watcher set loaded while
+ * one commits is discarded rather than published without it.
+ */
+@Service
+public class WatchlistIndexService {
+    private static final Logger logger = LoggerFactory.getLogger(WatchlistIndexService.class);
+
+    private static final String IN_STOCK_KEY = CacheKeys.Products.IN_STOCK_IDS;
+
+    // Keep a loaded set in existence when it has no IDs; the two differ, so SINTER drops both
+    private static final String WATCHLIST_MARKER = "watchlist";
+    private static final String IN_STOCK_MARKER = "in-stock";
+    private static final String WATCHERS_MARKER = "watchers";
+
+    /**
+     * Runs the command in ARGV[1] ({@code sadd} or {@code srem}) on the set in
+     * KEYS[1] with the members in ARGV[2..n], but only if the set exists.
+     * Returns 1 if it was applied.
+     */
+    private static final String UPDATE_IF_LOADED_SCRIPT =
+            "if redis.call('exists', KEYS[1]) == 0 then return 0 end " +
+            "local command = table.remove(ARGV, 1) " +
+            "if #ARGV > 0 then redis.call(command, KEYS[1], unpack(ARGV)) end " +
+            "return 1";
+
+    private final JedisPool jedisPool;
+    private final RedisAggregateGuard aggregateGuard;
+    private final WatchlistDAO watchlistDAO;
+    private final ProductDAO productDAO;
+
+    @Value("${watchlist.index.TTL:86400}")
+    private long watchlistTTL = 86400;
+
+    // Reloading now and then bounds any drift from changes that raced a load
+    @Value("${watchlist.index.inStockTTL:3600}")
+    private long inStockTTL = 3600;
+
+    @Autowired
+    public WatchlistIndexService(JedisPool jedisPool, RedisAggregateGuard aggregateGuard,
+                                 WatchlistDAO watchlistDAO, ProductDAO productDAO) {
+        this.jedisPool = jedisPool;
+        this.aggregateGuard = aggregateGuard;
+        this.watchlistDAO = watchlistDAO;
+        this.productDAO = productDAO;
+    }
+
+    /**
+     * The in-stock products on a user's watchlist.
+     *
+     * @param userId The user
+     * @return The product IDs in ascending order, or empty if Redis is unavailable
+     */
+    public Optional<List<Integer>> findInStockProductIds(int userId) {
+        String watchlistKey = CacheKeys.Users.watchlistIds(userId);
+        try (Jedis jedis = jedisPool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            Response<Boolean> watchlistLoaded = pipeline.exists(watchlistKey);
+            Response<Boolean> inStockLoaded = pipeline.exists(IN_STOCK_KEY);
+            Response<Set<String>> intersection = pipeline.sinter(watchlistKey, IN_STOCK_KEY);
+            pipeline.sync();
+
+            Set<String> members = intersection.get();
+            if (!inStockLoaded.get()) {
+                loadInStock(jedis);
+            }
+            List<Integer> productIds = new ArrayList<>(members.size());
+            if (!watchlistLoaded.get()) {
+                // Answer from the watchlist just read, whether or not it could be published
+                productIds = filterInStock(jedis, loadWatchlist(jedis, userId));
+            } else {
+                if (!inStockLoaded.get()) {
+                    members = jedis.sinter(watchlistKey, IN_STOCK_KEY);
+                }
+                for (String member : members) {
+                    productIds.add(Integer.parseInt(member));
+                }
+            }
+            Collections.sort(productIds);
+            return Optional.of(productIds);
+        } catch (JedisException e) {
+            logger.warn("Watchlist index unavailable for user {}", userId, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Hand the users watching a product to {@code consumer} in batches of up to
+     * {@code batchSize}, walking the watcher set with SSCAN so it is never read
+     * whole. Without Redis the watchers are read from the database instead. If
+     * the set is resized mid-walk a user may be handed over twice.
+     *
+     * @param productId The product
+     * @param batchSize The most user IDs per batch
+     * @param consumer Called once per batch, on the calling thread
+     * @return The number of user IDs handed over
+     */
+    public int forEachWatcherBatch(int productId, int batchSize, Consumer<List<Integer>> consumer) {
+        String key = CacheKeys.Products.watchers(productId);
+        int handed = 0;
+        try (Jedis jedis = jedisPool.getResource()) {
+            if (!jedis.exists(key)) {
+                // The watchers were just read whole, whether or not they could be published
+                return handOver(loadWatchers(jedis, productId), batchSize, consumer);
+            }
+
+            ScanParams params = new ScanParams().count(batchSize);
+            List<Integer> batch = new ArrayList<>(batchSize);
+            String cursor = ScanParams.SCAN_POINTER_START;
+            do {
+                ScanResult<String> page = jedis.sscan(key, cursor, params);
+                for (String member : page.getResult()) {
+                    if (WATCHERS_MARKER.equals(member)) {
+                        continue;
+                    }
+                    batch.add(Integer.parseInt(member));
+                    if (batch.size() == batchSize) {
+                        consumer.accept(batch);
+                        handed += batch.size();
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                cursor = page.getCursor();
+            } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+
+            if (!batch.isEmpty()) {
+                consumer.accept(batch);
+                handed += batch.size();
+            }
+            return handed;
+        } catch (JedisException e) {
+            if (handed > 0) {
+                // Starting over from the database would repeat the batches already handed over
+                logger.error("Watcher index failed for product {} after {} users, stopping", productId, handed, e);
+                return handed;
+            }
+            logger.warn("Watcher index unavailable for product {}, reading watchers from the database", productId, e);
+        }
+
+        return handOver(watchlistDAO.findUserIdsByProductId(productId), batchSize, consumer);
+    }
+
+    private static int handOver(List<Integer> userIds, int batchSize, Consumer<List<Integer>> consumer) {
+        for (int from = 0; from < userIds.size(); from += batchSize) {
+            consumer.accept(new ArrayList<>(userIds.subList(from, Math.min(from + batchSize, userIds.size()))));
+        }
+        return userIds.size();
+    }
+
+    /**
+     * Add a product to a user's watchlist set once the current transaction
+     * commits, or right away when there is none.
+     */
+    public void watchedAfterCommit(int userId, int productId) {
+        aggregateGuard.updateAfterCommit(watchKeys(userId, productId), () -> updateWatchlist(userId, "sadd", productId));
+    }
+
+    /**
+     * Remove a product from a user's watchlist set once the current transaction
+     * commits, or right away when there is none.
+     */
+    public void unwatchedAfterCommit(int userId, int productId) {
+        aggregateGuard.updateAfterCommit(watchKeys(userId, productId), () -> updateWatchlist(userId, "srem", productId));
+    }
+
+    private static List<String> watchKeys(int userId, int productId) {
+        return Arrays.asList(CacheKeys.Users.watchlistIds(userId), CacheKeys.Products.watchers(productId));
+    }
+
+    /**
+     * Move products into or out of the in-stock set once the current transaction
+     * commits, or right away when there is none. Call wherever stock may cross zero.
+     *
+     * @param inStock Products that now have stock
+     * @param outOfStock Products that now have none
+     */
+    public void stockChangedAfterCommit(Collection<Integer> inStock, Collection<Integer> outOfStock) {
+        if (inStock.isEmpty() && outOfStock.isEmpty()) {
+            return;
+        }
+        List<Integer> added = new ArrayList<>(inStock);
+        List<Integer> removed = new ArrayList<>(outOfStock);
+        AfterCommit.run(() -> updateInStock(added, removed));
+    }
+
+    /**
+     * @return The user's watched product IDs, as read from the database
+     */
+    private List<Integer> loadWatchlist(Jedis jedis, int userId) {
+        String key = CacheKeys.Users.watchlistIds(userId);
+        String snapshot = aggregateGuard.snapshot(jedis, key);
+        List<Integer> productIds = watchlistDAO.findProductIdsByUserId(userId);
+        if (snapshot != null && publishSet(jedis, key, snapshot, WATCHLIST_MARKER, productIds)) {
+            logger.debug("Loaded watchlist index for user {} with {} products", userId, productIds.size());
+        }
+        return productIds;
+    }
+
+    /**
+     * @return The IDs of the users watching the product, as read from the database
+     */
+    private List<Integer> loadWatchers(Jedis jedis, int productId) {
+        String key = CacheKeys.Products.watchers(productId);
+        String snapshot = aggregateGuard.snapshot(jedis, key);
+        List<Integer> userIds = watchlistDAO.findUserIdsByProductId(productId);
+        if (snapshot != null && publishSet(jedis, key, snapshot, WATCHERS_MARKER, userIds)) {
+            logger.debug("Loaded watcher index for product {} with {} users", productId, userIds.size());
+        }
+        return userIds;
+    }
+
+    private void loadInStock(Jedis jedis) {
+        List<Integer> productIds = productDAO.findInStockIds();
+        String tempKey = RedisAggregateGuard.rebuildKey(IN_STOCK_KEY);
+        writeSet(jedis, tempKey, IN_STOCK_MARKER, productIds);
+        Pipeline pipeline = jedis.pipelined();
+        pipeline.rename(tempKey, IN_STOCK_KEY);
+        pipeline.expire(IN_STOCK_KEY, inStockTTL);
+        pipeline.sync();
+        logger.info("Loaded in-stock index with {} products", productIds.size());
+    }
+
+    /**
+     * Write a watch set under its temporary key and rename it over the live one
+     * unless a watch or unwatch of it committed since the snapshot.
+     */
+    private boolean publishSet(Jedis jedis, String key, String snapshot, String marker, Collection<Integer> ids) {
+        writeSet(jedis, RedisAggregateGuard.rebuildKey(key), marker, ids);
+        return aggregateGuard.publish(jedis, key, snapshot, watchlistTTL, key);
+    }
+
+    /**
+     * Write a set under a temporary key, so readers never see it half built.
+     */
+    private static void writeSet(Jedis jedis, String tempKey, String marker, Collection<Integer> ids) {
+        String[] members = new String[ids.size() + 1];
+        members[0] = marker;
+        int i = 1;
+        for (Integer id : ids) {
+            members[i++] = String.valueOf(id);
+        }
+
+        Pipeline pipeline = jedis.pipelined();
+        pipeline.del(tempKey);
+        pipeline.sadd(tempKey, members);
+        pipeline.sync();
+    }
+
+    /**
+     * The given product IDs that are in the in-stock set, in one round trip.
+     */
+    private static List<Integer> filterInStock(Jedis jedis, List<Integer> productIds) {
+        Pipeline pipeline = jedis.pipelined();
+        List<Response<Boolean>> inStock = new ArrayList<>(productIds.size());
+        for (Integer productId : productIds) {
+            inStock.add(pipeline.sismember(IN_STOCK_KEY, String.valueOf(productId)));
+        }
+        pipeline.sync();
+
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < productIds.size(); i++) {
+            if (inStock.get(i).get()) {
+                result.add(productIds.get(i));
+            }
+        }
+        return result;
+    }
+
+    private void updateWatchlist(int userId, String command, int productId) {
+        String watchlistKey = CacheKeys.Users.watchlistIds(userId);
+        String watchersKey = CacheKeys.Products.watchers(productId);
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.eval(UPDATE_IF_LOADED_SCRIPT, Collections.singletonList(watchlistKey),
+                    Arrays.asList(command, String.valueOf(productId)));
+            jedis.eval(UPDATE_IF_LOADED_SCRIPT, Collections.singletonList(watchersKey),
+                    Arrays.asList(command, String.valueOf(userId)));
+        } catch (JedisException e) {
+            logger.warn("Failed to update watchlist index for user {} and product {}, dropping it for a reload",
+                    userId, productId, e);
+            drop(watchlistKey, watchersKey);
+        }
+    }
+
+    private void updateInStock(List<Integer> added, List<Integer> removed) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            if (!added.isEmpty()) {
+                jedis.eval(UPDATE_IF_LOADED_SCRIPT, Collections.singletonList(IN_STOCK_KEY), scriptArgs("sadd", added));
+            }
+            if (!removed.isEmpty()) {
+                jedis.eval(UPDATE_IF_LOADED_SCRIPT, Collections.singletonList(IN_STOCK_KEY), scriptArgs("srem", removed));
+            }
+        } catch (JedisException e) {
+            logger.warn("Failed to update in-stock index, dropping it for a reload", e);
+            drop(IN_STOCK_KEY);
+        }
+    }
+
+    private static List<String> scriptArgs(String command, List<Integer> productIds) {
+        List<String> args = new ArrayList<>(productIds.size() + 1);
+        args.add(command);
+        for (Integer productId : productIds) {
+            args.add(String.valueOf(productId));
+        }
+        return args;
+    }
+
+    private void drop(String... keys) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.del(keys);
+        } catch (JedisException e) {
+            logger.error("Failed to drop index {}", Arrays.toString(keys), e);
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package org.example.onlinemart.service.impl;
 
 
+import org.example.onlinemart.aop.OptimisticRetry;
 import org.example.onlinemart.cache.CacheKeys;
 import org.example.onlinemart.cache.CacheService;
 
 import org.example.onlinemart.dao.OrderDAO;
 import org.example.onlinemart.dao.OrderItemDAO;
 import org.example.onlinemart.dao.ProductDAO;
+import org.example.onlinemart.dao.ProductSalesStatsDAO;
 import org.example.onlinemart.dao.UserDAO;
+import org.example.onlinemart.dto.BulkOrderResult;
 import org.example.onlinemart.entity.Order;
 import org.example.onlinemart.entity.OrderItem;
 import org.example.onlinemart.entity.Product;
@@ -15,20 +18,39 @@ import org.example.onlinemart.entity.User;
 import org.example.onlinemart.entity.Order.OrderStatus;
 import org.example.onlinemart.exception.CacheException;
 import org.example.onlinemart.exception.NotEnoughInventoryException;
+import org.example.onlinemart.report.OrderLineStore;
+import org.example.onlinemart.service.InventoryLockService;
 import org.example.onlinemart.service.OrderService;
+import org.example.onlinemart.service.OutboxService;
+import org.example.onlinemart.service.ProductLeaderboardService;
+import org.example.onlinemart.service.PurchaseProfileService;
+import org.example.onlinemart.service.RevenueCubeService;
+import org.example.onlinemart.service.SalesRollupService;
+import org.example.onlinemart.service.TrendingProductService;
+import org.example.onlinemart.service.WatchlistIndexService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import org.hibernate.Hibernate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 
 import static sun.plugin2.util.PojoUtil.toJson;
@@ -39,41 +61,122 @@ public class OrderServiceImpl implements OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderServiceImpl.class);
 
+    private static final String HOT_SKU_LOCKS_RESOURCE = OrderServiceImpl.class.getName() + ".hotSkuLocks";
+
     private final OrderDAO orderDAO;
     private final OrderItemDAO orderItemDAO;
     private final ProductDAO productDAO;
     private final UserDAO userDAO;
+    private final ProductSalesStatsDAO productSalesStatsDAO;
 
     private final CacheService cacheService;
+    private final InventoryLockService inventoryLockService;
+    private final OutboxService outboxService;
+    private final ProductLeaderboardService productLeaderboardService;
+    private final SalesRollupService salesRollupService;
+    private final TrendingProductService trendingProductService;
+    private final RevenueCubeService revenueCubeService;
+    private final PurchaseProfileService purchaseProfileService;
+    private final WatchlistIndexService watchlistIndexService;
+    private final OrderLineStore orderLineStore;
 
     @Value("${redis.cache.orders.TTL:60}")
     private long orderCacheTTL;
 
+    @Value("${order.bulk.batchSize:500}")
+    private int bulkBatchSize = 500;
+
+    @Value("${inventory.lock.hotSku.enabled:false}")
+    private boolean hotSkuLockingEnabled;
+
+    // Products that need locking before checkout; empty means every product in the order
+    @Value("${inventory.lock.hotSku.productIds:}")
+    private Set<Integer> hotSkuProductIds = Collections.emptySet();
+
+    @Value("${inventory.lock.acquireWaitMillis:2000}")
+    private long lockAcquireWaitMillis;
+
+    @Value("${inventory.lock.retryIntervalMillis:50}")
+    private long lockRetryIntervalMillis;
+
     @Autowired
     public OrderServiceImpl(OrderDAO orderDAO, OrderItemDAO orderItemDAO,
                             ProductDAO productDAO, UserDAO userDAO,
-                            CacheService cacheService) {
+                            ProductSalesStatsDAO productSalesStatsDAO,
+                            CacheService cacheService,
+                            InventoryLockService inventoryLockService,
+                            OutboxService outboxService,
+                            ProductLeaderboardService productLeaderboardService,
+                            SalesRollupService salesRollupService,
+                            TrendingProductService trendingProductService,
+                            RevenueCubeService revenueCubeService,
+                            PurchaseProfileService purchaseProfileService,
+                            WatchlistIndexService watchlistIndexService,
+                            OrderLineStore orderLineStore) {
         this.orderDAO = orderDAO;
         this.orderItemDAO = orderItemDAO;
         this.productDAO = productDAO;
         this.userDAO = userDAO;
+        this.productSalesStatsDAO = productSalesStatsDAO;
 
         this.cacheService = cacheService;
-
+        this.inventoryLockService = inventoryLockService;
+        this.outboxService = outboxService;
+        this.productLeaderboardService = productLeaderboardService;
+        this.salesRollupService = salesRollupService;
+        this.trendingProductService = trendingProductService;
+        this.revenueCubeService = revenueCubeService;
+        this.purchaseProfileService = purchaseProfileService;
+        this.watchlistIndexService = watchlistIndexService;
+        this.orderLineStore = orderLineStore;
     }
 
+    /**
+     * Runs as a nested transaction: standalone it behaves like any other, and inside
+     * a batch transaction from {@link org.example.onlinemart.service.OrderIntakeService}
+     * it gets its own savepoint, so a failing order rolls back alone. Called on its own,
+     * a stock write that loses a version race is retried with fresh reads.
+     */
     @Override
+    @OptimisticRetry
+    @Transactional(propagation = Propagation.NESTED)
     public Order createOrder(int userId, List<OrderItem> items) {
         User user = userDAO.findById(userId);
         if (user == null) {
             throw new RuntimeException("User not found");
         }
 
+        Set<Integer> hotSkuIds = hotSkuProductIds(items);
+        if (hotSkuIds.isEmpty()) {
+            return placeOrder(user, items, Collections.emptyMap());
+        }
+
+        Map<Integer, String> transactionLocks = transactionHotSkuLocks();
+        if (transactionLocks != null) {
+            lockHotSkus(hotSkuIds, transactionLocks);
+            return placeOrder(user, items, transactionLocks);
+        }
+
+        // No transaction to wait for, so hold the locks only while the order is written
+        Map<Integer, String> locks = new HashMap<>();
+        lockHotSkus(hotSkuIds, locks);
+        try {
+            return placeOrder(user, items, locks);
+        } finally {
+            releaseHotSkuLocks(locks);
+        }
+    }
+
+    private Order placeOrder(User user, List<OrderItem> items, Map<Integer, String> hotSkuLocks) {
         Order order = new Order();
         order.setUser(user);
         order.setOrderStatus(OrderStatus.Processing);
         order.setOrderTime(new Date());
-        orderDAO.save(order);
+
+        int itemCount = 0;
+        double totalRevenue = 0;
+        double totalCost = 0;
+        List<Integer> soldOut = new ArrayList<>();
 
         for (OrderItem oi : items) {
             Product product = productDAO.findById(oi.getProduct().getProductId());
@@ -86,22 +189,58 @@ public class OrderServiceImpl implements OrderService {
                         + product.getProductId());
             }
 
-            product.setStock(product.getStock() - requestedQty);
-            productDAO.update(product);
+            String lockToken = hotSkuLocks.get(product.getProductId());
+            if (lockToken != null) {
+                // A lock that expired mid-checkout carries a stale fence and is rejected here
+                long fencingToken = inventoryLockService.getFencingToken(lockToken);
+                if (!productDAO.updateStockFenced(product, requestedQty, fencingToken)) {
+                    if (requestedQty > product.getStock()) {
+                        // Stock was taken by a writer outside the lock since it was read
+                        throw new NotEnoughInventoryException("Not enough inventory for product ID: "
+                                + product.getProductId());
+                    }
+                    throw new RuntimeException("Inventory lock expired for product ID: "
+                            + product.getProductId() + ", please retry the order");
+                }
+            } else {
+                product.setStock(product.getStock() - requestedQty);
+                productDAO.update(product);
+            }
+            if (product.getStock() == 0) {
+                soldOut.add(product.getProductId());
+            }
 
-            oi.setOrder(order);
             oi.setProduct(product);
             oi.setWholesalePriceSnapshot(product.getWholesalePrice());
             oi.setRetailPriceSnapshot(product.getRetailPrice());
+            outboxService.inventoryChanged(product);
+
+            itemCount += requestedQty;
+            totalRevenue += product.getRetailPrice() * requestedQty;
+            totalCost += product.getWholesalePrice() * requestedQty;
+        }
+
+        // Totals are fixed at placement, so summaries can read them off the order row
+        order.setItemCount(itemCount);
+        order.setTotalRevenue(totalRevenue);
+        order.setTotalCost(totalCost);
+        orderDAO.save(order);
+
+        for (OrderItem oi : items) {
+            oi.setOrder(order);
             orderItemDAO.save(oi);
         }
+        orderLineStore.appendAfterCommit(order, items);
+        watchlistIndexService.stockChangedAfterCommit(Collections.emptyList(), soldOut);
 
-        invalidateOrderCaches(userId);
+        outboxService.orderStatusChanged(order.getOrderId(), OrderStatus.Processing, user.getUserId());
+        invalidateOrderCaches(user.getUserId());
 
         return order;
     }
 
     @Override
+    @OptimisticRetry
     public Order cancelOrder(int orderId) {
         Order order = orderDAO.findById(orderId);
         if (order == null) {
@@ -118,15 +257,15 @@ public class OrderServiceImpl implements OrderService {
             return order;
         }
 
-        List<OrderItem> items = orderItemDAO.findByOrderId(orderId);
-        for (OrderItem oi : items) {
-            Product product = oi.getProduct();
-            product.setStock(product.getStock() + oi.getQuantity());
-            productDAO.update(product);
+        // Puts back the stock of every line and flips the status in one statement
+        if (!orderDAO.cancelAndRestoreStock(order)) {
+            throw new RuntimeException("Order " + orderId + " is no longer being processed");
         }
-
-        order.setOrderStatus(OrderStatus.Canceled);
-        orderDAO.update(order);
+        watchlistIndexService.stockChangedAfterCommit(
+                orderItemDAO.sumQuantityByProductForOrders(Collections.singletonList(orderId)).keySet(),
+                Collections.emptyList());
+        outboxService.orderStatusChanged(orderId, OrderStatus.Canceled, order.getUser().getUserId());
+        orderLineStore.updateStatusAfterCommit(Collections.singletonList(orderId), OrderStatus.Canceled);
 
         if (order.getUser() != null) {
             Hibernate.initialize(order.getUser());
@@ -156,8 +295,20 @@ public class OrderServiceImpl implements OrderService {
             return order;
         }
 
+        Date completedAt = new Date();
         order.setOrderStatus(OrderStatus.Completed);
+        order.setCompletedAt(completedAt);
         orderDAO.update(order);
+        productSalesStatsDAO.applyCompletedOrders(Collections.singletonList(orderId));
+        salesRollupService.recordCompleted(Collections.singletonList(orderId), completedAt);
+        Map<Integer, Long> unitsByProduct =
+                orderItemDAO.sumQuantityByProductForOrders(Collections.singletonList(orderId));
+        productLeaderboardService.recordAfterCommit(unitsByProduct);
+        trendingProductService.recordAfterCommit(unitsByProduct);
+        revenueCubeService.recordCompletedAfterCommit(Collections.singletonList(orderId), completedAt);
+        purchaseProfileService.recordCompletedAfterCommit(Collections.singletonList(orderId));
+        outboxService.orderStatusChanged(orderId, OrderStatus.Completed, order.getUser().getUserId());
+        orderLineStore.updateStatusAfterCommit(Collections.singletonList(orderId), OrderStatus.Completed);
 
         if (order.getUser() != null) {
             Hibernate.initialize(order.getUser());
@@ -169,10 +320,118 @@ public class OrderServiceImpl implements OrderService {
 
         cacheService.delete(CacheKeys.AdminSummary.MOST_PROFITABLE);
         cacheService.delete(CacheKeys.AdminSummary.TOTAL_SOLD);
-        cacheService.delete(CacheKeys.AdminSummary.topPopular(3));
         return order;
     }
 
+    @Override
+    public BulkOrderResult completeOrders(List<Integer> orderIds) {
+        return transitionOrders(orderIds, OrderStatus.Completed);
+    }
+
+    @Override
+    public BulkOrderResult cancelOrders(List<Integer> orderIds) {
+        return transitionOrders(orderIds, OrderStatus.Canceled);
+    }
+
+    /**
+     * Moves Processing orders to {@code target} in chunks of {@code order.bulk.batchSize}.
+     * Each chunk is locked with SELECT ... FOR UPDATE, canceled orders get their stock
+     * back in one statement, and the statuses change in one more; the caches are
+     * cleared once at the end instead of per order.
+     */
+    private BulkOrderResult transitionOrders(List<Integer> orderIds, OrderStatus target) {
+        Set<Integer> distinctIds = new LinkedHashSet<>(orderIds);
+        BulkOrderResult result = new BulkOrderResult(target.name(), distinctIds.size());
+        Set<Integer> affectedUsers = new TreeSet<>();
+
+        List<Integer> ids = new ArrayList<>(distinctIds);
+        for (int from = 0; from < ids.size(); from += bulkBatchSize) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + bulkBatchSize, ids.size()));
+
+            Map<Integer, Order> locked = new HashMap<>();
+            for (Order order : orderDAO.findByIdsForUpdate(chunk)) {
+                locked.put(order.getOrderId(), order);
+            }
+
+            List<Integer> eligible = new ArrayList<>(chunk.size());
+            for (Integer orderId : chunk) {
+                Order order = locked.get(orderId);
+                if (order == null) {
+                    result.getSkipped().put(orderId, "Order not found");
+                } else if (order.getOrderStatus() == target) {
+                    result.getSkipped().put(orderId, "Already " + target.name());
+                } else if (order.getOrderStatus() != OrderStatus.Processing) {
+                    result.getSkipped().put(orderId, "Cannot move a " + order.getOrderStatus().name()
+                            + " order to " + target.name());
+                } else {
+                    eligible.add(orderId);
+                    affectedUsers.add(order.getUser().getUserId());
+                }
+            }
+
+            if (eligible.isEmpty()) {
+                continue;
+            }
+            if (target == OrderStatus.Canceled) {
+                orderDAO.restoreStock(eligible);
+                watchlistIndexService.stockChangedAfterCommit(
+                        orderItemDAO.sumQuantityByProductForOrders(eligible).keySet(), Collections.emptyList());
+            }
+            Date changedAt = new Date();
+            orderDAO.updateStatus(eligible, OrderStatus.Processing, target, changedAt);
+            if (target == OrderStatus.Completed) {
+                productSalesStatsDAO.applyCompletedOrders(eligible);
+                salesRollupService.recordCompleted(eligible, changedAt);
+                Map<Integer, Long> unitsByProduct = orderItemDAO.sumQuantityByProductForOrders(eligible);
+                productLeaderboardService.recordAfterCommit(unitsByProduct);
+                trendingProductService.recordAfterCommit(unitsByProduct);
+                revenueCubeService.recordCompletedAfterCommit(eligible, changedAt);
+                purchaseProfileService.recordCompletedAfterCommit(eligible);
+            }
+            orderLineStore.updateStatusAfterCommit(eligible, target);
+            for (Integer orderId : eligible) {
+                outboxService.orderStatusChanged(orderId, target, locked.get(orderId).getUser().getUserId());
+            }
+            result.getTransitioned().addAll(eligible);
+        }
+
+        invalidateBulkCaches(result.getTransitioned(), affectedUsers, target);
+        logger.info("Bulk transition to {}: {} of {} orders changed",
+                target, result.getTransitioned().size(), result.getRequested());
+        return result;
+    }
+
+    private void invalidateBulkCaches(List<Integer> orderIds, Set<Integer> userIds, OrderStatus target) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+
+        List<String> keys = new ArrayList<>();
+        keys.add(CacheKeys.Orders.ALL);
+        for (int page = 1; page <= 3; page++) {
+            keys.add(CacheKeys.Orders.paginated(page, 5));
+        }
+        for (Integer orderId : orderIds) {
+            keys.add(CacheKeys.Orders.order(orderId));
+        }
+        for (Integer userId : userIds) {
+            keys.add(CacheKeys.Orders.userOrders(userId));
+        }
+        if (target == OrderStatus.Completed) {
+            keys.add(CacheKeys.AdminSummary.MOST_PROFITABLE);
+            keys.add(CacheKeys.AdminSummary.TOTAL_SOLD);
+        } else {
+            keys.add(CacheKeys.Products.ALL);
+            keys.add(CacheKeys.Products.IN_STOCK);
+        }
+
+        try {
+            cacheService.delete(keys.toArray(new String[0]));
+        } catch (CacheException e) {
+            logger.warn("Failed to invalidate caches after bulk transition of {} orders", orderIds.size(), e);
+        }
+    }
+
     @Override
     public Order findById(int orderId) {
 
@@ -280,14 +539,90 @@ public class OrderServiceImpl implements OrderService {
         return result;
     }
 
+    /**
+     * Products of the order that must be locked before checkout; empty unless
+     * hot-SKU locking is enabled.
+     */
+    private Set<Integer> hotSkuProductIds(List<OrderItem> items) {
+        if (!hotSkuLockingEnabled) {
+            return Collections.emptySet();
+        }
+
+        Set<Integer> productIds = new TreeSet<>();
+        for (OrderItem oi : items) {
+            int productId = oi.getProduct().getProductId();
+            if (hotSkuProductIds.isEmpty() || hotSkuProductIds.contains(productId)) {
+                productIds.add(productId);
+            }
+        }
+        return productIds;
+    }
+
+    /**
+     * Takes the inventory locks for the products not yet in {@code heldLocks} in one
+     * all-or-nothing call and records them there.
+     */
+    private void lockHotSkus(Set<Integer> productIds, Map<Integer, String> heldLocks) {
+        Set<Integer> missing = new TreeSet<>(productIds);
+        missing.removeAll(heldLocks.keySet());
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        String lockToken = inventoryLockService.acquireLocks(
+                missing, lockAcquireWaitMillis, lockRetryIntervalMillis);
+        if (lockToken == null) {
+            throw new RuntimeException("Products are busy, please retry the order");
+        }
+        for (Integer productId : missing) {
+            heldLocks.put(productId, lockToken);
+        }
+    }
+
+    /**
+     * Hot-SKU locks held by the current transaction, released once it commits or
+     * rolls back. Orders applied together in one batch transaction share them, so
+     * a later order in the batch does not wait on a lock its own batch holds.
+     *
+     * @return The locks bound to the transaction, or null if there is no transaction
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Integer, String> transactionHotSkuLocks() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+
+        Map<Integer, String> locks =
+                (Map<Integer, String>) TransactionSynchronizationManager.getResource(HOT_SKU_LOCKS_RESOURCE);
+        if (locks != null) {
+            return locks;
+        }
+
+        Map<Integer, String> newLocks = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(HOT_SKU_LOCKS_RESOURCE, newLocks);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(HOT_SKU_LOCKS_RESOURCE);
+                releaseHotSkuLocks(newLocks);
+            }
+        });
+        return newLocks;
+    }
+
+    private void releaseHotSkuLocks(Map<Integer, String> locks) {
+        Map<String, Set<Integer>> productIdsByToken = new HashMap<>();
+        for (Map.Entry<Integer, String> entry : locks.entrySet()) {
+            productIdsByToken.computeIfAbsent(entry.getValue(), token -> new TreeSet<>()).add(entry.getKey());
+        }
+        productIdsByToken.forEach((token, productIds) -> inventoryLockService.releaseLocks(productIds, token));
+    }
+
     private void invalidateOrderCaches(int userId) {
         try {
             cacheService.delete(CacheKeys.Orders.ALL);
             cacheService.delete(CacheKeys.Orders.userOrders(userId));
 
-            cacheService.delete(CacheKeys.UserActivity.frequentPurchases(userId, 3));
-            cacheService.delete(CacheKeys.UserActivity.recentPurchases(userId, 3));
-
             for (int page = 1; page <= 3; page++) {
                 cacheService.delete(CacheKeys.Orders.paginated(page, 5));
             }
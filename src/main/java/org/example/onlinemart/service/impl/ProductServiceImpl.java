@@ -1,10 +1,13 @@
 package org.example.onlinemart.service.impl;
 
+import org.example.onlinemart.aop.OptimisticRetry;
 import org.example.onlinemart.cache.CacheKeys;
 import org.example.onlinemart.cache.CacheService;
 import org.example.onlinemart.dao.ProductDAO;
 import org.example.onlinemart.entity.Product;
 import org.example.onlinemart.service.ProductService;
+import org.example.onlinemart.service.RestockNotificationService;
+import org.example.onlinemart.service.WatchlistIndexService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,8 +15,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -25,14 +32,20 @@ public class ProductServiceImpl implements ProductService {
 
     private final ProductDAO productDAO;
     private final CacheService cacheService;
+    private final WatchlistIndexService watchlistIndexService;
+    private final RestockNotificationService restockNotificationService;
 
     @Value("${redis.cache.products.TTL:600}")
     private long productCacheTTL;
 
     @Autowired
-    public ProductServiceImpl(ProductDAO productDAO, CacheService cacheService) {
+    public ProductServiceImpl(ProductDAO productDAO, CacheService cacheService,
+                              WatchlistIndexService watchlistIndexService,
+                              RestockNotificationService restockNotificationService) {
         this.productDAO = productDAO;
         this.cacheService = cacheService;
+        this.watchlistIndexService = watchlistIndexService;
+        this.restockNotificationService = restockNotificationService;
     }
 
     @Override
@@ -40,6 +53,10 @@ public class ProductServiceImpl implements ProductService {
         product.setCreatedAt(new Date());
         product.setUpdatedAt(new Date());
         productDAO.save(product);
+        if (product.getStock() > 0) {
+            watchlistIndexService.stockChangedAfterCommit(
+                    Collections.singletonList(product.getProductId()), Collections.emptyList());
+        }
 
         // Invalidate product-related caches
         invalidateProductCaches();
@@ -48,6 +65,7 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
+    @OptimisticRetry
     public Product updateProductFields(int productId, Product updates) {
         Product existing = productDAO.findById(productId);
         if (existing == null) {
@@ -55,6 +73,7 @@ public class ProductServiceImpl implements ProductService {
         }
 
         boolean stockChanged = false;
+        boolean wasOutOfStock = existing.getStock() == 0;
 
         if (updates.getDescription() != null) {
             existing.setDescription(updates.getDescription());
@@ -83,6 +102,15 @@ public class ProductServiceImpl implements ProductService {
         // If stock changed, also invalidate the IN_STOCK cache
         if (stockChanged) {
             cacheService.delete(CacheKeys.Products.IN_STOCK);
+            List<Integer> changed = Collections.singletonList(productId);
+            if (existing.getStock() > 0) {
+                watchlistIndexService.stockChangedAfterCommit(changed, Collections.emptyList());
+                if (wasOutOfStock) {
+                    restockNotificationService.restockedAfterCommit(existing);
+                }
+            } else {
+                watchlistIndexService.stockChangedAfterCommit(Collections.emptyList(), changed);
+            }
         }
 
         // Always invalidate the ALL products cache
@@ -112,6 +140,47 @@ public class ProductServiceImpl implements ProductService {
         return product;
     }
 
+    @Override
+    public List<Product> findByIds(List<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<String> keys = new ArrayList<>(productIds.size());
+        for (Integer productId : productIds) {
+            keys.add(CacheKeys.Products.product(productId));
+        }
+        List<Product> cached = cacheService.multiGet(keys, Product.class);
+
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < productIds.size(); i++) {
+            if (cached.get(i) == null) {
+                missing.add(productIds.get(i));
+            }
+        }
+
+        Map<Integer, Product> loaded = new HashMap<>();
+        if (!missing.isEmpty()) {
+            logger.debug("Cache miss for {} of {} products", missing.size(), productIds.size());
+            for (Product product : productDAO.findByIds(missing)) {
+                if (product != null) {
+                    loaded.put(product.getProductId(), product);
+                    cacheService.set(CacheKeys.Products.product(product.getProductId()), product,
+                            productCacheTTL, TimeUnit.SECONDS);
+                }
+            }
+        }
+
+        List<Product> products = new ArrayList<>(productIds.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            Product product = (cached.get(i) != null) ? cached.get(i) : loaded.get(productIds.get(i));
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
     @Override
     public List<Product> findAll() {
         String cacheKey = CacheKeys.Products.ALL;
@@ -160,7 +229,6 @@ public class ProductServiceImpl implements ProductService {
 
             // Also invalidate admin summary caches that depend on products
             cacheService.delete(CacheKeys.AdminSummary.MOST_PROFITABLE);
-            cacheService.delete(CacheKeys.AdminSummary.topPopular(3));
         } catch (Exception e) {
             // Log but don't rethrow - cache invalidation failure shouldn't break core functionality
             logger.warn("Failed to invalidate product caches", e);
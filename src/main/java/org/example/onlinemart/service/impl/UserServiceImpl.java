@@ -4,9 +4,10 @@ import org.example.onlinemart.cache.CacheKeys;
 import org.example.onlinemart.cache.CacheService;
 import org.example.onlinemart.dao.UserDAO;
 import org.example.onlinemart.dao.WatchlistDAO;
-import org.example.onlinemart.entity.Product;
-import org.example.onlinemart.entity.Watchlist;
+import org.example.onlinemart.dto.ProductSummary;
+import org.example.onlinemart.service.ProductService;
 import org.example.onlinemart.service.UserService;
+import org.example.onlinemart.service.WatchlistIndexService;
 import org.example.onlinemart.entity.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,22 +32,25 @@ public class UserServiceImpl implements UserService {
     private final BCryptPasswordEncoder passwordEncoder;
     private final WatchlistDAO watchlistDAO;
     private final CacheService cacheService;
+    private final WatchlistIndexService watchlistIndexService;
+    private final ProductService productService;
 
     @Value("${redis.cache.users.TTL:300}")
     private long userCacheTTL;
 
-    @Value("${redis.cache.watchlist.TTL:120}")
-    private long watchlistCacheTTL;
-
     @Autowired
     public UserServiceImpl(UserDAO userDAO,
                            BCryptPasswordEncoder passwordEncoder,
                            WatchlistDAO watchlistDAO,
-                           CacheService cacheService) {
+                           CacheService cacheService,
+                           WatchlistIndexService watchlistIndexService,
+                           ProductService productService) {
         this.userDAO = userDAO;
         this.passwordEncoder = passwordEncoder;
         this.watchlistDAO = watchlistDAO;
         this.cacheService = cacheService;
+        this.watchlistIndexService = watchlistIndexService;
+        this.productService = productService;
     }
 
     @Override
@@ -216,28 +220,18 @@ public class UserServiceImpl implements UserService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<Product> getWatchlistProductsInStock(int userId) {
-
-        String cacheKey = CacheKeys.Users.watchlist(userId);
-        Optional<List<Product>> cachedProducts = cacheService.getList(cacheKey, Product.class);
-
-        if (cachedProducts.isPresent()) {
-            logger.debug("Cache hit for user watchlist: {}", userId);
-            return cachedProducts.get();
+    public List<ProductSummary> getWatchlistProductsInStock(int userId) {
+        Optional<List<Integer>> productIds = watchlistIndexService.findInStockProductIds(userId);
+
+        if (productIds.isPresent()) {
+            // Served from the Redis indexes and product cache; MySQL only sees products not cached yet
+            return productService.findByIds(productIds.get()).stream()
+                    .map(ProductSummary::fromEntity)
+                    .collect(Collectors.toList());
         }
 
-        logger.debug("Cache miss for user watchlist: {}", userId);
-        List<Watchlist> watchlistItems = watchlistDAO.findByUserId(userId);
-
-        List<Product> products = watchlistItems.stream()
-                .map(Watchlist::getProduct)
-                .filter(p -> p.getStock() > 0)
-                .collect(Collectors.toList());
-
-        // Cache the result with a shorter TTL since stock may change
-        cacheService.set(cacheKey, products, watchlistCacheTTL, TimeUnit.SECONDS);
-
-        return products;
+        logger.debug("Watchlist index unavailable, reading watchlist of user {} from the database", userId);
+        return watchlistDAO.findInStockProductsByUserId(userId);
     }
 
     /**
@@ -253,13 +247,8 @@ public class UserServiceImpl implements UserService {
             cacheService.delete(CacheKeys.Users.user(userId));
             cacheService.delete(CacheKeys.Users.username(user.getUsername()));
             cacheService.delete(CacheKeys.Users.email(user.getEmail()));
-            cacheService.delete(CacheKeys.Users.watchlist(userId));
             cacheService.delete(CacheKeys.Users.ALL);
 
-            // Delete activity caches
-            cacheService.delete(CacheKeys.UserActivity.frequentPurchases(userId, 3));
-            cacheService.delete(CacheKeys.UserActivity.recentPurchases(userId, 3));
-
             // Delete session caches if role changed (for security)
             cacheService.delete(CacheKeys.Session.userActiveSessions(userId));
 
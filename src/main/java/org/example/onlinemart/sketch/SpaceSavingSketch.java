@@ -0,0 +1,161 @@
+package org.example.onlinemart.sketch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving summary of the heaviest items in a weighted stream, in a fixed
+ * number of counters.
+ * <p>
+ * Each tracked item has a count that never underestimates its true weight and an
+ * error that bounds the overestimate, so its true weight lies in
+ * [count - error, count]. No error exceeds total / capacity, and until sketches
+ * are merged every item heavier than that is tracked. Sketches of the same
+ * capacity can be merged; counts and errors of the merged sketch keep these
+ * bounds over the combined stream.
+ * <p>
+ * Not thread-safe. The fields are plain so the sketch serializes to JSON as is.
+ */
+public class SpaceSavingSketch {
+    private int capacity;
+    private long total;
+    private Map<Integer, Counter> counters = new HashMap<>();
+
+    public SpaceSavingSketch() {
+    }
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Sketch capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add weight to an item. When all counters are taken, the item replaces the
+     * smallest one and inherits its count as error.
+     */
+    public void offer(int item, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        total += weight;
+
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            counter.count += weight;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(item, new Counter(weight, 0));
+            return;
+        }
+
+        Map.Entry<Integer, Counter> smallest = smallestEntry();
+        counters.remove(smallest.getKey());
+        long evicted = smallest.getValue().count;
+        counters.put(item, new Counter(evicted + weight, evicted));
+    }
+
+    /**
+     * Fold another sketch into this one. An item missing from one side may still
+     * have up to that side's smallest count there, which is added to its count
+     * and error before the combined counters are cut back to capacity.
+     */
+    public void merge(SpaceSavingSketch other) {
+        long missingHere = isFull() ? smallestEntry().getValue().count : 0;
+        long missingThere = other.isFull() ? other.smallestEntry().getValue().count : 0;
+
+        Map<Integer, Counter> combined = new HashMap<>();
+        for (Map.Entry<Integer, Counter> entry : counters.entrySet()) {
+            Counter theirs = other.counters.get(entry.getKey());
+            Counter mine = entry.getValue();
+            combined.put(entry.getKey(), (theirs != null)
+                    ? new Counter(mine.count + theirs.count, mine.error + theirs.error)
+                    : new Counter(mine.count + missingThere, mine.error + missingThere));
+        }
+        for (Map.Entry<Integer, Counter> entry : other.counters.entrySet()) {
+            if (!counters.containsKey(entry.getKey())) {
+                Counter theirs = entry.getValue();
+                combined.put(entry.getKey(), new Counter(theirs.count + missingHere, theirs.error + missingHere));
+            }
+        }
+
+        counters = new HashMap<>();
+        for (Map.Entry<Integer, Counter> entry : sortByCount(combined)) {
+            if (counters.size() == capacity) {
+                break;
+            }
+            counters.put(entry.getKey(), entry.getValue());
+        }
+        total += other.total;
+    }
+
+    /**
+     * The k items with the highest counts, highest first.
+     */
+    public List<Map.Entry<Integer, Counter>> top(int k) {
+        List<Map.Entry<Integer, Counter>> sorted = sortByCount(counters);
+        return new ArrayList<>(sorted.subList(0, Math.min(k, sorted.size())));
+    }
+
+    /**
+     * The most any tracked count can exceed the true weight: total / capacity.
+     */
+    public long getErrorBound() {
+        return total / capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    private boolean isFull() {
+        return counters.size() >= capacity;
+    }
+
+    private Map.Entry<Integer, Counter> smallestEntry() {
+        Map.Entry<Integer, Counter> smallest = null;
+        for (Map.Entry<Integer, Counter> entry : counters.entrySet()) {
+            if (smallest == null || entry.getValue().count < smallest.getValue().count) {
+                smallest = entry;
+            }
+        }
+        return smallest;
+    }
+
+    private static List<Map.Entry<Integer, Counter>> sortByCount(Map<Integer, Counter> counters) {
+        List<Map.Entry<Integer, Counter>> sorted = new ArrayList<>(counters.entrySet());
+        sorted.sort((a, b) -> (a.getValue().count != b.getValue().count)
+                ? Long.compare(b.getValue().count, a.getValue().count)
+                : Integer.compare(a.getKey(), b.getKey()));
+        return sorted;
+    }
+
+    public static class Counter {
+        private long count;
+        private long error;
+
+        public Counter() {
+        }
+
+        public Counter(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+}
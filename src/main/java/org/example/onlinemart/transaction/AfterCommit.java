@@ -0,0 +1,102 @@
+package org.example.onlinemart.transaction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Registers work to run once the current transaction commits, aware of nested
+ * savepoints.
+ * <p>
+ * Spring keeps synchronizations registered inside a NESTED savepoint even when
+ * the savepoint rolls back, so an after-commit hook of work that was undone would
+ * still run when the outer transaction commits. Code that runs units of work under
+ * savepoints wraps each in {@link #withinSavepoint}: hooks registered here while
+ * it runs are held back, then handed on to the transaction if it returns and
+ * dropped if it throws. Synchronizations that must run however the savepoint ends,
+ * such as releasing locks, should be registered with
+ * {@link TransactionSynchronizationManager} directly.
+ */
+public final class AfterCommit {
+    private static final Logger logger = LoggerFactory.getLogger(AfterCommit.class);
+
+    // Innermost savepoint last; each collects the synchronizations registered while it runs
+    private static final ThreadLocal<Deque<List<TransactionSynchronization>>> SAVEPOINTS = new ThreadLocal<>();
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Run an action once the current transaction commits, or right away when
+     * there is none. A failing action is logged rather than thrown: Spring would
+     * otherwise pass it to the committing caller, who would take the commit for
+     * failed.
+     */
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        register(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    logger.error("After-commit work failed; the transaction itself committed", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Register a synchronization with the current transaction, held back until
+     * the enclosing {@link #withinSavepoint} block, if any, returns. Requires
+     * synchronization to be active.
+     */
+    public static void register(TransactionSynchronization synchronization) {
+        Deque<List<TransactionSynchronization>> savepoints = SAVEPOINTS.get();
+        if (savepoints == null) {
+            TransactionSynchronizationManager.registerSynchronization(synchronization);
+        } else {
+            savepoints.peekLast().add(synchronization);
+        }
+    }
+
+    /**
+     * Run work that executes under a savepoint. Hooks it registers reach the
+     * transaction only if it returns normally.
+     *
+     * @param work The work, which rolls back its savepoint by throwing
+     * @return What the work returned
+     */
+    public static <T> T withinSavepoint(Supplier<T> work) {
+        Deque<List<TransactionSynchronization>> savepoints = SAVEPOINTS.get();
+        if (savepoints == null) {
+            savepoints = new ArrayDeque<>();
+            SAVEPOINTS.set(savepoints);
+        }
+        List<TransactionSynchronization> registered = new ArrayList<>();
+        savepoints.addLast(registered);
+        T result;
+        try {
+            result = work.get();
+        } finally {
+            savepoints.removeLast();
+            if (savepoints.isEmpty()) {
+                SAVEPOINTS.remove();
+            }
+        }
+        for (TransactionSynchronization synchronization : registered) {
+            register(synchronization);
+        }
+        return result;
+    }
+}
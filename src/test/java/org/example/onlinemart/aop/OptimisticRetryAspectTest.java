@@ -0,0 +1,76 @@
+package org.example.onlinemart.aop;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OptimisticRetryAspectTest {
+
+    @Mock
+    private ProceedingJoinPoint joinPoint;
+
+    @Mock
+    private Signature signature;
+
+    @Mock
+    private OptimisticRetry optimisticRetry;
+
+    private OptimisticRetryAspect aspect;
+
+    @BeforeEach
+    void setUp() {
+        aspect = new OptimisticRetryAspect(3, 0, 0);
+        lenient().when(joinPoint.getSignature()).thenReturn(signature);
+        lenient().when(signature.toShortString()).thenReturn("ProductService.updateProductFields(..)");
+    }
+
+    @Test
+    void testRetryOnConflict_SucceedsOnSecondAttempt() throws Throwable {
+        when(joinPoint.proceed())
+                .thenThrow(new ObjectOptimisticLockingFailureException("Product", 1))
+                .thenReturn("updated");
+
+        assertEquals("updated", aspect.retryOnConflict(joinPoint, optimisticRetry));
+        verify(joinPoint, times(2)).proceed();
+        assertEquals(1L, aspect.getConflicts());
+    }
+
+    @Test
+    void testRetryOnConflict_GivesUpAfterMaxAttempts() throws Throwable {
+        when(joinPoint.proceed()).thenThrow(new ObjectOptimisticLockingFailureException("Product", 1));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> aspect.retryOnConflict(joinPoint, optimisticRetry));
+        verify(joinPoint, times(3)).proceed();
+        assertEquals(1L, aspect.getExhausted());
+    }
+
+    @Test
+    void testRetryOnConflict_OtherFailuresAreNotRetried() throws Throwable {
+        when(joinPoint.proceed()).thenThrow(new RuntimeException("Product not found"));
+
+        assertThrows(RuntimeException.class, () -> aspect.retryOnConflict(joinPoint, optimisticRetry));
+        verify(joinPoint, times(1)).proceed();
+        assertEquals(0L, aspect.getConflicts());
+    }
+
+    @Test
+    void testBackoff_StaysWithinBounds() {
+        OptimisticRetryPolicy policy = new OptimisticRetryPolicy(5, 10, 40);
+        for (int attempt = 1; attempt <= 5; attempt++) {
+            long ceiling = Math.min(40, 10L << (attempt - 1));
+            long delay = policy.backoffMillis(attempt);
+            assertTrue(delay >= ceiling / 2 && delay <= ceiling, "attempt " + attempt + " waited " + delay);
+        }
+        assertFalse(policy.canRetry(5));
+    }
+}
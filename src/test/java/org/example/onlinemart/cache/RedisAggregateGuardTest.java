@@ -0,0 +1,125 @@
+package org.example.onlinemart.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisAggregateGuardTest {
+
+    private static final List<String> SYNC = Collections.singletonList("summary:popularity:sync");
+
+    @Mock private JedisPool jedisPool;
+    @Mock private Jedis jedis;
+
+    @InjectMocks
+    private RedisAggregateGuard aggregateGuard;
+
+    private final AtomicInteger updates = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void testUpdateAfterCommit_MarksPendingFromBeforeCommitUntilApplied() {
+        when(jedisPool.getResource()).thenReturn(jedis);
+
+        aggregateGuard.updateAfterCommit(Collections.singletonList("summary:popularity"), updates::incrementAndGet);
+        assertEquals(0, updates.get());
+        verifyNoInteractions(jedisPool);
+
+        TransactionSynchronization synchronization = TransactionSynchronizationManager.getSynchronizations().get(0);
+        synchronization.beforeCommit(false);
+        synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(1, updates.get());
+        InOrder inOrder = inOrder(jedis);
+        inOrder.verify(jedis).eval(contains("'version', 1"), eq(SYNC), eq(Collections.singletonList("60")));
+        inOrder.verify(jedis).eval(contains("'pending', -1"), eq(SYNC), eq(Collections.emptyList()));
+    }
+
+    @Test
+    void testUpdateAfterCommit_RollbackSkipsUpdateButClearsPending() {
+        when(jedisPool.getResource()).thenReturn(jedis);
+
+        aggregateGuard.updateAfterCommit(Collections.singletonList("summary:popularity"), updates::incrementAndGet);
+        TransactionSynchronization synchronization = TransactionSynchronizationManager.getSynchronizations().get(0);
+        synchronization.beforeCommit(false);
+        synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(0, updates.get());
+        verify(jedis).eval(contains("'pending', -1"), eq(SYNC), eq(Collections.emptyList()));
+    }
+
+    @Test
+    void testUpdateAfterCommit_WithoutTransactionAppliesNow() {
+        TransactionSynchronizationManager.clearSynchronization();
+        when(jedisPool.getResource()).thenReturn(jedis);
+
+        try {
+            aggregateGuard.updateAfterCommit(Collections.singletonList("summary:popularity"), updates::incrementAndGet);
+        } finally {
+            TransactionSynchronizationManager.initSynchronization();
+        }
+
+        assertEquals(1, updates.get());
+        verify(jedis, times(2)).eval(anyString(), eq(SYNC), anyList());
+    }
+
+    @Test
+    void testSnapshot_NullWhileUpdatePending() {
+        when(jedis.hmget("summary:popularity:sync", "version", "pending")).thenReturn(Arrays.asList("7", "1"));
+
+        assertNull(aggregateGuard.snapshot(jedis, "summary:popularity"));
+    }
+
+    @Test
+    void testSnapshot_ZeroBeforeAnyUpdate() {
+        when(jedis.hmget("summary:popularity:sync", "version", "pending")).thenReturn(Arrays.asList(null, null));
+
+        assertEquals("0", aggregateGuard.snapshot(jedis, "summary:popularity"));
+    }
+
+    @Test
+    void testPublish_RenamesTemporaryKeysWhenVersionUnchanged() {
+        List<String> keys = Arrays.asList("activity:user:5:frequent:sync",
+                "activity:user:5:frequent:rebuild", "activity:user:5:frequent",
+                "activity:user:5:recent:rebuild", "activity:user:5:recent");
+        when(jedis.eval(anyString(), eq(keys), eq(Arrays.asList("3", "600")))).thenReturn(1L);
+
+        assertTrue(aggregateGuard.publish(jedis, "activity:user:5:frequent", "3", 600,
+                "activity:user:5:frequent", "activity:user:5:recent"));
+    }
+
+    @Test
+    void testPublish_DiscardedWhenUpdatedSinceSnapshot() {
+        when(jedis.eval(anyString(), anyList(), anyList())).thenReturn(0L);
+
+        assertFalse(aggregateGuard.publish(jedis, "summary:popularity", "3", 0, "summary:popularity"));
+    }
+}
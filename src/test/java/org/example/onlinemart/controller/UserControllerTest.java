@@ -3,18 +3,26 @@ package org.example.onlinemart.controller;
 import lombok.*;
 import org.example.onlinemart.dao.OrderItemDAO;
 import org.example.onlinemart.dao.WatchlistDAO;
+import org.example.onlinemart.dto.OrderTicket;
+import org.example.onlinemart.dto.ProductSummary;
 import org.example.onlinemart.entity.Order;
 import org.example.onlinemart.entity.Product;
 import org.example.onlinemart.entity.User;
 import org.example.onlinemart.entity.Watchlist;
+import org.example.onlinemart.service.AsyncOrderService;
+import org.example.onlinemart.service.IdempotencyService;
+import org.example.onlinemart.service.OrderIntakeService;
 import org.example.onlinemart.service.OrderService;
 import org.example.onlinemart.service.ProductService;
+import org.example.onlinemart.service.PurchaseProfileService;
 import org.example.onlinemart.service.UserService;
+import org.example.onlinemart.service.WatchlistIndexService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
 
 import java.util.Collections;
 
@@ -40,6 +48,21 @@ class UserControllerTest {
     @Mock
     private OrderItemDAO orderItemDAO;
 
+    @Mock
+    private OrderIntakeService orderIntakeService;
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @Mock
+    private AsyncOrderService asyncOrderService;
+
+    @Mock
+    private PurchaseProfileService purchaseProfileService;
+
+    @Mock
+    private WatchlistIndexService watchlistIndexService;
+
     @InjectMocks
     private UserController userController;
 
@@ -118,6 +141,37 @@ class UserControllerTest {
         verify(orderService, times(1)).findByUserId(123);
     }
 
+    @Test
+    void testSubmitOrder_ReturnsAcceptedTicket() {
+        OrderTicket ticket = new OrderTicket("ticket-1", 123);
+        when(asyncOrderService.submit(eq(123), anyList())).thenReturn(ticket);
+
+        var response = userController.submitOrder(123, Collections.emptyList());
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("ticket-1", response.getBody().getTicketId());
+        assertEquals(OrderTicket.QUEUED, response.getBody().getStatus());
+    }
+
+    @Test
+    void testGetOrderTicket_NotFound() {
+        when(asyncOrderService.getTicket(123, "missing")).thenReturn(null);
+
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> userController.getOrderTicket(123, "missing"));
+        assertEquals("Order ticket not found or expired", ex.getMessage());
+    }
+
+    @Test
+    void testTop3Frequent_ReadsPurchaseProfile() {
+        when(purchaseProfileService.topFrequentProducts(123, 3)).thenReturn(
+                Collections.singletonList(ProductSummary.fromEntity(sampleProduct)));
+
+        var products = userController.top3Frequent(123);
+        assertEquals(1, products.size());
+        assertEquals(100, products.get(0).getProductId());
+        verifyNoInteractions(orderService, orderItemDAO, productService);
+    }
+
     @Test
     void testAddToWatchlist_Success() {
         User user = new User();
@@ -129,6 +183,7 @@ class UserControllerTest {
         String msg = userController.addToWatchlist(123, 100);
         assertEquals("Product 100 added to watchlist.", msg);
         verify(watchlistDAO, times(1)).save(any());
+        verify(watchlistIndexService).watchedAfterCommit(123, 100);
     }
 
     @Test
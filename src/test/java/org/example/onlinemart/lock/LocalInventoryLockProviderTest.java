@@ -0,0 +1,61 @@
+package org.example.onlinemart.lock;
+
+import org.example.onlinemart.dao.ProductDAO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LocalInventoryLockProviderTest {
+
+    @Mock
+    private ProductDAO productDAO;
+
+    private LocalInventoryLockProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        when(productDAO.findMaxStockFence()).thenReturn(41L);
+        provider = new LocalInventoryLockProvider(productDAO, 16);
+        provider.init();
+    }
+
+    @Test
+    void testAcquireAndRelease_FencingContinuesFromDatabase() {
+        TreeSet<Integer> ids = new TreeSet<>(Arrays.asList(1, 2, 3));
+
+        String token = provider.acquire(ids, 0, 0);
+        assertNotNull(token);
+        assertEquals(42L, provider.getFencingToken(token));
+        assertTrue(provider.isLocked(2));
+
+        assertEquals(3, provider.release(ids, token));
+        assertFalse(provider.isLocked(2));
+        assertEquals(0L, provider.getFencingToken(token));
+    }
+
+    @Test
+    void testAcquire_TimesOutWhileHeldByAnotherThread() throws Exception {
+        TreeSet<Integer> ids = new TreeSet<>(Arrays.asList(7, 8));
+        String token = provider.acquire(ids, 0, 0);
+        assertNotNull(token);
+
+        String other = CompletableFuture
+                .supplyAsync(() -> provider.acquire(new TreeSet<>(Arrays.asList(8, 9)), 50, 0))
+                .get();
+        assertNull(other);
+        assertEquals(1L, provider.getStats().get("timeouts"));
+        assertEquals(1L, provider.getStats().get("contended"));
+
+        provider.release(ids, token);
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.onlinemart.lock;
+
+import org.example.onlinemart.cache.CacheService;
+import org.example.onlinemart.dao.ProductDAO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisInventoryLockProviderTest {
+
+    @Mock private CacheService cacheService;
+    @Mock private JedisPool jedisPool;
+    @Mock private Jedis jedis;
+    @Mock private ProductDAO productDAO;
+
+    private RedisInventoryLockProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        when(jedisPool.getResource()).thenReturn(jedis);
+        provider = new RedisInventoryLockProvider(cacheService, jedisPool, productDAO);
+        ReflectionTestUtils.setField(provider, "lockTimeoutSeconds", 10);
+    }
+
+    @Test
+    void testAcquire_SendsTokenAndTimeoutToScript() {
+        when(jedis.eval(anyString(), anyList(), anyList())).thenReturn(42L);
+        TreeSet<Integer> ids = new TreeSet<>(Arrays.asList(2, 1));
+
+        String token = provider.acquire(ids, 0, 0);
+
+        assertNotNull(token);
+        assertEquals(42L, provider.getFencingToken(token));
+        verify(jedis).eval(anyString(),
+                eq(Arrays.asList("inventory:lock:fence", "inventory:lock:1", "inventory:lock:2")),
+                eq(Arrays.asList(token, "10")));
+    }
+
+    @Test
+    void testAcquire_ReseedsMissingFencingCounter() {
+        when(jedis.eval(anyString(), anyList(), anyList())).thenReturn(-1L, "41", 42L);
+        when(productDAO.findMaxStockFence()).thenReturn(41L);
+
+        String token = provider.acquire(new TreeSet<>(Collections.singletonList(3)), 0, 0);
+
+        assertEquals(42L, provider.getFencingToken(token));
+        verify(jedis).eval(contains("'set', KEYS[1], ARGV[1]"),
+                eq(Collections.singletonList("inventory:lock:fence")), eq(Collections.singletonList("41")));
+        verify(jedis, times(3)).eval(anyString(), anyList(), anyList());
+    }
+
+    @Test
+    void testRelease_UsesTokenStoredByAcquire() {
+        when(jedis.eval(anyString(), anyList(), anyList())).thenReturn(7L, 1L);
+        TreeSet<Integer> ids = new TreeSet<>(Collections.singletonList(3));
+
+        String token = provider.acquire(ids, 0, 0);
+        assertEquals(1, provider.release(ids, token));
+
+        verify(jedis).eval(anyString(), eq(Collections.singletonList("inventory:lock:3")),
+                eq(Collections.singletonList(token)));
+        assertEquals(0L, provider.getFencingToken(token));
+    }
+
+    @Test
+    void testAcquire_ReturnsNullWhenHeld() {
+        when(jedis.eval(anyString(), anyList(), anyList())).thenReturn(0L);
+
+        assertNull(provider.acquire(new TreeSet<>(Collections.singletonList(3)), 0, 0));
+        assertEquals(1L, provider.getStats().get("timeouts"));
+    }
+
+    @Test
+    void testWatchdog_RenewsLockWithinLease() {
+        when(jedis.eval(anyString(), anyList(), anyList())).thenReturn(5L, 1L);
+        String token = provider.acquire(new TreeSet<>(Collections.singletonList(3)), 0, 0);
+
+        provider.renewHeldLocks();
+
+        verify(jedis).eval(anyString(), eq(Collections.singletonList("inventory:lock:3")),
+                eq(Arrays.asList(token, "10")));
+        assertEquals(5L, provider.getFencingToken(token));
+    }
+
+    @Test
+    void testWatchdog_StopsRenewingPastMaxHold() {
+        ReflectionTestUtils.setField(provider, "maxHoldMillis", 0L);
+        when(jedis.eval(anyString(), anyList(), anyList())).thenReturn(5L);
+        String token = provider.acquire(new TreeSet<>(Collections.singletonList(3)), 0, 0);
+
+        provider.renewHeldLocks();
+
+        // Only the acquire reached Redis; the key is left to expire
+        verify(jedis, times(1)).eval(anyString(), anyList(), anyList());
+        assertEquals(0L, provider.getFencingToken(token));
+    }
+}
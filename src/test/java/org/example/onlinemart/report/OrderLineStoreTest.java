@@ -0,0 +1,108 @@
+package org.example.onlinemart.report;
+
+import org.example.onlinemart.dao.OrderItemDAO;
+import org.example.onlinemart.dto.OrderLine;
+import org.example.onlinemart.dto.OrderLineSummary;
+import org.example.onlinemart.entity.Order;
+import org.example.onlinemart.entity.OrderItem;
+import org.example.onlinemart.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderLineStoreTest {
+
+    @Mock private OrderItemDAO orderItemDAO;
+
+    @InjectMocks
+    private OrderLineStore orderLineStore;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ReflectionTestUtils.setField(orderLineStore, "initialCapacity", 16);
+        ReflectionTestUtils.setField(orderLineStore, "loadChunkSize", 100);
+
+        List<OrderLine> lines = new ArrayList<>();
+        for (int orderId = 1; orderId <= 1000; orderId++) {
+            Order.OrderStatus status = (orderId % 2 == 0) ? Order.OrderStatus.Completed : Order.OrderStatus.Processing;
+            // Two lines per order: product 1 and product (orderId % 5) + 2
+            lines.add(new OrderLine(orderId, 1, 1, 10.0, 6.0, orderId * 1000L, status));
+            lines.add(new OrderLine(orderId, orderId % 5 + 2, 2, 4.0, 1.0, orderId * 1000L, status));
+        }
+        when(orderItemDAO.scrollAllLines(anyInt(), any(Consumer.class))).thenAnswer(invocation -> {
+            Consumer<List<OrderLine>> consumer = invocation.getArgument(1);
+            for (int from = 0; from < lines.size(); from += 100) {
+                consumer.accept(new ArrayList<>(lines.subList(from, from + 100)));
+            }
+            return (long) lines.size();
+        });
+    }
+
+    @Test
+    void testSummarize_FiltersByStatusAndTime() {
+        OrderLineSummary all = orderLineStore.summarize(null, Long.MIN_VALUE, Long.MAX_VALUE, 3);
+        assertEquals(2000, all.getLineCount());
+        assertEquals(3000, all.getUnits());
+        assertEquals(1000 * 10.0 + 2000 * 4.0, all.getRevenue(), 0.001);
+        assertEquals(1, all.getTopProducts().get(0).getProductId());
+        assertEquals(3, all.getTopProducts().size());
+
+        OrderLineSummary completed = orderLineStore.summarize(Order.OrderStatus.Completed, 0, 101_000, 10);
+        // Orders 2, 4, ..., 100
+        assertEquals(100, completed.getLineCount());
+        assertEquals(50 * 10.0 + 100 * 4.0, completed.getRevenue(), 0.001);
+        assertEquals(2000, completed.getScannedLines());
+    }
+
+    @Test
+    void testUpdates_AppendAndStatusChangesAfterLoad() {
+        orderLineStore.summarize(null, Long.MIN_VALUE, Long.MAX_VALUE, 0);
+
+        Order order = new Order();
+        order.setOrderId(1001);
+        order.setOrderTime(new Date(5_000_000L));
+        Product product = new Product();
+        product.setProductId(42);
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(3);
+        item.setRetailPriceSnapshot(20.0);
+        item.setWholesalePriceSnapshot(12.0);
+
+        orderLineStore.appendAfterCommit(order, Collections.singletonList(item));
+        // A second append of the same order is ignored
+        orderLineStore.appendAfterCommit(order, Collections.singletonList(item));
+        orderLineStore.updateStatusAfterCommit(Collections.singletonList(1001), Order.OrderStatus.Completed);
+        orderLineStore.updateStatusAfterCommit(Collections.singletonList(1), Order.OrderStatus.Canceled);
+
+        OrderLineSummary completed = orderLineStore.summarize(Order.OrderStatus.Completed,
+                Long.MIN_VALUE, Long.MAX_VALUE, 10);
+        assertEquals(1001, completed.getLineCount());
+        OrderLineSummary.ProductSummary added = completed.getTopProducts().stream()
+                .filter(p -> p.getProductId() == 42).findFirst().orElseThrow(AssertionError::new);
+        assertEquals(60.0, added.getRevenue(), 0.001);
+        assertEquals(24.0, added.getProfit(), 0.001);
+
+        OrderLineSummary canceled = orderLineStore.summarize(Order.OrderStatus.Canceled,
+                Long.MIN_VALUE, Long.MAX_VALUE, 1);
+        assertEquals(2, canceled.getLineCount());
+        assertEquals(Long.valueOf(2001), orderLineStore.getStats().get("lines"));
+        verify(orderItemDAO, times(1)).scrollAllLines(anyInt(), any());
+    }
+}
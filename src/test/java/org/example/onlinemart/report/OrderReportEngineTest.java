@@ -0,0 +1,98 @@
+package org.example.onlinemart.report;
+
+import org.example.onlinemart.dao.OrderItemDAO;
+import org.example.onlinemart.dto.OrderLine;
+import org.example.onlinemart.entity.Order;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderReportEngineTest {
+
+    @Mock private OrderItemDAO orderItemDAO;
+
+    @InjectMocks
+    private OrderReportEngine orderReportEngine;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(orderReportEngine, "parallelism", 4);
+        ReflectionTestUtils.setField(orderReportEngine, "chunkSize", 1000);
+        ReflectionTestUtils.setField(orderReportEngine, "leafSize", 64);
+        ReflectionTestUtils.setField(orderReportEngine, "maxChunksInFlight", 2);
+        orderReportEngine.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderReportEngine.cleanup();
+    }
+
+    @Test
+    void testRun_ParallelResultMatchesSerialAggregation() {
+        long january = LocalDateTime.of(2024, 1, 15, 12, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long february = LocalDateTime.of(2024, 2, 15, 12, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        List<OrderLine> lines = new ArrayList<>();
+        for (int i = 0; i < 10_500; i++) {
+            lines.add(new OrderLine(i / 3, i % 7, 1 + i % 4, 10.0, 6.0,
+                    (i % 2 == 0) ? january : february, Order.OrderStatus.Completed));
+        }
+        streamInChunks(lines);
+
+        SalesReport serial = new SalesReport();
+        lines.forEach(serial::add);
+
+        SalesReport report = orderReportEngine.run(SalesReport::new);
+
+        assertEquals(10_500, report.getLineCount());
+        assertEquals(serial.getUnits(), report.getUnits());
+        assertEquals(serial.getRevenue(), report.getRevenue(), 0.001);
+        assertEquals(serial.getProfit(), report.getProfit(), 0.001);
+        assertEquals(7, report.getByProduct().size());
+        for (int productId = 0; productId < 7; productId++) {
+            assertEquals(serial.getByProduct().get(productId).getUnits(),
+                    report.getByProduct().get(productId).getUnits());
+        }
+        assertEquals(serial.getRevenueByMonth().get("2024-01"), report.getRevenueByMonth().get("2024-01"), 0.001);
+        assertEquals(serial.getRevenueByMonth().get("2024-02"), report.getRevenueByMonth().get("2024-02"), 0.001);
+    }
+
+    @Test
+    void testRun_EmptyHistory() {
+        streamInChunks(new ArrayList<>());
+
+        SalesReport report = orderReportEngine.run(SalesReport::new);
+
+        assertEquals(0, report.getLineCount());
+        assertTrue(report.getByProduct().isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamInChunks(List<OrderLine> lines) {
+        doAnswer(invocation -> {
+            int chunkSize = invocation.getArgument(0);
+            Consumer<List<OrderLine>> consumer = invocation.getArgument(1);
+            for (int from = 0; from < lines.size(); from += chunkSize) {
+                consumer.accept(new ArrayList<>(lines.subList(from, Math.min(from + chunkSize, lines.size()))));
+            }
+            return (long) lines.size();
+        }).when(orderItemDAO).scrollCompletedLines(anyInt(), any(Consumer.class));
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.cache.CacheService;
+import org.example.onlinemart.controller.AdminController;
+import org.example.onlinemart.dao.OrderDAO;
+import org.example.onlinemart.dao.ProductSalesStatsDAO;
+import org.example.onlinemart.report.OrderReportEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AdminSummaryServiceTest {
+
+    @Mock private ProductSalesStatsDAO productSalesStatsDAO;
+    @Mock private OrderDAO orderDAO;
+    @Mock private CacheService cacheService;
+    @Mock private OrderReportEngine orderReportEngine;
+
+    @InjectMocks
+    private AdminSummaryService adminSummaryService;
+
+    @Test
+    void testFindMostProfitableProduct_ReadsStatsTableOnCacheMiss() {
+        when(cacheService.get(CacheKeys.AdminSummary.MOST_PROFITABLE, AdminController.ProductStats.class))
+                .thenReturn(Optional.empty());
+        when(productSalesStatsDAO.findTopByProfit(1)).thenReturn(Collections.singletonList(
+                new Object[]{100, "Widget", 42.5, 5L}));
+
+        AdminController.ProductStats stats = adminSummaryService.findMostProfitableProduct();
+        assertEquals(100, stats.getProductId());
+        assertEquals(42.5, stats.getTotalProfit(), 0.001);
+        assertEquals(5, stats.getTotalSold());
+    }
+
+    @Test
+    void testCountTotalSold_CachedValueSkipsQuery() {
+        when(cacheService.get(CacheKeys.AdminSummary.TOTAL_SOLD, Integer.class)).thenReturn(Optional.of(17));
+
+        assertEquals(17, adminSummaryService.countTotalSold());
+        verify(productSalesStatsDAO, never()).sumUnitsSold();
+    }
+
+    @Test
+    void testFindPopularProductsPage_FirstPageFromSameKeysetAsLaterPages() {
+        when(productSalesStatsDAO.findTopByUnitsSold(2)).thenReturn(Arrays.asList(
+                new Object[]{3, "Widget", 12L}, new Object[]{7, "Gadget", 12L}));
+
+        var page = adminSummaryService.findPopularProductsPage(2, null, null);
+        assertEquals(2, page.getProducts().size());
+        assertEquals(12L, page.getNextAfterQuantity());
+        assertEquals(7L, page.getNextAfterProductId());
+        verifyNoInteractions(cacheService);
+    }
+
+    @Test
+    void testFindPopularProductsPage_ContinuesAfterCursor() {
+        when(productSalesStatsDAO.findTopByUnitsSoldAfter(2, 12L, 7)).thenReturn(Arrays.asList(
+                new Object[]{8, "Sprocket", 12L}, new Object[]{9, "Gizmo", 5L}));
+
+        var page = adminSummaryService.findPopularProductsPage(2, 12L, 7);
+        assertEquals(2, page.getProducts().size());
+        assertEquals(5L, page.getNextAfterQuantity());
+        assertEquals(9L, page.getNextAfterProductId());
+    }
+
+    @Test
+    void testFindPopularProductsPage_LastPageHasNoCursor() {
+        when(productSalesStatsDAO.findTopByUnitsSoldAfter(2, 5L, 9)).thenReturn(Collections.singletonList(
+                new Object[]{4, "Doohickey", 1L}));
+
+        var page = adminSummaryService.findPopularProductsPage(2, 5L, 9);
+        assertEquals(1, page.getProducts().size());
+        assertNull(page.getNextAfterQuantity());
+        assertNull(page.getNextAfterProductId());
+    }
+
+    @Test
+    void testRebuildSalesStats_ClearsSummaryCaches() {
+        when(productSalesStatsDAO.rebuild()).thenReturn(4);
+
+        assertEquals(4, adminSummaryService.rebuildSalesStats());
+        verify(cacheService).delete(CacheKeys.AdminSummary.MOST_PROFITABLE, CacheKeys.AdminSummary.TOTAL_SOLD,
+                CacheKeys.AdminSummary.SALES_REPORT);
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.cache.CacheService;
+import org.example.onlinemart.dto.OrderTicket;
+import org.example.onlinemart.entity.Order;
+import org.example.onlinemart.entity.OrderItem;
+import org.example.onlinemart.entity.Product;
+import org.example.onlinemart.exception.NotEnoughInventoryException;
+import org.example.onlinemart.exception.OrderOutcomeUnknownException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncOrderServiceTest {
+
+    @Mock private OrderIntakeService orderIntakeService;
+    @Mock private CacheService cacheService;
+    @Mock private NotificationService notificationService;
+
+    private AsyncOrderService asyncOrderService;
+
+    private final List<OrderItem> items = Collections.singletonList(item(10, 2));
+
+    @BeforeEach
+    void setUp() {
+        asyncOrderService = new AsyncOrderService(orderIntakeService, cacheService, notificationService);
+        ReflectionTestUtils.setField(asyncOrderService, "workers", 1);
+        ReflectionTestUtils.setField(asyncOrderService, "queueCapacity", 1);
+        ReflectionTestUtils.setField(asyncOrderService, "ticketTTL", 3600L);
+        asyncOrderService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncOrderService.cleanup();
+    }
+
+    @Test
+    void testSubmit_CompletesTicketWithOrder() {
+        when(orderIntakeService.placeOrder(5, items)).thenReturn(order(42));
+
+        OrderTicket ticket = asyncOrderService.submit(5, items);
+
+        verify(notificationService, timeout(2000)).notifyOrderTicket(ticket.getTicketId(), 5,
+                OrderTicket.COMPLETED, 42);
+        verify(cacheService, atLeast(3)).set(eq(CacheKeys.Orders.ticket(ticket.getTicketId())), same(ticket),
+                eq(3600L), eq(TimeUnit.SECONDS));
+        assertEquals(OrderTicket.COMPLETED, ticket.getStatus());
+        assertEquals(1L, asyncOrderService.getStats().get("completed"));
+    }
+
+    @Test
+    void testSubmit_FailedPlacementFailsTicket() {
+        when(orderIntakeService.placeOrder(5, items))
+                .thenThrow(new NotEnoughInventoryException("Not enough inventory for product ID: 10"));
+
+        OrderTicket ticket = asyncOrderService.submit(5, items);
+
+        verify(notificationService, timeout(2000)).notifyOrderTicket(ticket.getTicketId(), 5,
+                OrderTicket.FAILED, null);
+        assertEquals("Not enough inventory for product ID: 10", ticket.getMessage());
+        assertEquals(1L, asyncOrderService.getStats().get("failed"));
+    }
+
+    @Test
+    void testSubmit_TimeoutLeavesTicketUnknownUntilOrderCommits() {
+        CompletableFuture<Order> outcome = new CompletableFuture<>();
+        when(orderIntakeService.placeOrder(5, items))
+                .thenThrow(new OrderOutcomeUnknownException("Order placement timed out", outcome));
+
+        OrderTicket ticket = asyncOrderService.submit(5, items);
+
+        verify(notificationService, timeout(2000)).notifyOrderTicket(ticket.getTicketId(), 5,
+                OrderTicket.UNKNOWN, null);
+        verify(notificationService, never()).notifyOrderTicket(anyString(), anyInt(), eq(OrderTicket.FAILED), any());
+
+        outcome.complete(order(42));
+
+        verify(notificationService, timeout(2000)).notifyOrderTicket(ticket.getTicketId(), 5,
+                OrderTicket.COMPLETED, 42);
+        assertEquals(OrderTicket.COMPLETED, ticket.getStatus());
+        assertNull(ticket.getMessage());
+    }
+
+    @Test
+    void testSubmit_RejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderIntakeService.placeOrder(5, items)).thenAnswer(invocation -> {
+            running.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return order(42);
+        });
+
+        try {
+            asyncOrderService.submit(5, items);
+            assertTrue(running.await(2, TimeUnit.SECONDS));
+            // One worker busy and one order queued fill the pool
+            asyncOrderService.submit(5, items);
+
+            RuntimeException ex = assertThrows(RuntimeException.class, () -> asyncOrderService.submit(5, items));
+            assertEquals("Too many orders in progress, please retry shortly", ex.getMessage());
+            verify(cacheService).delete(startsWith(CacheKeys.Orders.ticket("")));
+            assertEquals(1L, asyncOrderService.getStats().get("rejected"));
+            assertEquals(2L, asyncOrderService.getStats().get("submitted"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testSubmit_RejectsInvalidQuantity() {
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> asyncOrderService.submit(5, Collections.singletonList(item(10, 0))));
+        assertEquals("Invalid quantity for product ID: 10", ex.getMessage());
+        verifyNoInteractions(cacheService, orderIntakeService);
+    }
+
+    private static Order order(int orderId) {
+        Order order = new Order();
+        order.setOrderId(orderId);
+        return order;
+    }
+
+    private static OrderItem item(int productId, int quantity) {
+        Product product = new Product();
+        product.setProductId(productId);
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        return item;
+    }
+}
@@ -0,0 +1,190 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.cache.CacheService;
+import org.example.onlinemart.dto.OrderDTO;
+import org.example.onlinemart.entity.Order;
+import org.example.onlinemart.exception.CacheException;
+import org.example.onlinemart.exception.NotEnoughInventoryException;
+import org.example.onlinemart.exception.OrderOutcomeUnknownException;
+import org.example.onlinemart.service.IdempotencyService.IdempotencyRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private static final String KEY = CacheKeys.Orders.idempotency(5, "abc");
+
+    @Mock private CacheService cacheService;
+
+    private IdempotencyService idempotencyService;
+
+    private final AtomicInteger placements = new AtomicInteger();
+    private final Order placed = order(42);
+    private final Supplier<Order> placement = () -> {
+        placements.incrementAndGet();
+        return placed;
+    };
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(cacheService);
+        ReflectionTestUtils.setField(idempotencyService, "windowSeconds", 86400L);
+        ReflectionTestUtils.setField(idempotencyService, "inFlightSeconds", 30L);
+        ReflectionTestUtils.setField(idempotencyService, "waitMillis", 1000L);
+        ReflectionTestUtils.setField(idempotencyService, "pollMillis", 1L);
+    }
+
+    @Test
+    void testPlaceOnce_FirstRequestPlacesAndRecords() {
+        when(cacheService.setIfAbsent(eq(KEY), any(IdempotencyRecord.class), eq(30L), eq(TimeUnit.SECONDS)))
+                .thenReturn(true);
+
+        assertEquals(42, idempotencyService.placeOnce(5, "abc", placement).getOrderId());
+
+        ArgumentCaptor<IdempotencyRecord> record = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(cacheService).set(eq(KEY), record.capture(), eq(86400L), eq(TimeUnit.SECONDS));
+        assertEquals(IdempotencyRecord.COMPLETED, record.getValue().getStatus());
+        assertEquals(42, record.getValue().getResponse().getOrderId());
+        assertEquals(1, placements.get());
+    }
+
+    @Test
+    void testPlaceOnce_ReplaysStoredResponse() {
+        OrderDTO stored = new OrderDTO();
+        when(cacheService.setIfAbsent(anyString(), any(), anyLong(), any())).thenReturn(false);
+        when(cacheService.get(KEY, IdempotencyRecord.class))
+                .thenReturn(Optional.of(IdempotencyRecord.completed(stored)));
+
+        assertSame(stored, idempotencyService.placeOnce(5, "abc", placement));
+        assertEquals(0, placements.get());
+    }
+
+    @Test
+    void testPlaceOnce_WaitsForRequestInFlight() {
+        OrderDTO stored = new OrderDTO();
+        when(cacheService.setIfAbsent(anyString(), any(), anyLong(), any())).thenReturn(false);
+        when(cacheService.get(KEY, IdempotencyRecord.class)).thenReturn(
+                Optional.of(IdempotencyRecord.inFlight()),
+                Optional.of(IdempotencyRecord.inFlight()),
+                Optional.of(IdempotencyRecord.completed(stored)));
+
+        assertSame(stored, idempotencyService.placeOnce(5, "abc", placement));
+        verify(cacheService, times(3)).get(KEY, IdempotencyRecord.class);
+        assertEquals(0, placements.get());
+    }
+
+    @Test
+    void testPlaceOnce_GivesUpWhileStillInFlight() {
+        ReflectionTestUtils.setField(idempotencyService, "waitMillis", 0L);
+        when(cacheService.setIfAbsent(anyString(), any(), anyLong(), any())).thenReturn(false);
+        when(cacheService.get(KEY, IdempotencyRecord.class)).thenReturn(Optional.of(IdempotencyRecord.inFlight()));
+
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> idempotencyService.placeOnce(5, "abc", placement));
+        assertEquals("A request with this Idempotency-Key is still being processed", ex.getMessage());
+        assertEquals(0, placements.get());
+    }
+
+    @Test
+    void testPlaceOnce_FailedPlacementReleasesKey() {
+        when(cacheService.setIfAbsent(anyString(), any(), anyLong(), any())).thenReturn(true);
+
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> idempotencyService.placeOnce(5, "abc", () -> {
+                    throw new NotEnoughInventoryException("Not enough inventory");
+                }));
+        assertEquals("Not enough inventory", ex.getMessage());
+        verify(cacheService).delete(KEY);
+        verify(cacheService, never()).set(anyString(), any(), anyLong(), any());
+    }
+
+    @Test
+    void testPlaceOnce_TimeoutKeepsKeyUntilOrderCommits() {
+        when(cacheService.setIfAbsent(anyString(), any(), anyLong(), any())).thenReturn(true);
+        CompletableFuture<Order> outcome = new CompletableFuture<>();
+
+        assertThrows(OrderOutcomeUnknownException.class, () -> idempotencyService.placeOnce(5, "abc", () -> {
+            throw new OrderOutcomeUnknownException("Order placement timed out", outcome);
+        }));
+        verify(cacheService, never()).delete(anyString());
+
+        // The queued order commits after the caller stopped waiting
+        outcome.complete(placed);
+
+        ArgumentCaptor<IdempotencyRecord> records = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(cacheService, times(2)).set(eq(KEY), records.capture(), eq(86400L), eq(TimeUnit.SECONDS));
+        List<IdempotencyRecord> stored = records.getAllValues();
+        assertEquals(IdempotencyRecord.UNKNOWN, stored.get(0).getStatus());
+        assertEquals(IdempotencyRecord.COMPLETED, stored.get(1).getStatus());
+        assertEquals(42, stored.get(1).getResponse().getOrderId());
+        verify(cacheService, never()).delete(anyString());
+    }
+
+    @Test
+    void testPlaceOnce_TimeoutReleasesKeyOnceOrderFails() {
+        when(cacheService.setIfAbsent(anyString(), any(), anyLong(), any())).thenReturn(true);
+        CompletableFuture<Order> outcome = new CompletableFuture<>();
+
+        assertThrows(OrderOutcomeUnknownException.class, () -> idempotencyService.placeOnce(5, "abc", () -> {
+            throw new OrderOutcomeUnknownException("Order placement timed out", outcome);
+        }));
+        outcome.completeExceptionally(new NotEnoughInventoryException("Not enough inventory"));
+
+        verify(cacheService).delete(KEY);
+    }
+
+    @Test
+    void testPlaceOnce_RefusesRetryWhileOutcomeUnknown() {
+        when(cacheService.setIfAbsent(anyString(), any(), anyLong(), any())).thenReturn(false);
+        when(cacheService.get(KEY, IdempotencyRecord.class)).thenReturn(Optional.of(IdempotencyRecord.unknown()));
+
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> idempotencyService.placeOnce(5, "abc", placement));
+        assertEquals("The order for this Idempotency-Key may have been placed, please check your orders before retrying",
+                ex.getMessage());
+        assertEquals(0, placements.get());
+    }
+
+    @Test
+    void testPlaceOnce_PlacesWhenCacheIsDown() {
+        when(cacheService.setIfAbsent(anyString(), any(), anyLong(), any()))
+                .thenThrow(new CacheException("Redis unavailable"));
+
+        assertEquals(42, idempotencyService.placeOnce(5, "abc", placement).getOrderId());
+        assertEquals(1, placements.get());
+    }
+
+    @Test
+    void testPlaceOnce_PlacesWhenCacheFailsAfterClaimLost() {
+        when(cacheService.setIfAbsent(anyString(), any(), anyLong(), any())).thenReturn(false);
+        when(cacheService.get(KEY, IdempotencyRecord.class)).thenThrow(new CacheException("Redis unavailable"));
+
+        assertEquals(42, idempotencyService.placeOnce(5, "abc", placement).getOrderId());
+        assertEquals(1, placements.get());
+    }
+
+    private static Order order(int orderId) {
+        Order order = new Order();
+        order.setOrderId(orderId);
+        order.setOrderStatus(Order.OrderStatus.Processing);
+        return order;
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.entity.OutboxEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationServiceTest {
+
+    @Mock private JedisPool jedisPool;
+    @Mock private Jedis jedis;
+    @Mock private Pipeline pipeline;
+
+    @InjectMocks
+    private NotificationService notificationService;
+
+    @Test
+    void testPublishBatch_OneRoundTripInOrder() {
+        when(jedisPool.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+
+        notificationService.publishBatch(Arrays.asList(
+                new OutboxEvent("order-status-change", "{\"orderId\":1}"),
+                new OutboxEvent("inventory-update", "{\"productId\":2}")));
+
+        var inOrder = inOrder(pipeline);
+        inOrder.verify(pipeline).publish("order-status-change", "{\"orderId\":1}");
+        inOrder.verify(pipeline).publish("inventory-update", "{\"productId\":2}");
+        inOrder.verify(pipeline).sync();
+        verify(jedis, never()).publish(anyString(), anyString());
+    }
+
+    @Test
+    void testPublishBatch_EmptyBatchSkipsRedis() {
+        notificationService.publishBatch(Collections.emptyList());
+
+        verifyNoInteractions(jedisPool);
+    }
+
+    @Test
+    void testPublishBatch_FailureIsThrownSoEventsStayQueued() {
+        when(jedisPool.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        doThrow(new JedisConnectionException("down")).when(pipeline).sync();
+
+        assertThrows(JedisConnectionException.class, () -> notificationService.publishBatch(
+                Collections.singletonList(new OutboxEvent("order-status-change", "{}"))));
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.onlinemart.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.onlinemart.dao.OrderDAO;
+import org.example.onlinemart.dto.OrderExportRow;
+import org.example.onlinemart.entity.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderExportServiceTest {
+
+    @Mock private OrderDAO orderDAO;
+
+    private OrderExportService orderExportService;
+
+    @BeforeEach
+    void setUp() {
+        orderExportService = new OrderExportService(orderDAO, new ObjectMapper());
+        ReflectionTestUtils.setField(orderExportService, "flushRows", 1);
+    }
+
+    @Test
+    void testExport_CsvEscapesUsernames() throws Exception {
+        streamRows(Arrays.asList(
+                new OrderExportRow(1, 10, "alice", Order.OrderStatus.Completed, new Date(0), new Date(0), 2, 30.0, 18.0),
+                new OrderExportRow(2, 11, "smith, \"bob\"", Order.OrderStatus.Processing, new Date(0), new Date(0),
+                        1, 5.0, 2.0)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderExportService.export("csv", null, null, null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("order_id,user_id,username"));
+        assertEquals("1,10,alice,Completed,1970-01-01 00:00:00,1970-01-01 00:00:00,2,30.0,18.0", lines[1]);
+        assertTrue(lines[2].startsWith("2,11,\"smith, \"\"bob\"\"\",Processing,"));
+    }
+
+    @Test
+    void testExport_NdjsonWritesOneObjectPerLine() throws Exception {
+        streamRows(Arrays.asList(
+                new OrderExportRow(1, 10, "alice", Order.OrderStatus.Completed, new Date(0), new Date(0), 2, 30.0, 18.0),
+                new OrderExportRow(2, 11, "bob", Order.OrderStatus.Canceled, new Date(0), new Date(0), 1, 5.0, 2.0)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderExportService.export("ndjson", null, null, Order.OrderStatus.Completed, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(2, lines.length);
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(1, mapper.readTree(lines[0]).get("orderId").asInt());
+        assertEquals("Canceled", mapper.readTree(lines[1]).get("orderStatus").asText());
+        verify(orderDAO).scrollOrders(isNull(), isNull(), eq(Order.OrderStatus.Completed), any());
+    }
+
+    @Test
+    void testContentType_RejectsUnknownFormat() {
+        assertEquals("text/csv", orderExportService.contentType("CSV"));
+        assertThrows(RuntimeException.class, () -> orderExportService.contentType("xml"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamRows(List<OrderExportRow> rows) {
+        when(orderDAO.scrollOrders(any(), any(), any(), any(Consumer.class))).thenAnswer(invocation -> {
+            Consumer<OrderExportRow> consumer = invocation.getArgument(3);
+            rows.forEach(consumer);
+            return (long) rows.size();
+        });
+    }
+}
@@ -0,0 +1,248 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.entity.Order;
+import org.example.onlinemart.entity.OrderItem;
+import org.example.onlinemart.entity.Product;
+import org.example.onlinemart.exception.NotEnoughInventoryException;
+import org.example.onlinemart.exception.OrderOutcomeUnknownException;
+import org.example.onlinemart.transaction.AfterCommit;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.ActionQueue;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.event.spi.EventSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderIntakeServiceTest {
+
+    @Mock private OrderService orderService;
+    @Mock private SessionFactory sessionFactory;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private TransactionStatus transactionStatus;
+    @Mock private EventSource session;
+    @Mock private PersistenceContext persistenceContext;
+    @Mock private ActionQueue actionQueue;
+
+    private final Map<Object, Object> managed = new LinkedHashMap<>();
+
+    private OrderIntakeService orderIntakeService;
+
+    @BeforeEach
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void setUp() {
+        stubTransactions();
+        when(sessionFactory.getCurrentSession()).thenReturn(session);
+        when(session.unwrap(EventSource.class)).thenReturn(session);
+        when(session.getPersistenceContext()).thenReturn(persistenceContext);
+        when(persistenceContext.getEntitiesByKey()).thenReturn((Map) managed);
+
+        orderIntakeService = new OrderIntakeService(orderService, sessionFactory, transactionManager);
+        ReflectionTestUtils.setField(orderIntakeService, "enabled", true);
+        ReflectionTestUtils.setField(orderIntakeService, "queueCapacity", 10);
+        ReflectionTestUtils.setField(orderIntakeService, "maxBatchSize", 3);
+        ReflectionTestUtils.setField(orderIntakeService, "maxWaitMillis", 2000L);
+        orderIntakeService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderIntakeService.cleanup();
+    }
+
+    @Test
+    void testBatch_FailingOrderDoesNotRollBackOthers() throws Exception {
+        Product shared = product(10);
+        Order first = order(1);
+        Order failed = order(2);
+        Order third = order(3);
+        List<OrderItem> items = Collections.singletonList(item(shared));
+
+        when(orderService.createOrder(eq(1), anyList())).thenAnswer(invocation -> {
+            managed.put("product#10", shared);
+            managed.put("order#1", first);
+            return first;
+        });
+        when(orderService.createOrder(eq(2), anyList())).thenAnswer(invocation -> {
+            managed.put("order#2", failed);
+            throw new NotEnoughInventoryException("Not enough inventory for product ID: 10");
+        });
+        when(orderService.createOrder(eq(3), anyList())).thenAnswer(invocation -> {
+            managed.put("order#3", third);
+            return third;
+        });
+        when(session.getActionQueue()).thenReturn(actionQueue);
+
+        CompletableFuture<Order> placedFirst = orderIntakeService.submit(1, items);
+        CompletableFuture<Order> placedSecond = orderIntakeService.submit(2, items);
+        CompletableFuture<Order> placedThird = orderIntakeService.submit(3, items);
+
+        assertSame(first, placedFirst.get(5, TimeUnit.SECONDS));
+        assertSame(third, placedThird.get(5, TimeUnit.SECONDS));
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> placedSecond.get(5, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof NotEnoughInventoryException);
+
+        // Two savepoints released and the batch committed; only the failed savepoint rolled back
+        verify(transactionManager, times(3)).commit(transactionStatus);
+        verify(transactionManager, times(1)).rollback(transactionStatus);
+
+        // The failed order and the product it changed are detached; the first order stays managed
+        verify(actionQueue).clear();
+        verify(session).evict(failed);
+        verify(session).evict(shared);
+        verify(session, never()).evict(first);
+        verify(session, never()).clear();
+        verify(session, times(2)).flush();
+    }
+
+    @Test
+    void testBatch_DropsAfterCommitHooksOfFailedOrder() throws Exception {
+        Product shared = product(10);
+        List<OrderItem> items = Collections.singletonList(item(shared));
+        List<Integer> committedHooks = new CopyOnWriteArrayList<>();
+
+        when(orderService.createOrder(anyInt(), anyList())).thenAnswer(invocation -> {
+            int userId = invocation.getArgument(0);
+            AfterCommit.run(() -> committedHooks.add(userId));
+            if (userId == 2) {
+                throw new NotEnoughInventoryException("Not enough inventory for product ID: 10");
+            }
+            return order(userId);
+        });
+        when(session.getActionQueue()).thenReturn(actionQueue);
+
+        CompletableFuture<Order> placedFirst = orderIntakeService.submit(1, items);
+        CompletableFuture<Order> placedSecond = orderIntakeService.submit(2, items);
+        CompletableFuture<Order> placedThird = orderIntakeService.submit(3, items);
+
+        assertEquals(1, placedFirst.get(5, TimeUnit.SECONDS).getOrderId());
+        assertEquals(3, placedThird.get(5, TimeUnit.SECONDS).getOrderId());
+        assertThrows(ExecutionException.class, () -> placedSecond.get(5, TimeUnit.SECONDS));
+
+        // Hooks ran when the batch committed, and not for the order rolled back to its savepoint
+        assertEquals(Arrays.asList(1, 3), committedHooks);
+    }
+
+    @Test
+    void testBatch_CommittedOrdersSucceedWhenAfterCommitWorkThrows() throws Exception {
+        List<OrderItem> items = Collections.singletonList(item(product(10)));
+        when(orderService.createOrder(anyInt(), anyList())).thenAnswer(invocation -> {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    throw new IllegalStateException("Redis unavailable");
+                }
+            });
+            return order(invocation.getArgument(0));
+        });
+
+        CompletableFuture<Order> placedFirst = orderIntakeService.submit(1, items);
+        CompletableFuture<Order> placedSecond = orderIntakeService.submit(2, items);
+
+        assertEquals(1, placedFirst.get(5, TimeUnit.SECONDS).getOrderId());
+        assertEquals(2, placedSecond.get(5, TimeUnit.SECONDS).getOrderId());
+    }
+
+    @Test
+    void testPlaceOrder_TimeoutLeavesOutcomeToFollow() throws Exception {
+        ReflectionTestUtils.setField(orderIntakeService, "submitTimeoutMillis", 50L);
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderService.createOrder(eq(1), anyList())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return order(1);
+        });
+
+        OrderOutcomeUnknownException ex = assertThrows(OrderOutcomeUnknownException.class,
+                () -> orderIntakeService.placeOrder(1, Collections.singletonList(item(product(10)))));
+        release.countDown();
+
+        // The order still commits, and the caller can learn so from the outcome
+        assertEquals(1, ex.getOutcome().get(5, TimeUnit.SECONDS).getOrderId());
+    }
+
+    /**
+     * Mimics the transaction manager's synchronization: the batch transaction
+     * starts it, and committing the batch runs the registered after-commit hooks,
+     * then the after-completion ones even if a hook threw.
+     */
+    private void stubTransactions() {
+        AtomicInteger depth = new AtomicInteger();
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            if (depth.getAndIncrement() == 0) {
+                TransactionSynchronizationManager.initSynchronization();
+            }
+            return transactionStatus;
+        });
+        doAnswer(invocation -> {
+            if (depth.decrementAndGet() == 0) {
+                List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+                TransactionSynchronizationManager.clearSynchronization();
+                try {
+                    for (TransactionSynchronization synchronization : synchronizations) {
+                        synchronization.afterCommit();
+                    }
+                } finally {
+                    for (TransactionSynchronization synchronization : synchronizations) {
+                        synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+                    }
+                }
+            }
+            return null;
+        }).when(transactionManager).commit(transactionStatus);
+        doAnswer(invocation -> {
+            if (depth.decrementAndGet() == 0) {
+                List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+                TransactionSynchronizationManager.clearSynchronization();
+                for (TransactionSynchronization synchronization : synchronizations) {
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+                }
+            }
+            return null;
+        }).when(transactionManager).rollback(transactionStatus);
+    }
+
+    private static Product product(int productId) {
+        Product product = new Product();
+        product.setProductId(productId);
+        product.setStock(5);
+        return product;
+    }
+
+    private static Order order(int orderId) {
+        Order order = new Order();
+        order.setOrderId(orderId);
+        return order;
+    }
+
+    private static OrderItem item(Product product) {
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(1);
+        return item;
+    }
+}
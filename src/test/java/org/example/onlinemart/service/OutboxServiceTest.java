@@ -0,0 +1,111 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.dao.OutboxEventDAO;
+import org.example.onlinemart.entity.Order;
+import org.example.onlinemart.entity.OutboxEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxServiceTest {
+
+    @Mock private OutboxEventDAO outboxEventDAO;
+    @Mock private NotificationService notificationService;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private TransactionStatus transactionStatus;
+
+    private OutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new OutboxService(outboxEventDAO, notificationService, transactionManager);
+        ReflectionTestUtils.setField(outboxService, "relayBatchSize", 2);
+        ReflectionTestUtils.setField(outboxService, "retentionHours", 24L);
+    }
+
+    @Test
+    void testOrderStatusChanged_RecordsEventForChannel() {
+        outboxService.orderStatusChanged(1000, Order.OrderStatus.Completed, 5);
+
+        ArgumentCaptor<OutboxEvent> event = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventDAO).save(event.capture());
+        assertEquals(OutboxService.ORDER_STATUS_CHANNEL, event.getValue().getChannel());
+        assertTrue(event.getValue().getPayload().contains("\"status\":\"Completed\""));
+        assertNull(event.getValue().getPublishedAt());
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    void testDrain_PublishesBatchesThenMarksThemPublished() {
+        when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+        List<OutboxEvent> first = Arrays.asList(event(1), event(2));
+        List<OutboxEvent> second = Collections.singletonList(event(3));
+        when(outboxEventDAO.findUnpublishedForUpdate(2)).thenReturn(first, second);
+
+        outboxService.drain();
+
+        verify(notificationService).publishBatch(first);
+        verify(notificationService).publishBatch(second);
+        verify(outboxEventDAO).markPublished(eq(Arrays.asList(1L, 2L)), any(Date.class));
+        verify(outboxEventDAO).markPublished(eq(Collections.singletonList(3L)), any(Date.class));
+        // A short batch means the table is drained
+        verify(outboxEventDAO, times(2)).findUnpublishedForUpdate(2);
+    }
+
+    @Test
+    void testDrain_FailedPublishLeavesEventsUnpublished() {
+        when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+        List<OutboxEvent> events = Arrays.asList(event(1), event(2));
+        when(outboxEventDAO.findUnpublishedForUpdate(2)).thenReturn(events);
+        doThrow(new JedisConnectionException("down")).when(notificationService).publishBatch(events);
+
+        outboxService.drain();
+
+        verify(outboxEventDAO, never()).markPublished(anyCollection(), any());
+        verify(transactionManager).rollback(transactionStatus);
+        verify(outboxEventDAO, never()).deletePublishedBefore(any());
+    }
+
+    @Test
+    void testDrain_PurgesPublishedEventsPastRetention() {
+        when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+        when(outboxEventDAO.findUnpublishedForUpdate(2)).thenReturn(new ArrayList<>());
+        when(outboxEventDAO.deletePublishedBefore(any(Date.class))).thenReturn(7);
+
+        long before = System.currentTimeMillis();
+        outboxService.drain();
+        // The purge runs at most once an hour
+        outboxService.drain();
+
+        ArgumentCaptor<Date> cutoff = ArgumentCaptor.forClass(Date.class);
+        verify(outboxEventDAO, times(1)).deletePublishedBefore(cutoff.capture());
+        long expected = before - TimeUnit.HOURS.toMillis(24);
+        assertTrue(Math.abs(cutoff.getValue().getTime() - expected) < TimeUnit.MINUTES.toMillis(1));
+        verifyNoInteractions(notificationService);
+    }
+
+    private static OutboxEvent event(long eventId) {
+        OutboxEvent event = new OutboxEvent(OutboxService.INVENTORY_CHANNEL, "{\"productId\":" + eventId + "}");
+        event.setEventId(eventId);
+        return event;
+    }
+}
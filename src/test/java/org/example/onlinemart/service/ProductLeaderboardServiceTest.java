@@ -0,0 +1,128 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.cache.RedisAggregateGuard;
+import org.example.onlinemart.dao.ProductSalesStatsDAO;
+import org.example.onlinemart.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.resps.Tuple;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductLeaderboardServiceTest {
+
+    private static final String KEY = CacheKeys.AdminSummary.POPULARITY_LEADERBOARD;
+
+    @Mock private JedisPool jedisPool;
+    @Mock private Jedis jedis;
+    @Mock private RedisAggregateGuard aggregateGuard;
+    @Mock private ProductSalesStatsDAO productSalesStatsDAO;
+    @Mock private ProductService productService;
+
+    @InjectMocks
+    private ProductLeaderboardService leaderboardService;
+
+    @BeforeEach
+    void setUp() {
+        when(jedisPool.getResource()).thenReturn(jedis);
+    }
+
+    @Test
+    void testTop_ReadsSortedSetAndLoadsNamesInOneBatch() {
+        Product product = new Product();
+        product.setProductId(7);
+        product.setProductName("Gadget");
+        when(jedis.exists(KEY)).thenReturn(true);
+        when(jedis.zrevrangeWithScores(KEY, 0, 2)).thenReturn(Arrays.asList(
+                new Tuple("7", 12.0), new Tuple("3", 5.0)));
+        when(productService.findByIds(Arrays.asList(7, 3))).thenReturn(Collections.singletonList(product));
+
+        var top = leaderboardService.top(3);
+        assertEquals(2, top.size());
+        assertEquals("Gadget", top.get(0).getProductName());
+        assertEquals(12L, top.get(0).getTotalQuantity());
+        assertEquals(3L, top.get(1).getProductId());
+        assertNull(top.get(1).getProductName());
+        verify(productService, never()).findById(anyInt());
+        verify(productSalesStatsDAO, never()).findTopByUnitsSold(anyInt());
+    }
+
+    @Test
+    void testTop_OrdersTiesAtCutoffByProductId() {
+        when(jedis.exists(KEY)).thenReturn(true);
+        when(jedis.zrevrangeWithScores(KEY, 0, 1)).thenReturn(Arrays.asList(
+                new Tuple("7", 12.0), new Tuple("9", 5.0)));
+        when(jedis.zrevrangeByScoreWithScores(KEY, Double.POSITIVE_INFINITY, 5.0)).thenReturn(Arrays.asList(
+                new Tuple("7", 12.0), new Tuple("9", 5.0), new Tuple("10", 5.0), new Tuple("4", 5.0)));
+        when(productService.findByIds(Arrays.asList(7, 4))).thenReturn(Collections.emptyList());
+
+        var top = leaderboardService.top(2);
+        assertEquals(7L, top.get(0).getProductId());
+        // Same order as the keyset query that serves the next page
+        assertEquals(4L, top.get(1).getProductId());
+    }
+
+    @Test
+    void testTop_RebuildsMissingSetFromStats() {
+        when(jedis.exists(KEY)).thenReturn(false);
+        when(aggregateGuard.snapshot(jedis, KEY)).thenReturn("4");
+        when(productSalesStatsDAO.findTopByUnitsSold(Integer.MAX_VALUE)).thenReturn(Arrays.asList(
+                new Object[]{7, "Gadget", 12L}, new Object[]{3, "Widget", 5L}));
+        when(aggregateGuard.publish(jedis, KEY, "4", 0, KEY)).thenReturn(true);
+
+        var top = leaderboardService.top(1);
+        assertEquals(1, top.size());
+        assertEquals("Gadget", top.get(0).getProductName());
+        Map<String, Double> scores = new HashMap<>();
+        scores.put("7", 12.0);
+        scores.put("3", 5.0);
+        verify(jedis).zadd(KEY + ":rebuild", scores);
+        verify(jedis, never()).zrevrangeWithScores(anyString(), anyLong(), anyLong());
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void testTop_DoesNotPublishWhileUpdatePending() {
+        when(jedis.exists(KEY)).thenReturn(false);
+        when(aggregateGuard.snapshot(jedis, KEY)).thenReturn(null);
+        when(productSalesStatsDAO.findTopByUnitsSold(Integer.MAX_VALUE)).thenReturn(
+                Collections.singletonList(new Object[]{7, "Gadget", 12L}));
+
+        var top = leaderboardService.top(3);
+        assertEquals(1, top.size());
+        assertEquals(12L, top.get(0).getTotalQuantity());
+        verify(jedis, never()).zadd(anyString(), anyMap());
+        verify(aggregateGuard, never()).publish(any(), anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void testRecordAfterCommit_IncrementsThroughGuard() {
+        Pipeline pipeline = mock(Pipeline.class);
+        when(jedis.exists(KEY)).thenReturn(true);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(aggregateGuard).updateAfterCommit(eq(Collections.singletonList(KEY)), any(Runnable.class));
+
+        leaderboardService.recordAfterCommit(Collections.singletonMap(7, 2L));
+        verify(pipeline).zincrby(KEY, 2.0, "7");
+        verify(pipeline).sync();
+    }
+}
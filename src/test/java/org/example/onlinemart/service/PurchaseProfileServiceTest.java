@@ -0,0 +1,186 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.cache.RedisAggregateGuard;
+import org.example.onlinemart.dao.OrderItemDAO;
+import org.example.onlinemart.dto.ProductSummary;
+import org.example.onlinemart.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.params.ZAddParams;
+import redis.clients.jedis.resps.Tuple;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PurchaseProfileServiceTest {
+
+    private static final String FREQUENT = CacheKeys.UserActivity.frequentPurchases(5);
+    private static final String RECENT = CacheKeys.UserActivity.recentPurchases(5);
+
+    @Mock private JedisPool jedisPool;
+    @Mock private Jedis jedis;
+    @Mock private Pipeline pipeline;
+    @Mock private RedisAggregateGuard aggregateGuard;
+    @Mock private OrderItemDAO orderItemDAO;
+    @Mock private ProductService productService;
+
+    @InjectMocks
+    private PurchaseProfileService purchaseProfileService;
+
+    @BeforeEach
+    void setUp() {
+        when(jedisPool.getResource()).thenReturn(jedis);
+    }
+
+    @Test
+    void testTopFrequent_OrdersTiesAtCutoffById() {
+        when(jedis.zrevrangeWithScores(FREQUENT, 0, 2)).thenReturn(Arrays.asList(
+                new Tuple("9", 5.0), new Tuple("4", 3.0), new Tuple("2", 3.0)));
+        when(jedis.zrevrangeByScoreWithScores(FREQUENT, Double.POSITIVE_INFINITY, 3.0)).thenReturn(Arrays.asList(
+                new Tuple("9", 5.0), new Tuple("4", 3.0), new Tuple("2", 3.0), new Tuple("1", 3.0)));
+
+        assertEquals(Arrays.asList(9, 1, 2), purchaseProfileService.topFrequent(5, 3));
+        verifyNoInteractions(orderItemDAO);
+    }
+
+    @Test
+    void testRecent_RebuildsMissingProfile() {
+        when(jedis.zrevrangeWithScores(RECENT, 0, 2)).thenReturn(Collections.emptyList());
+        when(aggregateGuard.snapshot(jedis, FREQUENT)).thenReturn("0");
+        when(orderItemDAO.sumCompletedPurchasesForUser(5)).thenReturn(Arrays.asList(
+                new Object[]{3, 2L, new Date(1000)},
+                new Object[]{7, 1L, new Date(2000)}));
+        when(jedis.pipelined()).thenReturn(pipeline);
+        when(aggregateGuard.publish(jedis, FREQUENT, "0", 604800L, FREQUENT, RECENT)).thenReturn(true);
+
+        assertEquals(Arrays.asList(7, 3), purchaseProfileService.recent(5, 3));
+        Map<String, Double> recent = new HashMap<>();
+        recent.put("7", 2000.0);
+        recent.put("3", 1000.0);
+        verify(pipeline).zadd(RECENT + ":rebuild", recent);
+        verify(pipeline).sync();
+        verify(jedis, times(1)).zrevrangeWithScores(RECENT, 0, 2);
+    }
+
+    @Test
+    void testRecent_OrdersByOrderTimeThenId() {
+        when(jedis.zrevrangeWithScores(RECENT, 0, 1)).thenReturn(Arrays.asList(
+                new Tuple("9", 3000.0), new Tuple("4", 1000.0)));
+        when(jedis.zrevrangeByScoreWithScores(RECENT, Double.POSITIVE_INFINITY, 1000.0)).thenReturn(Arrays.asList(
+                new Tuple("9", 3000.0), new Tuple("4", 1000.0), new Tuple("2", 1000.0)));
+
+        assertEquals(Arrays.asList(9, 2), purchaseProfileService.recent(5, 2));
+        verifyNoInteractions(orderItemDAO);
+    }
+
+    @Test
+    void testTopFrequent_AnswersFromOrdersWhileUpdatePending() {
+        when(jedis.zrevrangeWithScores(FREQUENT, 0, 1)).thenReturn(Collections.emptyList());
+        when(aggregateGuard.snapshot(jedis, FREQUENT)).thenReturn(null);
+        when(orderItemDAO.sumCompletedPurchasesForUser(5)).thenReturn(Arrays.asList(
+                new Object[]{3, 2L, new Date(1000)},
+                new Object[]{7, 1L, new Date(2000)},
+                new Object[]{1, 2L, new Date(500)}));
+
+        assertEquals(Arrays.asList(1, 3), purchaseProfileService.topFrequent(5, 2));
+        verify(jedis, never()).pipelined();
+        verify(aggregateGuard, never()).publish(any(), anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void testTopFrequentProducts_LoadsProductsInOneCall() {
+        when(jedis.zrevrangeWithScores(FREQUENT, 0, 2)).thenReturn(Arrays.asList(
+                new Tuple("9", 5.0), new Tuple("4", 3.0)));
+        Product product = new Product();
+        product.setProductId(9);
+        product.setProductName("Lamp");
+        when(productService.findByIds(Arrays.asList(9, 4))).thenReturn(Collections.singletonList(product));
+
+        List<ProductSummary> products = purchaseProfileService.topFrequentProducts(5, 3);
+        assertEquals(1, products.size());
+        assertEquals(9, products.get(0).getProductId());
+        assertEquals("Lamp", products.get(0).getProductName());
+        verify(productService, never()).findById(anyInt());
+    }
+
+    @Test
+    void testRecentProducts_FallsBackToOrdersWithoutRedis() {
+        when(jedis.zrevrangeWithScores(RECENT, 0, 2)).thenThrow(new JedisConnectionException("down"));
+        ProductSummary product = new ProductSummary(9, "Lamp", "Desk lamp", 19.99);
+        when(orderItemDAO.findRecentPurchasedProducts(5, 3)).thenReturn(Collections.singletonList(product));
+
+        assertEquals(Collections.singletonList(product), purchaseProfileService.recentProducts(5, 3));
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    void testRecent_UserWithoutPurchases() {
+        when(jedis.zrevrangeWithScores(RECENT, 0, 2)).thenReturn(Collections.emptyList());
+        when(orderItemDAO.sumCompletedPurchasesForUser(5)).thenReturn(Collections.emptyList());
+
+        assertTrue(purchaseProfileService.recent(5, 3).isEmpty());
+        verify(jedis, never()).pipelined();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRecordCompleted_UpdatesExistingProfile() {
+        runGuardedUpdatesNow();
+        when(orderItemDAO.sumPurchasesByUserForOrders(Collections.singletonList(1000))).thenReturn(
+                Collections.singletonList(new Object[]{5, 7, 2L, new Date(1000)}));
+        when(jedis.pipelined()).thenReturn(pipeline);
+        Response<Long> exists = mock(Response.class);
+        when(exists.get()).thenReturn(2L);
+        when(pipeline.exists(FREQUENT, RECENT)).thenReturn(exists);
+
+        purchaseProfileService.recordCompletedAfterCommit(Collections.singletonList(1000));
+
+        verify(pipeline).zincrby(FREQUENT, 2.0, "7");
+        // Scored by the order time, kept only if later than the product's current entry
+        verify(pipeline).zadd(eq(RECENT), eq(1000.0), eq("7"), any(ZAddParams.class));
+        verify(pipeline).zremrangeByRank(RECENT, 0, -21);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRecordCompleted_SkipsProfileNotBuilt() {
+        runGuardedUpdatesNow();
+        when(orderItemDAO.sumPurchasesByUserForOrders(Collections.singletonList(1000))).thenReturn(
+                Collections.singletonList(new Object[]{5, 7, 2L, new Date(1000)}));
+        when(jedis.pipelined()).thenReturn(pipeline);
+        Response<Long> exists = mock(Response.class);
+        when(exists.get()).thenReturn(0L);
+        when(pipeline.exists(FREQUENT, RECENT)).thenReturn(exists);
+
+        purchaseProfileService.recordCompletedAfterCommit(Collections.singletonList(1000));
+
+        verify(pipeline, never()).zincrby(anyString(), anyDouble(), anyString());
+        verify(pipeline, never()).zadd(anyString(), anyDouble(), anyString(), any(ZAddParams.class));
+    }
+
+    private void runGuardedUpdatesNow() {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(aggregateGuard).updateAfterCommit(eq(Collections.singletonList(FREQUENT)), any(Runnable.class));
+    }
+}
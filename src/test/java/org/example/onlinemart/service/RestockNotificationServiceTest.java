@@ -0,0 +1,91 @@
+package org.example.onlinemart.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RestockNotificationServiceTest {
+
+    @Mock private WatchlistIndexService watchlistIndexService;
+    @Mock private NotificationService notificationService;
+
+    @InjectMocks
+    private RestockNotificationService restockNotificationService;
+
+    @BeforeEach
+    void setUp() {
+        restockNotificationService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        restockNotificationService.cleanup();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFanOut_PublishesEveryBatch() {
+        List<List<Integer>> batches = Arrays.asList(
+                Arrays.asList(1, 2), Arrays.asList(3, 4), Collections.singletonList(5));
+        when(watchlistIndexService.forEachWatcherBatch(eq(7), eq(500), any())).thenAnswer(invocation -> {
+            Consumer<List<Integer>> consumer = invocation.getArgument(2);
+            batches.forEach(consumer);
+            return 5;
+        });
+
+        restockNotificationService.fanOut(7, "Lamp", 12);
+
+        for (List<Integer> batch : batches) {
+            verify(notificationService, timeout(1000)).notifyRestock(7, "Lamp", 12, batch);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFanOut_BoundsBatchesInFlight() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            release.await(5, TimeUnit.SECONDS);
+            inFlight.decrementAndGet();
+            return null;
+        }).when(notificationService).notifyRestock(anyInt(), anyString(), anyInt(), anyList());
+        when(watchlistIndexService.forEachWatcherBatch(eq(7), eq(500), any())).thenAnswer(invocation -> {
+            Consumer<List<Integer>> consumer = invocation.getArgument(2);
+            for (int i = 0; i < 10; i++) {
+                consumer.accept(Collections.singletonList(i));
+            }
+            return 10;
+        });
+
+        Thread dispatcher = new Thread(() -> restockNotificationService.fanOut(7, "Lamp", 12));
+        dispatcher.start();
+        verify(notificationService, timeout(1000).times(4)).notifyRestock(anyInt(), anyString(), anyInt(), anyList());
+        // The fifth batch waits for a free sender
+        assertTrue(dispatcher.isAlive());
+
+        release.countDown();
+        dispatcher.join(5000);
+        verify(notificationService, timeout(1000).times(10)).notifyRestock(anyInt(), anyString(), anyInt(), anyList());
+        assertEquals(4, maxInFlight.get());
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.cache.RedisAggregateGuard;
+import org.example.onlinemart.dao.OrderDAO;
+import org.example.onlinemart.dao.OrderItemDAO;
+import org.example.onlinemart.dao.SalesRollupDAO;
+import org.example.onlinemart.dto.RevenueCube;
+import org.example.onlinemart.dto.RevenueMetrics;
+import org.example.onlinemart.entity.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RevenueCubeServiceTest {
+
+    private static final String KEY = CacheKeys.AdminSummary.REVENUE_METRICS;
+
+    @Mock private JedisPool jedisPool;
+    @Mock private Jedis jedis;
+    @Mock private RedisAggregateGuard aggregateGuard;
+    @Mock private OrderDAO orderDAO;
+    @Mock private OrderItemDAO orderItemDAO;
+    @Mock private SalesRollupDAO salesRollupDAO;
+
+    @InjectMocks
+    private RevenueCubeService revenueCubeService;
+
+    @BeforeEach
+    void setUp() {
+        when(jedisPool.getResource()).thenReturn(jedis);
+    }
+
+    @Test
+    void testGetTotals_ReadsTotalCell() {
+        when(jedis.exists(KEY)).thenReturn(true);
+        when(jedis.hmget(KEY, "total:all:orders", "total:all:units", "total:all:revenue", "total:all:cost"))
+                .thenReturn(Arrays.asList("3", "7", "70.5", "40"));
+
+        RevenueMetrics totals = revenueCubeService.getTotals();
+        assertEquals(3L, totals.getOrderCount());
+        assertEquals(7L, totals.getItemCount());
+        assertEquals(30.5, totals.getTotalProfit(), 0.001);
+        verifyNoInteractions(orderDAO);
+    }
+
+    @Test
+    void testGetTotals_RebuildsMissingCube() {
+        when(jedis.exists(KEY)).thenReturn(false);
+        when(aggregateGuard.snapshot(jedis, KEY)).thenReturn("0");
+        stubDatabaseTotals();
+        when(aggregateGuard.publish(jedis, KEY, "0", 0, KEY)).thenReturn(true);
+
+        assertEquals(2L, revenueCubeService.getTotals().getOrderCount());
+        verify(jedis, never()).hmget(anyString(), (String[]) any());
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put("total:all:orders", "2");
+        expected.put("total:all:units", "5");
+        expected.put("total:all:revenue", "50.0");
+        expected.put("total:all:cost", "30.0");
+        expected.put("product:7:orders", "2");
+        expected.put("product:7:units", "5");
+        expected.put("product:7:revenue", "50.0");
+        expected.put("product:7:cost", "30.0");
+        verify(jedis).hset(KEY + ":rebuild", expected);
+    }
+
+    @Test
+    void testGetTotals_AnswersFromDatabaseWhileUpdatePending() {
+        when(jedis.exists(KEY)).thenReturn(false);
+        when(aggregateGuard.snapshot(jedis, KEY)).thenReturn(null);
+        stubDatabaseTotals();
+
+        RevenueMetrics totals = revenueCubeService.getTotals();
+        assertEquals(2L, totals.getOrderCount());
+        assertEquals(20.0, totals.getTotalProfit(), 0.001);
+        verify(jedis, never()).hset(anyString(), anyMap());
+        verify(aggregateGuard, never()).publish(any(), anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void testRecordCompletedAfterCommit_IncrementsProductDayAndTotalCells() {
+        Pipeline pipeline = mock(Pipeline.class);
+        when(orderItemDAO.sumSalesByProductForOrders(Arrays.asList(1, 2))).thenReturn(Arrays.asList(
+                new Object[]{7, 2L, 3L, 30.0, 18.0},
+                new Object[]{9, 1L, 1L, 5.0, 2.0}));
+        when(jedis.exists(KEY)).thenReturn(true);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(aggregateGuard).updateAfterCommit(eq(Collections.singletonList(KEY)), any(Runnable.class));
+
+        revenueCubeService.recordCompletedAfterCommit(Arrays.asList(1, 2),
+                java.sql.Timestamp.valueOf("2024-05-01 23:30:00"));
+
+        // The day is that of the orders' completion time, like the daily rollup bucket
+        String day = "day:2024-05-01";
+        verify(pipeline).hincrBy(KEY, "product:7:units", 3L);
+        verify(pipeline).hincrByFloat(KEY, "product:9:revenue", 5.0);
+        verify(pipeline).hincrBy(KEY, "total:all:orders", 2L);
+        verify(pipeline).hincrBy(KEY, "total:all:units", 4L);
+        verify(pipeline).hincrByFloat(KEY, "total:all:cost", 20.0);
+        verify(pipeline).hincrBy(KEY, day + ":orders", 2L);
+        verify(pipeline).hincrByFloat(KEY, day + ":revenue", 35.0);
+        verify(pipeline).sync();
+    }
+
+    @Test
+    void testGetCube_GroupsFieldsIntoCells() {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("total:all:orders", "1");
+        fields.put("total:all:revenue", "10");
+        fields.put("product:7:units", "2");
+        fields.put("day:2024-05-01:cost", "4.5");
+        when(jedis.hgetAll(KEY)).thenReturn(fields);
+
+        RevenueCube cube = revenueCubeService.getCube();
+        assertEquals(1L, cube.getTotals().getOrderCount());
+        assertEquals(10.0, cube.getTotals().getTotalRevenue(), 0.001);
+        assertEquals(2L, cube.getByProduct().get(7).getItemCount());
+        assertEquals(4.5, cube.getByDay().get("2024-05-01").getTotalCost(), 0.001);
+    }
+
+    private void stubDatabaseTotals() {
+        when(orderDAO.sumTotals(Order.OrderStatus.Completed)).thenReturn(new RevenueMetrics(2L, 5L, 50.0, 30.0));
+        when(orderItemDAO.sumSalesByProduct()).thenReturn(Collections.singletonList(
+                new Object[]{7, 2L, 5L, 50.0, 30.0}));
+        when(salesRollupDAO.findByGranularity(anyString())).thenReturn(Collections.emptyList());
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.cache.CacheService;
+import org.example.onlinemart.dao.SalesRollupDAO;
+import org.example.onlinemart.dto.RevenueMetrics;
+import org.example.onlinemart.entity.SalesRollup;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SalesRollupServiceTest {
+
+    @Mock private SalesRollupDAO salesRollupDAO;
+    @Mock private CacheService cacheService;
+
+    @InjectMocks
+    private SalesRollupService salesRollupService;
+
+    @Test
+    void testGetSales_DaysInsideHoursAtEdges() {
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 22, 30);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 10, 3, 15);
+        when(cacheService.get(anyString(), eq(RevenueMetrics.class))).thenReturn(Optional.empty());
+        when(salesRollupDAO.sumBuckets(eq(SalesRollup.DAY), any(), any()))
+                .thenReturn(new RevenueMetrics(10L, 20L, 200.0, 120.0));
+        when(salesRollupDAO.sumBuckets(eq(SalesRollup.HOUR), any(), any()))
+                .thenReturn(new RevenueMetrics(1L, 2L, 20.0, 12.0));
+
+        RevenueMetrics sales = salesRollupService.getSales(from, to);
+        assertEquals(12L, sales.getOrderCount());
+        assertEquals(240.0, sales.getTotalRevenue(), 0.001);
+        assertEquals(96.0, sales.getTotalProfit(), 0.001);
+
+        verify(salesRollupDAO).sumBuckets(SalesRollup.DAY,
+                date(LocalDateTime.of(2024, 1, 2, 0, 0)), date(LocalDateTime.of(2024, 1, 10, 0, 0)));
+        verify(salesRollupDAO).sumBuckets(SalesRollup.HOUR,
+                date(LocalDateTime.of(2024, 1, 1, 22, 0)), date(LocalDateTime.of(2024, 1, 2, 0, 0)));
+        verify(salesRollupDAO).sumBuckets(SalesRollup.HOUR,
+                date(LocalDateTime.of(2024, 1, 10, 0, 0)), date(LocalDateTime.of(2024, 1, 10, 4, 0)));
+        verify(cacheService).set(anyString(), eq(sales), anyLong(), any());
+    }
+
+    @Test
+    void testGetSales_WithinOneDayUsesHoursOnly() {
+        LocalDateTime from = LocalDateTime.of(2024, 3, 5, 8, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 5, 17, 0);
+        when(cacheService.get(anyString(), eq(RevenueMetrics.class))).thenReturn(Optional.empty());
+        when(salesRollupDAO.sumBuckets(SalesRollup.HOUR, date(from), date(to)))
+                .thenReturn(new RevenueMetrics(3L, 4L, 30.0, 18.0));
+
+        assertEquals(3L, salesRollupService.getSales(from, to).getOrderCount());
+        verify(salesRollupDAO, never()).sumBuckets(eq(SalesRollup.DAY), any(), any());
+    }
+
+    private static Date date(LocalDateTime time) {
+        return Date.from(time.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
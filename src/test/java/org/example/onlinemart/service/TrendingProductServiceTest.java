@@ -0,0 +1,130 @@
+package org.example.onlinemart.service;
+
+import com.google.gson.Gson;
+import org.example.onlinemart.dto.TrendingProducts;
+import org.example.onlinemart.entity.Product;
+import org.example.onlinemart.sketch.SpaceSavingSketch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TrendingProductServiceTest {
+
+    private final Gson gson = new Gson();
+
+    @Mock private JedisPool jedisPool;
+    @Mock private Jedis jedis;
+    @Mock private Pipeline pipeline;
+    @Mock private ProductService productService;
+
+    private TrendingProductService trendingProductService;
+
+    @BeforeEach
+    void setUp() {
+        trendingProductService = new TrendingProductService(jedisPool, productService);
+        ReflectionTestUtils.setField(trendingProductService, "capacity", 10);
+        ReflectionTestUtils.setField(trendingProductService, "flushMillis", 60000L);
+    }
+
+    @Test
+    void testFlush_WritesEachWindowSliceOnceUntilUpdated() {
+        stubPipeline();
+        trendingProductService.recordAfterCommit(Collections.singletonMap(7, 3L));
+
+        // Shutting down flushes whatever is dirty
+        trendingProductService.cleanup();
+
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(pipeline).hset(startsWith("summary:trending:hour:"), anyString(), json.capture());
+        verify(pipeline).hset(startsWith("summary:trending:day:"), anyString(), anyString());
+        verify(pipeline, times(2)).pexpire(anyString(), anyLong());
+        SpaceSavingSketch flushed = gson.fromJson(json.getValue(), SpaceSavingSketch.class);
+        assertEquals(3L, flushed.getTotal());
+        assertEquals(7, flushed.top(1).get(0).getKey());
+
+        trendingProductService.cleanup();
+        verify(jedis, times(1)).pipelined();
+    }
+
+    @Test
+    void testFlush_FailedWriteIsRetried() {
+        stubPipeline();
+        doThrow(new JedisConnectionException("down")).doNothing().when(pipeline).sync();
+        trendingProductService.recordAfterCommit(Collections.singletonMap(7, 3L));
+
+        trendingProductService.cleanup();
+        trendingProductService.cleanup();
+
+        verify(pipeline, times(2)).hset(startsWith("summary:trending:hour:"), anyString(), anyString());
+        verify(pipeline, times(2)).sync();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTop_MergesInstancesAndLoadsNamesInOneBatch() {
+        stubPipeline();
+        SpaceSavingSketch nodeA = new SpaceSavingSketch(10);
+        nodeA.offer(7, 5);
+        nodeA.offer(3, 2);
+        SpaceSavingSketch nodeB = new SpaceSavingSketch(10);
+        nodeB.offer(7, 1);
+        nodeB.offer(9, 4);
+        Map<String, String> sketches = new HashMap<>();
+        sketches.put("node-a", gson.toJson(nodeA));
+        sketches.put("node-b", gson.toJson(nodeB));
+
+        Response<Map<String, String>> oldestSlice = mock(Response.class);
+        when(oldestSlice.get()).thenReturn(sketches);
+        Response<Map<String, String>> emptySlice = mock(Response.class);
+        when(emptySlice.get()).thenReturn(Collections.emptyMap());
+        when(pipeline.hgetAll(startsWith("summary:trending:hour:"))).thenReturn(oldestSlice, emptySlice);
+
+        Product gadget = new Product();
+        gadget.setProductId(7);
+        gadget.setProductName("Gadget");
+        when(productService.findByIds(Arrays.asList(7, 9))).thenReturn(Collections.singletonList(gadget));
+
+        TrendingProducts trending = trendingProductService.top("hour", 2);
+
+        verify(pipeline, times(12)).hgetAll(anyString());
+        assertEquals("hour", trending.getWindow());
+        assertEquals(12L, trending.getTotalUnits());
+        assertEquals(2, trending.getProducts().size());
+        assertEquals(7, trending.getProducts().get(0).getProductId());
+        assertEquals("Gadget", trending.getProducts().get(0).getProductName());
+        assertEquals(6L, trending.getProducts().get(0).getEstimatedUnits());
+        assertEquals(9, trending.getProducts().get(1).getProductId());
+        assertNull(trending.getProducts().get(1).getProductName());
+        verify(productService, never()).findById(anyInt());
+    }
+
+    @Test
+    void testTop_RejectsUnknownWindow() {
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> trendingProductService.top("week", 5));
+        assertEquals("Unknown trending window: week, expected hour or day", ex.getMessage());
+    }
+
+    private void stubPipeline() {
+        when(jedisPool.getResource()).thenReturn(jedis);
+        when(jedis.pipelined()).thenReturn(pipeline);
+    }
+}
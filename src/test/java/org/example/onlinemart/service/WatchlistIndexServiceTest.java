@@ -0,0 +1,233 @@
+package org.example.onlinemart.service;
+
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.cache.RedisAggregateGuard;
+import org.example.onlinemart.dao.ProductDAO;
+import org.example.onlinemart.dao.WatchlistDAO;
+import org.example.onlinemart.transaction.AfterCommit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WatchlistIndexServiceTest {
+
+    private static final String WATCHLIST = CacheKeys.Users.watchlistIds(5);
+    private static final String IN_STOCK = CacheKeys.Products.IN_STOCK_IDS;
+
+    @Mock private JedisPool jedisPool;
+    @Mock private Jedis jedis;
+    @Mock private Pipeline pipeline;
+    @Mock private RedisAggregateGuard aggregateGuard;
+    @Mock private WatchlistDAO watchlistDAO;
+    @Mock private ProductDAO productDAO;
+
+    @InjectMocks
+    private WatchlistIndexService watchlistIndexService;
+
+    @BeforeEach
+    void setUp() {
+        when(jedisPool.getResource()).thenReturn(jedis);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindInStockProductIds_LoadedSetsNeedOneRoundTrip() {
+        when(jedis.pipelined()).thenReturn(pipeline);
+        Response<Boolean> loaded = mock(Response.class);
+        when(loaded.get()).thenReturn(true);
+        Response<Set<String>> intersection = mock(Response.class);
+        when(intersection.get()).thenReturn(new HashSet<>(Arrays.asList("30", "4", "12")));
+        when(pipeline.exists(anyString())).thenReturn(loaded);
+        when(pipeline.sinter(WATCHLIST, IN_STOCK)).thenReturn(intersection);
+
+        assertEquals(Optional.of(Arrays.asList(4, 12, 30)), watchlistIndexService.findInStockProductIds(5));
+        verify(jedis, never()).sinter((String[]) any());
+        verifyNoInteractions(watchlistDAO, productDAO);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindInStockProductIds_LoadsMissingWatchlist() {
+        when(jedis.pipelined()).thenReturn(pipeline);
+        Response<Boolean> loaded = mock(Response.class);
+        when(loaded.get()).thenReturn(true);
+        Response<Boolean> missing = mock(Response.class);
+        when(missing.get()).thenReturn(false);
+        when(pipeline.exists(WATCHLIST)).thenReturn(missing);
+        when(pipeline.exists(IN_STOCK)).thenReturn(loaded);
+        when(pipeline.sinter(WATCHLIST, IN_STOCK)).thenReturn(mock(Response.class));
+        when(aggregateGuard.snapshot(jedis, WATCHLIST)).thenReturn("3");
+        when(watchlistDAO.findProductIdsByUserId(5)).thenReturn(Arrays.asList(4, 9));
+        when(aggregateGuard.publish(jedis, WATCHLIST, "3", 86400L, WATCHLIST)).thenReturn(true);
+        Response<Boolean> out = mock(Response.class);
+        when(out.get()).thenReturn(false);
+        when(pipeline.sismember(IN_STOCK, "4")).thenReturn(out);
+        when(pipeline.sismember(IN_STOCK, "9")).thenReturn(loaded);
+
+        assertEquals(Optional.of(Collections.singletonList(9)), watchlistIndexService.findInStockProductIds(5));
+        verify(pipeline).sadd(WATCHLIST + ":rebuild", "watchlist", "4", "9");
+        verify(pipeline, never()).rename(anyString(), anyString());
+        verifyNoInteractions(productDAO);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindInStockProductIds_KeepsWatchlistLoadedDuringWatchUnpublished() {
+        when(jedis.pipelined()).thenReturn(pipeline);
+        Response<Boolean> loaded = mock(Response.class);
+        when(loaded.get()).thenReturn(true);
+        Response<Boolean> missing = mock(Response.class);
+        when(missing.get()).thenReturn(false);
+        when(pipeline.exists(WATCHLIST)).thenReturn(missing);
+        when(pipeline.exists(IN_STOCK)).thenReturn(loaded);
+        when(pipeline.sinter(WATCHLIST, IN_STOCK)).thenReturn(mock(Response.class));
+        // A watch is committing, so the set read now may miss it
+        when(aggregateGuard.snapshot(jedis, WATCHLIST)).thenReturn(null);
+        when(watchlistDAO.findProductIdsByUserId(5)).thenReturn(Collections.singletonList(4));
+        when(pipeline.sismember(IN_STOCK, "4")).thenReturn(loaded);
+
+        assertEquals(Optional.of(Collections.singletonList(4)), watchlistIndexService.findInStockProductIds(5));
+        verify(pipeline, never()).sadd(anyString(), (String[]) any());
+        verify(aggregateGuard, never()).publish(any(), anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void testFindInStockProductIds_EmptyWithoutRedis() {
+        when(jedis.pipelined()).thenThrow(new JedisConnectionException("down"));
+
+        assertFalse(watchlistIndexService.findInStockProductIds(5).isPresent());
+        verifyNoInteractions(watchlistDAO, productDAO);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStockChanged_UpdatesInStockSetOnlyIfLoaded() {
+        watchlistIndexService.stockChangedAfterCommit(Collections.singletonList(7), Arrays.asList(3, 8));
+
+        verify(jedis).eval(anyString(), eq(Collections.singletonList(IN_STOCK)), eq(Arrays.asList("sadd", "7")));
+        verify(jedis).eval(anyString(), eq(Collections.singletonList(IN_STOCK)), eq(Arrays.asList("srem", "3", "8")));
+    }
+
+    @Test
+    void testStockChanged_DroppedWhenSavepointRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            AfterCommit.withinSavepoint(() -> {
+                watchlistIndexService.stockChangedAfterCommit(Collections.singletonList(7), Collections.emptyList());
+                return null;
+            });
+            assertThrows(IllegalStateException.class, () -> AfterCommit.withinSavepoint(() -> {
+                watchlistIndexService.stockChangedAfterCommit(Collections.emptyList(), Collections.singletonList(3));
+                throw new IllegalStateException("Not enough inventory");
+            }));
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(jedis).eval(anyString(), eq(Collections.singletonList(IN_STOCK)), eq(Arrays.asList("sadd", "7")));
+        verify(jedis, never()).eval(anyString(), anyList(), eq(Arrays.asList("srem", "3")));
+    }
+
+    @Test
+    void testUnwatched_DropsWatchlistSetWhenUpdateFails() {
+        runGuardedUpdatesNow(Arrays.asList(WATCHLIST, CacheKeys.Products.watchers(7)));
+        when(jedis.eval(anyString(), anyList(), anyList())).thenThrow(new JedisConnectionException("down"));
+
+        watchlistIndexService.unwatchedAfterCommit(5, 7);
+
+        verify(jedis).del(WATCHLIST, CacheKeys.Products.watchers(7));
+    }
+
+    @Test
+    void testWatched_UpdatesBothSetsUnderGuard() {
+        String watchers = CacheKeys.Products.watchers(7);
+        runGuardedUpdatesNow(Arrays.asList(WATCHLIST, watchers));
+
+        watchlistIndexService.watchedAfterCommit(5, 7);
+
+        verify(jedis).eval(anyString(), eq(Collections.singletonList(WATCHLIST)), eq(Arrays.asList("sadd", "7")));
+        verify(jedis).eval(anyString(), eq(Collections.singletonList(watchers)), eq(Arrays.asList("sadd", "5")));
+    }
+
+    @Test
+    void testForEachWatcherBatch_ScansInFixedSizeBatches() {
+        String watchers = CacheKeys.Products.watchers(7);
+        when(jedis.exists(watchers)).thenReturn(true);
+        when(jedis.sscan(eq(watchers), eq("0"), any(ScanParams.class)))
+                .thenReturn(new ScanResult<>("42", Arrays.asList("watchers", "1", "2", "3")));
+        when(jedis.sscan(eq(watchers), eq("42"), any(ScanParams.class)))
+                .thenReturn(new ScanResult<>("0", Arrays.asList("4", "5")));
+
+        List<List<Integer>> batches = new ArrayList<>();
+        int handed = watchlistIndexService.forEachWatcherBatch(7, 2, batches::add);
+
+        assertEquals(5, handed);
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Collections.singletonList(5)), batches);
+        verifyNoInteractions(watchlistDAO);
+    }
+
+    @Test
+    void testForEachWatcherBatch_HandsOverLoadedWatchers() {
+        String watchers = CacheKeys.Products.watchers(7);
+        when(jedis.exists(watchers)).thenReturn(false);
+        when(aggregateGuard.snapshot(jedis, watchers)).thenReturn("0");
+        when(watchlistDAO.findUserIdsByProductId(7)).thenReturn(Arrays.asList(1, 2, 3));
+        when(jedis.pipelined()).thenReturn(pipeline);
+        when(aggregateGuard.publish(jedis, watchers, "0", 86400L, watchers)).thenReturn(false);
+
+        List<List<Integer>> batches = new ArrayList<>();
+        int handed = watchlistIndexService.forEachWatcherBatch(7, 2, batches::add);
+
+        assertEquals(3, handed);
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Collections.singletonList(3)), batches);
+        verify(pipeline).sadd(watchers + ":rebuild", "watchers", "1", "2", "3");
+        verify(jedis, never()).sscan(anyString(), anyString(), any(ScanParams.class));
+    }
+
+    @Test
+    void testForEachWatcherBatch_ReadsDatabaseWithoutRedis() {
+        when(jedis.exists(CacheKeys.Products.watchers(7))).thenThrow(new JedisConnectionException("down"));
+        when(watchlistDAO.findUserIdsByProductId(7)).thenReturn(Arrays.asList(1, 2, 3));
+
+        List<List<Integer>> batches = new ArrayList<>();
+        int handed = watchlistIndexService.forEachWatcherBatch(7, 2, batches::add);
+
+        assertEquals(3, handed);
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Collections.singletonList(3)), batches);
+    }
+
+    private void runGuardedUpdatesNow(List<String> keys) {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(aggregateGuard).updateAfterCommit(eq(keys), any(Runnable.class));
+    }
+}
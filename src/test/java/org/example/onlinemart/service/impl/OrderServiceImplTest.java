@@ -1,5 +1,6 @@
 package org.example.onlinemart.service.impl;
 
+import org.example.onlinemart.cache.CacheService;
 import org.example.onlinemart.dao.*;
 import org.example.onlinemart.entity.Order;
 import org.example.onlinemart.entity.OrderItem;
@@ -7,12 +8,22 @@ import org.example.onlinemart.entity.Product;
 import org.example.onlinemart.entity.User;
 import org.example.onlinemart.entity.Order.OrderStatus;
 import org.example.onlinemart.exception.NotEnoughInventoryException;
+import org.example.onlinemart.report.OrderLineStore;
+import org.example.onlinemart.service.InventoryLockService;
+import org.example.onlinemart.service.OutboxService;
+import org.example.onlinemart.service.ProductLeaderboardService;
+import org.example.onlinemart.service.PurchaseProfileService;
+import org.example.onlinemart.service.RevenueCubeService;
+import org.example.onlinemart.service.SalesRollupService;
+import org.example.onlinemart.service.TrendingProductService;
+import org.example.onlinemart.service.WatchlistIndexService;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.*;
 
@@ -26,6 +37,17 @@ class OrderServiceImplTest {
     @Mock private OrderItemDAO orderItemDAO;
     @Mock private ProductDAO productDAO;
     @Mock private UserDAO userDAO;
+    @Mock private ProductSalesStatsDAO productSalesStatsDAO;
+    @Mock private CacheService cacheService;
+    @Mock private InventoryLockService inventoryLockService;
+    @Mock private OutboxService outboxService;
+    @Mock private ProductLeaderboardService productLeaderboardService;
+    @Mock private SalesRollupService salesRollupService;
+    @Mock private TrendingProductService trendingProductService;
+    @Mock private RevenueCubeService revenueCubeService;
+    @Mock private PurchaseProfileService purchaseProfileService;
+    @Mock private WatchlistIndexService watchlistIndexService;
+    @Mock private OrderLineStore orderLineStore;
 
     @InjectMocks
     private OrderServiceImpl orderService;
@@ -42,6 +64,8 @@ class OrderServiceImplTest {
         sampleProduct = new Product();
         sampleProduct.setProductId(100);
         sampleProduct.setStock(10);
+        sampleProduct.setRetailPrice(15.0);
+        sampleProduct.setWholesalePrice(9.0);
 
         sampleItem = new OrderItem();
         sampleItem.setProduct(sampleProduct);
@@ -59,6 +83,12 @@ class OrderServiceImplTest {
         verify(orderItemDAO, times(1)).save(any(OrderItem.class));
         verify(productDAO, times(1)).update(sampleProduct);
         assertEquals(8, sampleProduct.getStock()); // 10 - 2
+        assertEquals(2, result.getItemCount());
+        assertEquals(30.0, result.getTotalRevenue(), 0.001);
+        assertEquals(18.0, result.getTotalCost(), 0.001);
+        verify(outboxService).inventoryChanged(sampleProduct);
+        verify(outboxService).orderStatusChanged(anyInt(), eq(OrderStatus.Processing), eq(1));
+        verifyNoMoreInteractions(outboxService);
     }
 
     @Test
@@ -79,20 +109,101 @@ class OrderServiceImplTest {
                 () -> orderService.createOrder(1, Collections.singletonList(sampleItem)));
     }
 
+    @Test
+    void testCreateOrder_HotSkuLocksAcquiredAndReleased() {
+        ReflectionTestUtils.setField(orderService, "hotSkuLockingEnabled", true);
+        when(userDAO.findById(1)).thenReturn(sampleUser);
+        when(productDAO.findById(100)).thenReturn(sampleProduct);
+        when(inventoryLockService.acquireLocks(anyCollection(), anyLong(), anyLong())).thenReturn("token");
+        when(inventoryLockService.getFencingToken("token")).thenReturn(7L);
+        when(productDAO.updateStockFenced(sampleProduct, 2, 7L)).thenReturn(true);
+
+        orderService.createOrder(1, Collections.singletonList(sampleItem));
+
+        verify(inventoryLockService).acquireLocks(eq(Collections.singleton(100)), anyLong(), anyLong());
+        verify(productDAO).updateStockFenced(sampleProduct, 2, 7L);
+        verify(productDAO, never()).update(any(Product.class));
+        verify(inventoryLockService).releaseLocks(Collections.singleton(100), "token");
+    }
+
+    @Test
+    void testCreateOrder_HotSkuStaleFenceRejected() {
+        ReflectionTestUtils.setField(orderService, "hotSkuLockingEnabled", true);
+        when(userDAO.findById(1)).thenReturn(sampleUser);
+        when(productDAO.findById(100)).thenReturn(sampleProduct);
+        when(inventoryLockService.acquireLocks(anyCollection(), anyLong(), anyLong())).thenReturn("token");
+        when(inventoryLockService.getFencingToken("token")).thenReturn(3L);
+        when(productDAO.updateStockFenced(sampleProduct, 2, 3L)).thenReturn(false);
+
+        assertThrows(RuntimeException.class,
+                () -> orderService.createOrder(1, Collections.singletonList(sampleItem)));
+        verify(orderItemDAO, never()).save(any(OrderItem.class));
+        verify(inventoryLockService).releaseLocks(Collections.singleton(100), "token");
+    }
+
+    @Test
+    void testCreateOrder_HotSkuStockTakenOutsideLock() {
+        ReflectionTestUtils.setField(orderService, "hotSkuLockingEnabled", true);
+        when(userDAO.findById(1)).thenReturn(sampleUser);
+        when(productDAO.findById(100)).thenReturn(sampleProduct);
+        when(inventoryLockService.acquireLocks(anyCollection(), anyLong(), anyLong())).thenReturn("token");
+        when(inventoryLockService.getFencingToken("token")).thenReturn(7L);
+        // Another writer took stock since it was read, so the relative update finds too little left
+        when(productDAO.updateStockFenced(sampleProduct, 2, 7L)).thenAnswer(invocation -> {
+            sampleProduct.setStock(1);
+            return false;
+        });
+
+        assertThrows(NotEnoughInventoryException.class,
+                () -> orderService.createOrder(1, Collections.singletonList(sampleItem)));
+        verify(orderItemDAO, never()).save(any(OrderItem.class));
+    }
+
+    @Test
+    void testCreateOrder_HotSkuLocksBusy() {
+        ReflectionTestUtils.setField(orderService, "hotSkuLockingEnabled", true);
+        when(userDAO.findById(1)).thenReturn(sampleUser);
+        when(inventoryLockService.acquireLocks(anyCollection(), anyLong(), anyLong())).thenReturn(null);
+
+        assertThrows(RuntimeException.class,
+                () -> orderService.createOrder(1, Collections.singletonList(sampleItem)));
+        verify(orderDAO, never()).save(any(Order.class));
+        assertEquals(10, sampleProduct.getStock());
+    }
+
     @Test
     void testCancelOrder_Success() {
         Order existingOrder = new Order();
         existingOrder.setOrderId(1000);
         existingOrder.setOrderStatus(OrderStatus.Processing);
+        existingOrder.setUser(sampleUser);
 
         when(orderDAO.findById(1000)).thenReturn(existingOrder);
-        when(orderItemDAO.findByOrderId(1000)).thenReturn(Collections.singletonList(sampleItem));
+        when(orderDAO.cancelAndRestoreStock(existingOrder)).thenAnswer(invocation -> {
+            existingOrder.setOrderStatus(OrderStatus.Canceled);
+            return true;
+        });
 
         Order canceled = orderService.cancelOrder(1000);
         assertEquals(OrderStatus.Canceled, canceled.getOrderStatus());
-        assertEquals(12, sampleProduct.getStock());
-        verify(productDAO).update(sampleProduct);
-        verify(orderDAO).update(existingOrder);
+        verify(orderDAO).cancelAndRestoreStock(existingOrder);
+        verify(orderItemDAO, never()).findByOrderId(anyInt());
+        verify(productDAO, never()).update(any(Product.class));
+    }
+
+    @Test
+    void testCancelOrder_ConcurrentlyTransitioned() {
+        Order existingOrder = new Order();
+        existingOrder.setOrderId(1000);
+        existingOrder.setOrderStatus(OrderStatus.Processing);
+        existingOrder.setUser(sampleUser);
+
+        when(orderDAO.findById(1000)).thenReturn(existingOrder);
+        when(orderDAO.cancelAndRestoreStock(existingOrder)).thenReturn(false);
+
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> orderService.cancelOrder(1000));
+        assertEquals("Order 1000 is no longer being processed", ex.getMessage());
     }
 
     @Test
@@ -117,17 +228,76 @@ class OrderServiceImplTest {
         assertEquals("Order not found", ex.getMessage());
     }
 
+    @Test
+    void testCancelOrders_RestoresStockForEligibleOrdersOnly() {
+        Order processing = new Order();
+        processing.setOrderId(1);
+        processing.setUser(sampleUser);
+        Order completed = new Order();
+        completed.setOrderId(2);
+        completed.setUser(sampleUser);
+        completed.setOrderStatus(OrderStatus.Completed);
+
+        when(orderDAO.findByIdsForUpdate(Arrays.asList(1, 2, 3))).thenReturn(Arrays.asList(processing, completed));
+
+        var result = orderService.cancelOrders(Arrays.asList(1, 2, 3, 1));
+        assertEquals(3, result.getRequested());
+        assertEquals(Collections.singletonList(1), result.getTransitioned());
+        assertEquals("Order not found", result.getSkipped().get(3));
+        assertTrue(result.getSkipped().containsKey(2));
+        verify(orderDAO).restoreStock(Collections.singletonList(1));
+        verify(orderDAO).updateStatus(eq(Collections.singletonList(1)), eq(OrderStatus.Processing), eq(OrderStatus.Canceled),
+                any(Date.class));
+        verify(cacheService, times(1)).delete((String[]) any());
+    }
+
+    @Test
+    void testCompleteOrders_ChunkedByBatchSize() {
+        ReflectionTestUtils.setField(orderService, "bulkBatchSize", 2);
+        List<Order> orders = new ArrayList<>();
+        for (int id = 1; id <= 3; id++) {
+            Order order = new Order();
+            order.setOrderId(id);
+            order.setUser(sampleUser);
+            orders.add(order);
+        }
+        when(orderDAO.findByIdsForUpdate(Arrays.asList(1, 2))).thenReturn(orders.subList(0, 2));
+        when(orderDAO.findByIdsForUpdate(Collections.singletonList(3))).thenReturn(orders.subList(2, 3));
+
+        var result = orderService.completeOrders(Arrays.asList(1, 2, 3));
+        assertEquals(Arrays.asList(1, 2, 3), result.getTransitioned());
+        ArgumentCaptor<Date> changedAt = ArgumentCaptor.forClass(Date.class);
+        verify(orderDAO, times(2)).updateStatus(anyList(), eq(OrderStatus.Processing), eq(OrderStatus.Completed),
+                changedAt.capture());
+        verify(orderDAO, never()).restoreStock(anyList());
+        verify(productSalesStatsDAO, times(2)).applyCompletedOrders(anyList());
+        // Each chunk's rollups are bucketed by the completion time written to its orders
+        verify(salesRollupService).recordCompleted(Arrays.asList(1, 2), changedAt.getAllValues().get(0));
+        verify(salesRollupService).recordCompleted(Collections.singletonList(3), changedAt.getAllValues().get(1));
+        verify(cacheService, times(1)).delete((String[]) any());
+    }
+
     @Test
     void testCompleteOrder_Success() {
         Order existingOrder = new Order();
         existingOrder.setOrderId(1000);
         existingOrder.setOrderStatus(OrderStatus.Processing);
+        existingOrder.setUser(sampleUser);
 
         when(orderDAO.findById(1000)).thenReturn(existingOrder);
 
         Order completed = orderService.completeOrder(1000);
         assertEquals(OrderStatus.Completed, completed.getOrderStatus());
+        assertNotNull(completed.getCompletedAt());
         verify(orderDAO).update(existingOrder);
+        verify(outboxService).orderStatusChanged(1000, OrderStatus.Completed, 1);
+        verify(productSalesStatsDAO).applyCompletedOrders(Collections.singletonList(1000));
+        verify(productLeaderboardService).recordAfterCommit(anyMap());
+        verify(trendingProductService).recordAfterCommit(anyMap());
+        verify(revenueCubeService).recordCompletedAfterCommit(Collections.singletonList(1000),
+                completed.getCompletedAt());
+        verify(salesRollupService).recordCompleted(Collections.singletonList(1000), completed.getCompletedAt());
+        verify(purchaseProfileService).recordCompletedAfterCommit(Collections.singletonList(1000));
     }
 
     @Test
@@ -1,20 +1,26 @@
 package org.example.onlinemart.service.impl;
 
+import org.example.onlinemart.cache.CacheKeys;
+import org.example.onlinemart.cache.CacheService;
 import org.example.onlinemart.dao.ProductDAO;
 import org.example.onlinemart.entity.Product;
 import org.example.onlinemart.service.ProductService;
+import org.example.onlinemart.service.RestockNotificationService;
+import org.example.onlinemart.service.WatchlistIndexService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -23,6 +29,15 @@ class ProductServiceImplTest {
     @Mock
     private ProductDAO productDAO;
 
+    @Mock
+    private CacheService cacheService;
+
+    @Mock
+    private WatchlistIndexService watchlistIndexService;
+
+    @Mock
+    private RestockNotificationService restockNotificationService;
+
     @InjectMocks
     private ProductServiceImpl productService;
 
@@ -50,6 +65,7 @@ class ProductServiceImplTest {
         assertNotNull(saved);
         assertEquals(99, saved.getProductId());
         verify(productDAO, times(1)).save(any(Product.class));
+        verify(watchlistIndexService).stockChangedAfterCommit(Collections.singletonList(99), Collections.emptyList());
     }
 
     @Test
@@ -70,6 +86,23 @@ class ProductServiceImplTest {
         assertEquals(100, updated.getStock());
         assertEquals(59.99, updated.getRetailPrice());
         verify(productDAO, times(1)).update(existing);
+        verify(watchlistIndexService).stockChangedAfterCommit(Collections.singletonList(1), Collections.emptyList());
+        verifyNoInteractions(restockNotificationService);
+    }
+
+    @Test
+    void testUpdateProductFields_RestockNotifiesWatchers() {
+        Product existing = new Product();
+        existing.setProductId(1);
+        existing.setStock(0);
+
+        when(productDAO.findById(1)).thenReturn(existing);
+
+        Product updates = new Product();
+        updates.setStock(25);
+
+        productService.updateProductFields(1, updates);
+        verify(restockNotificationService).restockedAfterCommit(existing);
     }
 
     @Test
@@ -91,6 +124,20 @@ class ProductServiceImplTest {
         verify(productDAO, times(1)).findById(1);
     }
 
+    @Test
+    void testFindByIds_LoadsOnlyCacheMissesInOneQuery() {
+        Product second = new Product();
+        second.setProductId(2);
+        when(cacheService.multiGet(Arrays.asList(CacheKeys.Products.product(1), CacheKeys.Products.product(2)),
+                Product.class)).thenReturn(Arrays.asList(null, second));
+        when(productDAO.findByIds(Collections.singletonList(1))).thenReturn(Collections.singletonList(sampleProduct));
+
+        List<Product> found = productService.findByIds(Arrays.asList(1, 2));
+
+        assertEquals(Arrays.asList(sampleProduct, second), found);
+        verify(productDAO, never()).findById(anyInt());
+    }
+
     @Test
     void testFindAll_Empty() {
         when(productDAO.findAll()).thenReturn(Collections.emptyList());
@@ -1,12 +1,15 @@
 package org.example.onlinemart.service.impl;
 
 import lombok.*;
+import org.example.onlinemart.cache.CacheService;
 import org.example.onlinemart.dao.UserDAO;
 import org.example.onlinemart.dao.WatchlistDAO;
+import org.example.onlinemart.dto.ProductSummary;
 import org.example.onlinemart.entity.User;
 import org.example.onlinemart.entity.Product;
-import org.example.onlinemart.entity.Watchlist;
+import org.example.onlinemart.service.ProductService;
 import org.example.onlinemart.service.UserService;
+import org.example.onlinemart.service.WatchlistIndexService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -32,6 +35,15 @@ class UserServiceImplTest {
     @Mock
     private BCryptPasswordEncoder passwordEncoder;
 
+    @Mock
+    private CacheService cacheService;
+
+    @Mock
+    private WatchlistIndexService watchlistIndexService;
+
+    @Mock
+    private ProductService productService;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -110,15 +122,27 @@ class UserServiceImplTest {
     @Test
     void testGetWatchlistProductsInStock() {
         Product p1 = new Product(); p1.setProductId(10); p1.setStock(5);
-        Product p2 = new Product(); p2.setProductId(20); p2.setStock(0);  // out of stock
-        Watchlist w1 = new Watchlist(); w1.setProduct(p1);
-        Watchlist w2 = new Watchlist(); w2.setProduct(p2);
+        Product p2 = new Product(); p2.setProductId(30); p2.setStock(2);
 
-        when(watchlistDAO.findByUserId(1)).thenReturn(Arrays.asList(w1, w2));
+        when(watchlistIndexService.findInStockProductIds(1)).thenReturn(Optional.of(Arrays.asList(10, 30)));
+        when(productService.findByIds(Arrays.asList(10, 30))).thenReturn(Arrays.asList(p1, p2));
 
         var products = userService.getWatchlistProductsInStock(1);
-        assertEquals(1, products.size());
+        assertEquals(2, products.size());
         assertEquals(10, products.get(0).getProductId());
-        verify(watchlistDAO, times(1)).findByUserId(1);
+        assertEquals(30, products.get(1).getProductId());
+        verifyNoInteractions(watchlistDAO);
+    }
+
+    @Test
+    void testGetWatchlistProductsInStock_IndexUnavailable() {
+        ProductSummary summary = new ProductSummary(10, "Lamp", "Desk lamp", 19.99);
+
+        when(watchlistIndexService.findInStockProductIds(1)).thenReturn(Optional.empty());
+        when(watchlistDAO.findInStockProductsByUserId(1)).thenReturn(Collections.singletonList(summary));
+
+        var products = userService.getWatchlistProductsInStock(1);
+        assertEquals(Collections.singletonList(summary), products);
+        verifyNoInteractions(productService);
     }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package org.example.onlinemart.sketch;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void testOffer_ExactBelowCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+        sketch.offer(1, 5);
+        sketch.offer(2, 3);
+        sketch.offer(1, 2);
+
+        List<Map.Entry<Integer, SpaceSavingSketch.Counter>> top = sketch.top(2);
+        assertEquals(1, top.get(0).getKey());
+        assertEquals(7, top.get(0).getValue().getCount());
+        assertEquals(0, top.get(0).getValue().getError());
+        assertEquals(10, sketch.getTotal());
+    }
+
+    @Test
+    void testOffer_HeavyHittersWithinErrorBound() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(20);
+        Map<Integer, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            // Products 0-2 take about half the units, the rest spread over 1000 products
+            int item = (random.nextBoolean()) ? random.nextInt(3) : 3 + random.nextInt(1000);
+            sketch.offer(item, 1);
+            exact.merge(item, 1L, Long::sum);
+        }
+
+        assertBounds(sketch, exact);
+        List<Map.Entry<Integer, SpaceSavingSketch.Counter>> top = sketch.top(3);
+        for (Map.Entry<Integer, SpaceSavingSketch.Counter> entry : top) {
+            assertTrue(entry.getKey() < 3, "Expected a heavy hitter, got " + entry.getKey());
+        }
+    }
+
+    @Test
+    void testMerge_KeepsBoundsOverCombinedStream() {
+        SpaceSavingSketch first = new SpaceSavingSketch(20);
+        SpaceSavingSketch second = new SpaceSavingSketch(20);
+        Map<Integer, Long> exact = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            int item = (random.nextInt(4) == 0) ? 500 : random.nextInt(400);
+            long weight = 1 + random.nextInt(3);
+            ((i % 2 == 0) ? first : second).offer(item, weight);
+            exact.merge(item, weight, Long::sum);
+        }
+
+        SpaceSavingSketch restored = new Gson().fromJson(new Gson().toJson(second), SpaceSavingSketch.class);
+        first.merge(restored);
+
+        assertEquals(exact.values().stream().mapToLong(Long::longValue).sum(), first.getTotal());
+        assertBounds(first, exact);
+        assertEquals(500, first.top(1).get(0).getKey());
+    }
+
+    private static void assertBounds(SpaceSavingSketch sketch, Map<Integer, Long> exact) {
+        for (Map.Entry<Integer, SpaceSavingSketch.Counter> entry : sketch.top(sketch.getCapacity())) {
+            long trueWeight = exact.getOrDefault(entry.getKey(), 0L);
+            SpaceSavingSketch.Counter counter = entry.getValue();
+            assertTrue(counter.getCount() >= trueWeight);
+            assertTrue(counter.getCount() - counter.getError() <= trueWeight);
+            assertTrue(counter.getError() <= sketch.getErrorBound());
+        }
+    }
+}
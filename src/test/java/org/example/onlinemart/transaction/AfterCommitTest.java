@@ -0,0 +1,103 @@
+package org.example.onlinemart.transaction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AfterCommitTest {
+
+    private final List<String> ran = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void testRun_DefersUntilCommit() {
+        AfterCommit.run(() -> ran.add("order"));
+
+        assertTrue(ran.isEmpty());
+        commit();
+        assertEquals(Collections.singletonList("order"), ran);
+    }
+
+    @Test
+    void testRun_FailingActionDoesNotFailCommit() {
+        AfterCommit.run(() -> {
+            throw new IllegalStateException("Redis unavailable");
+        });
+        AfterCommit.run(() -> ran.add("order"));
+
+        assertDoesNotThrow(AfterCommitTest::commit);
+        assertEquals(Collections.singletonList("order"), ran);
+    }
+
+    @Test
+    void testRun_WithoutTransactionRunsNow() {
+        TransactionSynchronizationManager.clearSynchronization();
+        try {
+            AfterCommit.run(() -> ran.add("order"));
+        } finally {
+            TransactionSynchronizationManager.initSynchronization();
+        }
+
+        assertEquals(Collections.singletonList("order"), ran);
+    }
+
+    @Test
+    void testWithinSavepoint_KeepsHooksOfSavepointsThatSucceed() {
+        assertEquals("first", AfterCommit.withinSavepoint(() -> {
+            AfterCommit.run(() -> ran.add("first"));
+            return "first";
+        }));
+        assertThrows(IllegalStateException.class, () -> AfterCommit.withinSavepoint(() -> {
+            AfterCommit.run(() -> ran.add("failed"));
+            throw new IllegalStateException("Not enough inventory");
+        }));
+        AfterCommit.withinSavepoint(() -> {
+            AfterCommit.run(() -> ran.add("third"));
+            return null;
+        });
+
+        commit();
+        assertEquals(Arrays.asList("first", "third"), ran);
+    }
+
+    @Test
+    void testWithinSavepoint_InnerRollbackKeepsOuterHooks() {
+        AfterCommit.withinSavepoint(() -> {
+            AfterCommit.run(() -> ran.add("outer"));
+            assertThrows(IllegalStateException.class, () -> AfterCommit.withinSavepoint(() -> {
+                AfterCommit.run(() -> ran.add("inner"));
+                throw new IllegalStateException("Rolled back");
+            }));
+            // Held back until the outer savepoint returns
+            assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+            return null;
+        });
+
+        commit();
+        assertEquals(Collections.singletonList("outer"), ran);
+    }
+
+    private static void commit() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+    }
+}